@@ -0,0 +1,4 @@
+-- The schema is versioned in databasemanager.MigrationRunner: the base tables
+-- (V1, created only where missing) and every change since. Bring any database
+-- up to date, including one set up before the migrations existed, with
+--   java databasemanager.MigrationRunner
@@ -1,4 +1,3 @@
-import java.sql.SQLException;
 import java.util.Scanner;
 
 import databasemanager.DatabaseManager;
@@ -52,24 +51,8 @@ public class InventoryService {
     }
 
     private void updateProductQuantity() {
-        // Implementation to update product quantity
-        // Example:
-        System.out.println("Enter Product ID:");
-        int id = scanner.nextInt();
-        System.out.println("Enter new quantity:");
-        int quantity = scanner.nextInt();
-
-        try {
-            boolean success = dbManager.updateProductQuantity(id, quantity);
-            if (success) {
-                System.out.println("Product quantity updated successfully.");
-            } else {
-                System.out.println("Product update failed. Please check the Product ID.");
-            }
-        } catch (SQLException e) {
-            System.out.println("Error updating product: " + e.getMessage());
-            e.printStackTrace();
-        }
+        // Same versioned flow as the product screen
+        new ProductService(DatabaseManager::new, scanner).updateProductQuantity();
     }
 
     private void addNewProduct() {
@@ -1,40 +1,118 @@
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.InputMismatchException;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Scanner;
-
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import databasemanager.AsyncDatabaseManager;
+import databasemanager.ChainInventoryAggregator;
+import databasemanager.ConnectionPool;
 import databasemanager.DatabaseManager;
-import databasemanager.Date;
+import databasemanager.DataExporter;
+import databasemanager.ExpiryBucket;
+import databasemanager.ExpiryChecker;
+import databasemanager.ExpiryHistogram;
+import databasemanager.ExportReport;
+import databasemanager.ExportTable;
+import databasemanager.InventoryReportWriter;
+import databasemanager.InventorySummary;
+import databasemanager.InventorySummaryReconciler;
+import databasemanager.ListingFormat;
+import databasemanager.MarkdownEngine;
+import databasemanager.MarkdownReport;
+import databasemanager.MenuActionEvent;
+import databasemanager.MetricsRegistry;
+import databasemanager.MonitoringServer;
+import databasemanager.NotificationService;
+import databasemanager.ProductSearchIndex;
 import databasemanager.PurchaseOrder;
+import databasemanager.PurchaseOrderAnalytics;
+import databasemanager.ReorderEngine;
+import databasemanager.ReorderPointPlanner;
+import databasemanager.ReorderPointReport;
+import databasemanager.ReorderReport;
+import databasemanager.RollupBucket;
+import databasemanager.RollupDimension;
+import databasemanager.RollupGranularity;
+import databasemanager.StartupTimer;
+import databasemanager.StartupWarmup;
+import databasemanager.Store;
+import databasemanager.StoreInventoryTotals;
 import databasemanager.User;
 import databasemanager.UserRole;
+import databasemanager.ValuationDimension;
+import databasemanager.ValuationEngine;
+import databasemanager.ValuationReport;
 import product.java.Product;
 
 public class LoginSystem {
     // Static variable to hold the currently logged in user
     private static User currentUser = null;
 
+    // Action names for the MenuActionEvents recorded for each menu, by option number
+    private static final String[] MAIN_MENU_ACTIONS = { null, "Login", "Register", "Sign Out",
+            "Change User Role", "Exit" };
+    private static final String[] USER_MENU_ACTIONS = { null, "View Products", "Add/Delete Products",
+            "Update Inventory", "View Stores", "View My Details", "Check Expired Items", "View Markdown Items",
+            "Sign Out", "Manage Purchase Orders", "Role Management", "View All Users", "Exit Application",
+            "View Performance Metrics", "Inventory Valuation", "Inventory Dashboard",
+            "Search Products", "Apply Markdowns", "Export Data", "Inventory Report", "Purchase Order Trends",
+            "Expiry Histogram" };
+
+    // Raises purchase orders for low-stock products in the background
+    private static final ReorderEngine reorderEngine = new ReorderEngine();
+
+    // Recomputes every product's reorder point from its demand, nightly
+    private static final ReorderPointPlanner reorderPointPlanner = new ReorderPointPlanner();
+
+    // Runs the independent queries of the dashboard and report screens
+    // concurrently, each with a deadline
+    private static final AsyncDatabaseManager asyncDb = AsyncDatabaseManager.withDefaults();
+
+    // Rebuilds the dashboard summary now and then and reports any drift, and
+    // compacts the product search index
+    private static final InventorySummaryReconciler summaryReconciler = new InventorySummaryReconciler();
+
     public static void main(String[] args) throws Exception {
-        // First, check the database connection before entering the main application
-        // loop
-        try (DatabaseManager dbManager = new DatabaseManager()) {
-            System.out.println("Connected to the database successfully.");
-        } catch (SQLException e) {
-            System.out.println("Failed to connect to the database: " + e.getMessage());
-            e.printStackTrace();
-            return; // Exit the application if the database connection fails
-        } catch (RuntimeException e) {
-            System.out.println(
-                    "An unexpected runtime error occurred while trying to connect to the database: " + e.getMessage());
-            e.printStackTrace();
-            return; // Exit the application for any other unexpected runtime errors
+        // Open the connection pool, warm statements and reserve id blocks in the
+        // background; the menu comes up straight away and the first query that
+        // needs a connection waits for the pool if it isn't ready yet
+        new StartupWarmup().start().whenComplete((ignored, error) -> {
+            if (error != null) {
+                System.out.println("Database warm-up failed: " + error.getMessage());
+            }
+            System.out.print(StartupTimer.formatReport());
+        });
+
+        // Health and metrics endpoint for ops on localhost (port 0 disables it)
+        try {
+            MonitoringServer.start(Integer.getInteger("samsmart.http.port", 9464));
+        } catch (IOException e) {
+            System.out.println("Monitoring endpoint not started: " + e.getMessage());
+        }
+
+        // Schedule automatic reordering off the interactive path (0 disables it)
+        long reorderIntervalMinutes = Long.getLong("samsmart.reorder.intervalMinutes", 60);
+        if (reorderIntervalMinutes > 0) {
+            reorderEngine.start(reorderIntervalMinutes);
+        }
+        int reorderPointHour = Integer.getInteger("samsmart.reorderPoints.nightlyHour", 2);
+        if (reorderPointHour >= 0 && reorderPointHour <= 23) {
+            reorderPointPlanner.startNightly(reorderPointHour);
+        }
+        long reconcileIntervalMinutes = Long.getLong("samsmart.summary.reconcileMinutes", 15);
+        if (reconcileIntervalMinutes > 0) {
+            summaryReconciler.start(reconcileIntervalMinutes);
         }
 
         // Now we start the main loop of the application
@@ -47,13 +125,19 @@ public class LoginSystem {
                     } else {
                         displayUserMenu(scanner);
                     }
+                    StartupTimer.markFirstMenu();
 
                     int choice = scanner.nextInt();
                     scanner.nextLine(); // consume newline
 
                     // Handle the main menu or user menu option based on login status
                     if (currentUser == null) {
-                        handleMainMenuChoice(scanner, choice);
+                        MenuActionEvent menuAction = beginMenuAction();
+                        try {
+                            handleMainMenuChoice(scanner, choice);
+                        } finally {
+                            endMenuAction(menuAction, "main", MAIN_MENU_ACTIONS, choice);
+                        }
                     } else {
                         handleUserMenuChoice(scanner, choice);
                     }
@@ -75,6 +159,24 @@ public class LoginSystem {
     // Do not close the scanner as it is tied to System.in and will be closed by the
     // JVM upon application exit
 
+    // Start timing a menu action for JFR; the role is taken before the action
+    // runs, so a login is attributed to NONE and a sign-out to the old role
+    private static MenuActionEvent beginMenuAction() {
+        MenuActionEvent event = new MenuActionEvent();
+        event.role = currentUser != null ? currentUser.getRole().name() : "NONE";
+        event.begin();
+        return event;
+    }
+
+    private static void endMenuAction(MenuActionEvent event, String menu, String[] actions, int choice) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.menu = menu;
+            event.action = choice > 0 && choice < actions.length ? actions[choice] : "Invalid option " + choice;
+            event.commit();
+        }
+    }
+
     // Displays the main menu options to the user
     private static void displayMainMenu() {
         System.out.println("\nWelcome to Sam's Mart inventory system! Please select a number below.");
@@ -118,21 +220,25 @@ public class LoginSystem {
 
     // Handles the user menu choices
     // Handle Admin User Menu
+    // The prompt comes before the connection is borrowed, so the pool isn't
+    // held while the admin types
     public static void handleAdminMenuChoice(Scanner scanner, int choice) throws SQLException {
-        try (DatabaseManager dbManager = new DatabaseManager()) {
-            switch (choice) {
-                case 1: // Delete a user
-                    System.out.print("Enter the email of the user to delete: ");
-                    String emailToDelete = scanner.nextLine();
+        switch (choice) {
+            case 1: // Delete a user
+                System.out.print("Enter the email of the user to delete: ");
+                String emailToDelete = scanner.nextLine();
+                try (DatabaseManager dbManager = new DatabaseManager()) {
                     dbManager.deleteUserByEmail(emailToDelete);
-                    break;
-                case 2: // Assign Manager role
-                    System.out.print("Enter the email of the user to assign as Manager: ");
-                    String emailToPromote = scanner.nextLine();
+                }
+                break;
+            case 2: // Assign Manager role
+                System.out.print("Enter the email of the user to assign as Manager: ");
+                String emailToPromote = scanner.nextLine();
+                try (DatabaseManager dbManager = new DatabaseManager()) {
                     dbManager.assignManagerRole(emailToPromote);
-                    break;
-                // ... other admin choices ...
-            }
+                }
+                break;
+            // ... other admin choices ...
         }
     }
 
@@ -338,69 +444,149 @@ public class LoginSystem {
                 System.out.println("9. Manage Purchase Orders");
                 System.out.println("10. Role Management");
                 System.out.println("11. View All Users");
+                System.out.println("13. View Performance Metrics");
+                System.out.println("14. Inventory Valuation");
+                System.out.println("15. Inventory Dashboard");
+                System.out.println("17. Apply Markdowns");
+                System.out.println("18. Export Data");
+                System.out.println("19. Inventory Report (XLSX)");
+                System.out.println("20. Purchase Order Trends");
+                System.out.println("21. Expiry Histogram");
             } else if (isManager) {
                 System.out.println("9. Manage Purchase Orders");
+                System.out.println("14. Inventory Valuation");
+                System.out.println("15. Inventory Dashboard");
+                System.out.println("17. Apply Markdowns");
+                System.out.println("18. Export Data");
+                System.out.println("19. Inventory Report (XLSX)");
+                System.out.println("20. Purchase Order Trends");
+                System.out.println("21. Expiry Histogram");
             }
 
+            System.out.println("16. Search Products");
             System.out.println("12. Exit Application");
 
             System.out.print("Choose an option: ");
             int choice = scanner.nextInt();
             scanner.nextLine(); // consume newline
 
-            switch (choice) {
-                case 1:
-                    viewProducts();
-                    break;
-                case 2:
-                    addOrDeleteProducts(scanner);
-                    break;
-                case 3:
-                    updateInventory(scanner);
-                    break;
-                case 4:
-                    viewStores(scanner);
-                    break;
-                case 5:
-                    viewMyDetails();
-                    break;
-                case 6:
-                    checkExpiredItems();
-                    break;
-                case 7:
-                    displayMarkdownProducts();
-                    break;
-                case 8:
-                    signOut();
-                    break;
-                case 9:
-                    if (isAdmin || isManager) {
-                        managePurchaseOrders(scanner);
-                    } else {
-                        System.out.println("Access denied. Only admins and managers can manage purchase orders.");
-                    }
-                    break;
-                case 10:
-                    if (isAdmin) {
-                        manageRoles(scanner);
-                    } else {
-                        System.out.println("Access denied. Only admins can manage roles.");
-                    }
-                    break;
-                case 11:
-                    if (isAdmin) {
-                        viewAllUsers();
-                    } else {
-                        System.out.println("Access denied. Only admins can view all users.");
-                    }
-                    break;
-                case 12:
-                    System.out.println("Exiting application...");
-                    System.exit(0);
-                    break;
-                default:
-                    System.out.println("Invalid option. Please try again.");
-                    break;
+            MenuActionEvent menuAction = beginMenuAction();
+            try {
+                switch (choice) {
+                    case 1:
+                        viewProducts();
+                        break;
+                    case 2:
+                        addOrDeleteProducts(scanner);
+                        break;
+                    case 3:
+                        updateInventory(scanner);
+                        break;
+                    case 4:
+                        viewStores(scanner);
+                        break;
+                    case 5:
+                        viewMyDetails();
+                        break;
+                    case 6:
+                        checkExpiredItems();
+                        break;
+                    case 7:
+                        displayMarkdownProducts();
+                        break;
+                    case 8:
+                        signOut();
+                        break;
+                    case 9:
+                        if (isAdmin || isManager) {
+                            managePurchaseOrders(scanner);
+                        } else {
+                            System.out.println("Access denied. Only admins and managers can manage purchase orders.");
+                        }
+                        break;
+                    case 10:
+                        if (isAdmin) {
+                            manageRoles(scanner);
+                        } else {
+                            System.out.println("Access denied. Only admins can manage roles.");
+                        }
+                        break;
+                    case 11:
+                        if (isAdmin) {
+                            viewAllUsers();
+                        } else {
+                            System.out.println("Access denied. Only admins can view all users.");
+                        }
+                        break;
+                    case 13:
+                        if (isAdmin) {
+                            viewPerformanceMetrics();
+                        } else {
+                            System.out.println("Access denied. Only admins can view performance metrics.");
+                        }
+                        break;
+                    case 14:
+                        if (isAdmin || isManager) {
+                            viewInventoryValuation(scanner);
+                        } else {
+                            System.out.println("Access denied. Only admins and managers can view valuations.");
+                        }
+                        break;
+                    case 15:
+                        if (isAdmin || isManager) {
+                            viewInventoryDashboard();
+                        } else {
+                            System.out.println("Access denied. Only admins and managers can view the dashboard.");
+                        }
+                        break;
+                    case 16:
+                        searchProducts(scanner);
+                        break;
+                    case 17:
+                        if (isAdmin || isManager) {
+                            applyMarkdowns(scanner);
+                        } else {
+                            System.out.println("Access denied. Only admins and managers can apply markdowns.");
+                        }
+                        break;
+                    case 18:
+                        if (isAdmin || isManager) {
+                            exportData(scanner);
+                        } else {
+                            System.out.println("Access denied. Only admins and managers can export data.");
+                        }
+                        break;
+                    case 19:
+                        if (isAdmin || isManager) {
+                            writeInventoryReport(scanner);
+                        } else {
+                            System.out.println("Access denied. Only admins and managers can create reports.");
+                        }
+                        break;
+                    case 20:
+                        if (isAdmin || isManager) {
+                            viewPurchaseOrderTrends(scanner);
+                        } else {
+                            System.out.println("Access denied. Only admins and managers can view purchase order trends.");
+                        }
+                        break;
+                    case 21:
+                        if (isAdmin || isManager) {
+                            viewExpiryHistogram();
+                        } else {
+                            System.out.println("Access denied. Only admins and managers can view the expiry histogram.");
+                        }
+                        break;
+                    case 12:
+                        System.out.println("Exiting application...");
+                        System.exit(0);
+                        break;
+                    default:
+                        System.out.println("Invalid option. Please try again.");
+                        break;
+                }
+            } finally {
+                endMenuAction(menuAction, "user", USER_MENU_ACTIONS, choice);
             }
         }
     }
@@ -420,16 +606,304 @@ public class LoginSystem {
             } else {
                 System.out.println("Users List:");
                 for (User user : users) {
-                    System.out.printf("ID: %d, Name: %s %s, Email: %s, Phone: %s, Role: %s%n",
-                            user.getUserId(),
-                            user.getFirstName(),
-                            user.getLastName(),
-                            user.getEmail(),
-                            user.getPhoneNumber(),
-                            user.getRole());
+                    System.out.print(ListingFormat.userRow(user));
+                }
+            }
+        }
+    }
+
+    // Per-operation database latency since startup (also published over JMX)
+    private static void viewPerformanceMetrics() {
+        System.out.println("Database Operation Metrics:");
+        System.out.print(MetricsRegistry.getInstance().formatReport());
+        System.out.print(ConnectionPool.getInstance().formatReport());
+        System.out.print(StartupTimer.formatReport());
+    }
+
+    // Stock value (quantity x price) rolled up by one dimension, or by all of them
+    private static void viewInventoryValuation(Scanner scanner) {
+        System.out.println("Value inventory by:");
+        ValuationDimension[] dimensions = ValuationDimension.values();
+        for (int i = 0; i < dimensions.length; i++) {
+            System.out.println((i + 1) + ". " + dimensions[i].getLabel());
+        }
+        System.out.println((dimensions.length + 1) + ". All of the above");
+        System.out.print("Choose an option: ");
+        int choice = scanner.nextInt();
+        scanner.nextLine(); // consume newline
+
+        ValuationEngine engine = new ValuationEngine();
+        try {
+            if (choice >= 1 && choice <= dimensions.length) {
+                System.out.print(engine.valuate(dimensions[choice - 1]).format());
+            } else if (choice == dimensions.length + 1) {
+                // One query per dimension, all at once
+                Map<ValuationDimension, ValuationReport> reports = awaitAsync(
+                        ValuationEngine.valuateAll(asyncDb, dimensions), "valuing inventory");
+                if (reports != null) {
+                    for (ValuationReport report : reports.values()) {
+                        System.out.print(report.format());
+                        System.out.println();
+                    }
+                }
+            } else {
+                System.out.println("Invalid option.");
+            }
+        } catch (SQLException e) {
+            System.out.println("A database error occurred while valuing inventory: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Preview the markdown tiers' price changes, then write them on confirmation
+    private static void applyMarkdowns(Scanner scanner) {
+        MarkdownEngine engine = new MarkdownEngine();
+        try {
+            MarkdownReport preview = engine.preview();
+            System.out.print(preview.format(20));
+            if (preview.getChanges().isEmpty()) {
+                return;
+            }
+            System.out.print("Apply these " + preview.getChanges().size() + " price changes? (yes/no): ");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("yes")) {
+                System.out.println("No prices were changed.");
+                return;
+            }
+            MarkdownReport report = engine.apply();
+            System.out.printf("Applied %d price changes, skipped %d changed since the scan.%n",
+                    report.getApplied(), report.getConflicts());
+        } catch (SQLException e) {
+            System.out.println("A database error occurred while applying markdowns: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Dump a whole table to a CSV file for the auditors
+    private static void exportData(Scanner scanner) {
+        ExportTable[] tables = ExportTable.values();
+        System.out.println("Export which table?");
+        for (int i = 0; i < tables.length; i++) {
+            System.out.println((i + 1) + ". " + tables[i].getTable());
+        }
+        System.out.print("Choose an option: ");
+        int choice = scanner.nextInt();
+        scanner.nextLine(); // consume newline
+        if (choice < 1 || choice > tables.length) {
+            System.out.println("Invalid option.");
+            return;
+        }
+        ExportTable table = tables[choice - 1];
+
+        System.out.println("Columns: " + String.join(", ", table.getColumns()));
+        System.out.print("Columns to export, comma-separated (press Enter for all): ");
+        List<String> columns;
+        try {
+            columns = table.selectColumns(scanner.nextLine());
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        System.out.print("Compress with gzip? (yes/no): ");
+        boolean gzip = scanner.nextLine().trim().equalsIgnoreCase("yes");
+        String defaultFile = table.getTable() + "_" + LocalDate.now() + (gzip ? ".csv.gz" : ".csv");
+        System.out.print("File name (press Enter for " + defaultFile + "): ");
+        String fileName = scanner.nextLine().trim();
+
+        try {
+            ExportReport report = new DataExporter().exportCsv(table, columns,
+                    Paths.get(fileName.isEmpty() ? defaultFile : fileName), gzip);
+            System.out.printf("Exported %d rows to %s (%d bytes, %.0f rows/s).%n", report.getRows(),
+                    report.getFile().toAbsolutePath(), report.getFileBytes(), report.getRowsPerSecond());
+        } catch (SQLException e) {
+            System.out.println("A database error occurred during the export: " + e.getMessage());
+            e.printStackTrace();
+        } catch (IOException e) {
+            System.out.println("Couldn't write the export file: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // The buyers' workbook: stock by category, expiring items and open purchase orders
+    private static void writeInventoryReport(Scanner scanner) {
+        String defaultFile = "inventory_report_" + LocalDate.now() + ".xlsx";
+        System.out.print("File name (press Enter for " + defaultFile + "): ");
+        String fileName = scanner.nextLine().trim();
+        Path target = Paths.get(fileName.isEmpty() ? defaultFile : fileName);
+        try {
+            Map<String, Long> rows = new InventoryReportWriter().write(target);
+            System.out.println("Inventory report written to " + target.toAbsolutePath());
+            for (Map.Entry<String, Long> sheet : rows.entrySet()) {
+                System.out.printf("  %-25s %10d rows%n", sheet.getKey(), sheet.getValue());
+            }
+        } catch (SQLException e) {
+            System.out.println("A database error occurred while writing the report: " + e.getMessage());
+            e.printStackTrace();
+        } catch (IOException e) {
+            System.out.println("Couldn't write the report file: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Orders, units and lead time per day, week or month, read from the rollups
+    private static void viewPurchaseOrderTrends(Scanner scanner) {
+        System.out.println("Trend for:");
+        RollupDimension[] dimensions = RollupDimension.values();
+        for (int i = 0; i < dimensions.length; i++) {
+            System.out.println((i + 1) + ". " + dimensions[i].getLabel());
+        }
+        System.out.print("Choose an option: ");
+        int choice = scanner.nextInt();
+        scanner.nextLine(); // consume newline
+        if (choice < 1 || choice > dimensions.length) {
+            System.out.println("Invalid option.");
+            return;
+        }
+        RollupDimension dimension = dimensions[choice - 1];
+
+        int key = RollupDimension.CHAIN_KEY;
+        if (dimension == RollupDimension.PRODUCT) {
+            System.out.print("Enter productID: ");
+            key = scanner.nextInt();
+            scanner.nextLine(); // consume newline
+        } else if (dimension == RollupDimension.STORE) {
+            System.out.print("Enter store ID: ");
+            key = scanner.nextInt();
+            scanner.nextLine(); // consume newline
+        }
+
+        System.out.println("Group by:");
+        RollupGranularity[] granularities = RollupGranularity.values();
+        for (int i = 0; i < granularities.length; i++) {
+            System.out.println((i + 1) + ". " + granularities[i].getLabel());
+        }
+        System.out.print("Choose an option: ");
+        choice = scanner.nextInt();
+        scanner.nextLine(); // consume newline
+        if (choice < 1 || choice > granularities.length) {
+            System.out.println("Invalid option.");
+            return;
+        }
+        RollupGranularity granularity = granularities[choice - 1];
+
+        System.out.print("How many periods to show: ");
+        int periods = scanner.nextInt();
+        scanner.nextLine(); // consume newline
+        if (periods < 1) {
+            System.out.println("Enter at least one period.");
+            return;
+        }
+
+        try {
+            List<RollupBucket> trend = new PurchaseOrderAnalytics().lastBuckets(dimension, key, granularity,
+                    periods);
+            System.out.printf("%-12s %8s %10s %10s %14s%n", "Period", "Orders", "Units", "Delivered",
+                    "Avg lead days");
+            for (RollupBucket bucket : trend) {
+                double lead = bucket.getAverageLeadDays();
+                System.out.printf("%-12s %8d %10d %10d %14s%n", bucket.getBucketStart(), bucket.getOrders(),
+                        bucket.getUnits(), bucket.getDelivered(), lead < 0 ? "-" : String.format("%.1f", lead));
+            }
+        } catch (SQLException e) {
+            System.out.println("A database error occurred while reading purchase order trends: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Figures kept up to date by InventorySummary, so this never scans the catalog
+    // once the summary has loaded
+    private static void viewInventoryDashboard() {
+        InventorySummary summary = dashboardSummary();
+        if (summary == null) {
+            return;
+        }
+        System.out.println("Inventory Dashboard:");
+        System.out.println("Total units in stock: " + summary.getTotalUnits());
+        System.out.println("Products expiring within " + InventorySummaryReconciler.EXPIRING_DAYS + " days: "
+                + summary.getExpiringWithin(InventorySummaryReconciler.EXPIRING_DAYS));
+        System.out.println("Open purchase orders: " + summary.getOpenPurchaseOrders());
+        System.out.println("Units by category:");
+        for (Map.Entry<String, Long> category : summary.getUnitsByCategory().entrySet()) {
+            System.out.printf("  %-30s %10d%n", category.getKey(), category.getValue());
+        }
+        if (!summaryReconciler.getLastDrift().isEmpty()) {
+            System.out.println("Last reconciliation corrected: " + String.join("; ", summaryReconciler.getLastDrift()));
+        }
+    }
+
+    // Stock expiring in 0-3, 4-7, 8-14 and 15-30 days per category, from InventorySummary
+    private static void viewExpiryHistogram() {
+        InventorySummary summary = dashboardSummary();
+        if (summary == null) {
+            return;
+        }
+        ExpiryHistogram histogram = summary.getExpiryHistogram();
+        if (histogram.getCategories().isEmpty()) {
+            System.out.println("Nothing expires in the next " + ExpiryBucket.DAYS_15_30.getToDays() + " days.");
+            return;
+        }
+        System.out.print(histogram.format());
+    }
+
+    // The shared summary, or while it is still loading a one-off snapshot read
+    // with the products and purchase order queries running side by side; null
+    // if that failed
+    private static InventorySummary dashboardSummary() {
+        InventorySummary summary = InventorySummary.getInstance();
+        if (summary.isLoaded()) {
+            return summary;
+        }
+        System.out.println("The inventory dashboard is still loading; reading the figures directly...");
+        return awaitAsync(InventorySummary.snapshot(asyncDb), "reading the inventory");
+    }
 
+    // Wait for an asyncDb result; prints what went wrong and returns null on
+    // failure. A call past its deadline is cancelled, which can surface as the
+    // TimeoutException, a CancellationException or the driver's own
+    // "cancelled" error (SQLSTATE HY008), depending on where it was stopped.
+    private static <T> T awaitAsync(CompletableFuture<T> result, String action) {
+        try {
+            return result.join();
+        } catch (CancellationException | CompletionException e) {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof TimeoutException || cause instanceof CancellationException
+                    || (cause instanceof SQLException && "HY008".equals(((SQLException) cause).getSQLState()))) {
+                System.out.println("The database call was cancelled or timed out while " + action
+                        + ". Please try again later.");
+            } else {
+                System.out.println("A database error occurred while " + action + ": " + cause.getMessage());
+                cause.printStackTrace();
+            }
+            return null;
+        }
+    }
+
+    // Type-ahead product search over name, brand and manufacturer; each line
+    // typed runs a new search, a blank line goes back to the menu
+    private static void searchProducts(Scanner scanner) {
+        ProductSearchIndex index = ProductSearchIndex.shared();
+        if (!index.isLoaded()) {
+            System.out.println("The product search index is still loading. Please try again in a moment.");
+            return;
+        }
+        while (true) {
+            System.out.print("Search (blank to return): ");
+            String query = scanner.nextLine().trim();
+            if (query.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+            List<ProductSearchIndex.Match> matches = index.search(query, 10);
+            double millis = (System.nanoTime() - start) / 1_000_000.0;
+            if (matches.isEmpty()) {
+                System.out.println("No products match \"" + query + "\".");
+            } else {
+                System.out.printf("%-12s %-30s %-20s %-20s %n", "Product ID", "Name", "Brand", "Manufacturer");
+                for (ProductSearchIndex.Match match : matches) {
+                    System.out.printf("%-12d %-30s %-20s %-20s %n", match.getProductId(), match.getProductName(),
+                            match.getBrand(), match.getManufacturer());
                 }
             }
+            System.out.printf("%d match(es) in %.3f ms%n", matches.size(), millis);
         }
     }
 
@@ -445,18 +919,11 @@ public class LoginSystem {
                 System.out.println("No products available.");
             } else {
                 // Print table header with Product ID
-                System.out.printf("%-20s %-20s %-20s %-20s %-20s %n", "Product ID", "Name", "Quantity", "Price",
-                        "category");
+                System.out.print(ListingFormat.PRODUCT_HEADER);
                 System.out.println(
                         "------------------------------------------------------------------------------------------------");
                 for (Product product : products) {
-                    // Assuming Product class has getters for the necessary fields
-                    System.out.printf("%-20d %-20s %-20d %-20.2f %-20s %n",
-                            product.getProductID(),
-                            product.getProductName(),
-                            product.getQuantity(),
-                            product.getPrice(),
-                            product.getCategory().toString()); // Assuming getExpiryDate() returns a LocalDate
+                    System.out.print(ListingFormat.productRow(product));
                 }
             }
         } catch (SQLException e) {
@@ -504,7 +971,10 @@ public class LoginSystem {
             System.out.println("2. Add New Purchase Order");
             System.out.println("3. Update Existing Purchase Order");
             System.out.println("4. Delete Purchase Order");
-            System.out.println("5. Return to Main Menu");
+            System.out.println("5. Run Automatic Reorder Now");
+            System.out.println("6. Mark Purchase Order Delivered");
+            System.out.println("7. Recompute Reorder Points Now");
+            System.out.println("8. Return to Main Menu");
 
             System.out.print("Choose an option: ");
             int choice = scanner.nextInt();
@@ -524,6 +994,15 @@ public class LoginSystem {
                     deletePurchaseOrder(scanner);
                     break;
                 case 5:
+                    runAutomaticReorder();
+                    break;
+                case 6:
+                    markPurchaseOrderDelivered(scanner);
+                    break;
+                case 7:
+                    recomputeReorderPoints();
+                    break;
+                case 8:
                     continueManaging = false;
                     break;
                 default:
@@ -541,14 +1020,7 @@ public class LoginSystem {
             } else {
                 System.out.println("Purchase Orders List:");
                 for (PurchaseOrder order : orders) {
-                    // Assuming you have getters like getPoNumber, getProductId, etc.
-                    System.out.printf(
-                            "PO Number: %d, Product ID: %d, Quantity: %d, Order Date: %s, Tracking Number: %s%n",
-                            order.getPoNumber(),
-                            order.getProductId(),
-                            order.getQuantity(),
-                            order.getOrderDate().toString(),
-                            order.getTrackingNumber());
+                    System.out.print(ListingFormat.purchaseOrderRow(order));
                 }
             }
         } catch (SQLException e) {
@@ -568,33 +1040,24 @@ public class LoginSystem {
 
             if (product != null) {
                 // If the product exists, create a new PurchaseOrder object
-                PurchaseOrder newPurchaseOrder = new PurchaseOrder(productID, null, null);
+                PurchaseOrder newPurchaseOrder = new PurchaseOrder(0, null, null);
 
                 // Set the productID
                 newPurchaseOrder.setProductID(productID);
 
-                // Generate random PO and Tracking numbers
-                Random rand = new Random();
-                int poNumber = rand.nextInt(90000) + 10000; // Random 5-digit PO number
-                String trackingNumber = String.valueOf(rand.nextInt(900000000) + 1000000000); // Random 10-digit
-                                                                                              // tracking number
-
-                // Set PO and Tracking numbers
-                newPurchaseOrder.setPoNumber(poNumber);
-                newPurchaseOrder.setTrackingNumber(trackingNumber);
-
                 // Set the quantity and order date as needed
                 int quantity = 1; // You can change this to the desired quantity
                 LocalDate orderDate = LocalDate.now(); // Set the order date to the current date
 
-                // Add the purchase order to the database
+                // Add the purchase order to the database; the PO and tracking numbers are
+                // allocated by the database manager and set on newPurchaseOrder
                 boolean isAdded = dbManager.addPurchaseOrder(newPurchaseOrder, quantity, orderDate);
 
                 if (isAdded) {
                     System.out.println("Purchase order added successfully.");
                     // Display the generated PO and Tracking numbers
-                    System.out.println("PO Number: " + poNumber);
-                    System.out.println("Tracking Number: " + trackingNumber);
+                    System.out.println("PO Number: " + newPurchaseOrder.getPoNumber());
+                    System.out.println("Tracking Number: " + newPurchaseOrder.getTrackingNumber());
                 } else {
                     System.out.println("Failed to add purchase order.");
                 }
@@ -660,6 +1123,61 @@ public class LoginSystem {
         }
     }
 
+    private static void markPurchaseOrderDelivered(Scanner scanner) {
+        System.out.print("Enter order ID that was delivered: ");
+        int orderId = scanner.nextInt();
+        scanner.nextLine(); // consume newline
+
+        System.out.print("Enter Delivery Date (YYYY-MM-DD) or press Enter for today: ");
+        String dateInput = scanner.nextLine().trim();
+        LocalDate deliveryDate;
+        try {
+            deliveryDate = dateInput.isEmpty() ? LocalDate.now() : LocalDate.parse(dateInput);
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid date format. Please use YYYY-MM-DD.");
+            return;
+        }
+
+        try (DatabaseManager dbManager = new DatabaseManager()) {
+            boolean isDelivered = dbManager.markPurchaseOrderDelivered(orderId, deliveryDate);
+            if (isDelivered) {
+                System.out.println("Purchase order marked as delivered.");
+            } else {
+                System.out.println("Purchase order not found.");
+            }
+        } catch (SQLException e) {
+            System.err.println("Error updating purchase order: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void runAutomaticReorder() {
+        try {
+            ReorderReport report = reorderEngine.runOnce();
+            System.out.println("Low-stock products found: " + report.getLowStockProducts());
+            System.out.println("Purchase orders created: " + report.getPurchaseOrdersCreated()
+                    + " (" + report.getUnitsOrdered() + " units)");
+            System.out.printf("Completed in %d ms, %.0f POs/second%n", report.getElapsedNanos() / 1_000_000,
+                    report.getPurchaseOrdersPerSecond());
+        } catch (SQLException e) {
+            System.err.println("Error running automatic reorder: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void recomputeReorderPoints() {
+        try {
+            ReorderPointReport report = reorderPointPlanner.runOnce();
+            System.out.println("Reorder points set: " + report.getProducts() + " (" + report.getWithDemand()
+                    + " from demand, " + report.getPinned() + " pinned by hand)");
+            System.out.printf("Completed in %d ms, %.0f products/second%n", report.getElapsedNanos() / 1_000_000,
+                    report.getProductsPerSecond());
+        } catch (SQLException e) {
+            System.err.println("Error recomputing reorder points: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
     private static void grantManagerRole(Scanner scanner) {
         // Check if the current user is an admin before proceeding
         if (currentUser == null || currentUser.getRole() != UserRole.ADMIN) {
@@ -692,6 +1210,7 @@ public class LoginSystem {
         System.out.println("View Stores:");
         System.out.println("1. View All Stores");
         System.out.println("2. Edit Stores");
+        System.out.println("3. View Chain Inventory Totals");
 
         System.out.print("Choose an option: ");
         int choice = scanner.nextInt();
@@ -708,6 +1227,13 @@ public class LoginSystem {
                     System.out.println("Access denied. Only admins can edit stores.");
                 }
                 break;
+            case 3:
+                if (currentUser.getRole() == UserRole.ADMIN || currentUser.getRole() == UserRole.MANAGER) {
+                    viewChainInventoryTotals();
+                } else {
+                    System.out.println("Access denied. Only admins and managers can view chain totals.");
+                }
+                break;
             default:
                 System.out.println("Invalid option. Please try again.");
                 break;
@@ -724,6 +1250,24 @@ public class LoginSystem {
         }
     }
 
+    // Totals are computed per store in parallel and then combined
+    private static void viewChainInventoryTotals() {
+        try (ChainInventoryAggregator aggregator = new ChainInventoryAggregator(4, 7)) {
+            ChainInventoryAggregator.ChainTotals totals = aggregator.aggregate();
+            System.out.printf("%-10s %-15s %-15s %-20s %n", "Store ID", "Units", "Value", "Expiring (7 days)");
+            for (StoreInventoryTotals store : totals.getStores()) {
+                System.out.printf("%-10d %-15d %-15.2f %-20d %n", store.getStoreId(), store.getUnits(),
+                        store.getValue(), store.getExpiringUnits());
+            }
+            StoreInventoryTotals chain = totals.getChain();
+            System.out.printf("%-10s %-15d %-15.2f %-20d %n", "Chain", chain.getUnits(), chain.getValue(),
+                    chain.getExpiringUnits());
+        } catch (SQLException e) {
+            System.err.println("Error computing chain inventory totals: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
     private static void editStores(Scanner scanner) {
         boolean keepEditing = true;
         while (keepEditing) {
@@ -798,41 +1342,55 @@ public class LoginSystem {
         }
     }
 
+    // Shows the store and saves against the version that was shown, so an edit
+    // made by someone else in between is reported instead of overwritten
     private static void updateExistingStore(Scanner scanner) {
         System.out.print("Enter store ID to update: ");
         int storeId = scanner.nextInt();
         scanner.nextLine(); // consume newline
 
-        System.out.print("Enter new store name or press Enter to skip: ");
-        String storeName = scanner.nextLine();
-
-        System.out.print("Enter new address or press Enter to skip: ");
-        String address = scanner.nextLine();
-
-        // Assuming the updateStore method also requires city, state, zip, phone, and
-        // storeType
-        System.out.print("Enter new city or press Enter to skip: ");
-        String city = scanner.nextLine();
-
-        System.out.print("Enter new state or press Enter to skip: ");
-        String state = scanner.nextLine();
-
-        System.out.print("Enter new zip code or press Enter to skip: ");
-        int zip = scanner.nextInt();
-        scanner.nextLine(); // consume newline
-
-        System.out.print("Enter new phone number or press Enter to skip: ");
-        String phone = scanner.nextLine();
-
-        System.out.print("Enter new store type (retail/warehouse) or press Enter to skip: ");
-        String storeType = scanner.nextLine();
+        // The store is read and written under separate connections, not one held
+        // across the prompts; the version check catches a change in between
+        try {
+            Store store;
+            try (DatabaseManager dbManager = new DatabaseManager()) {
+                store = dbManager.getStoreByID(storeId);
+            }
+            if (store == null) {
+                System.out.println("Store not found for the given store ID.");
+                return;
+            }
+            System.out.println("Current details: " + store.getStoreName() + ", " + store.getAddress() + ", "
+                    + store.getCity() + ", " + store.getState() + " " + store.getZip() + ", " + store.getPhone()
+                    + ", " + store.getStoreType());
+
+            String storeName = promptOrKeep(scanner, "Enter new store name or press Enter to skip: ",
+                    store.getStoreName());
+            String address = promptOrKeep(scanner, "Enter new address or press Enter to skip: ", store.getAddress());
+            String city = promptOrKeep(scanner, "Enter new city or press Enter to skip: ", store.getCity());
+            String state = promptOrKeep(scanner, "Enter new state or press Enter to skip: ", store.getState());
+            String zipInput = promptOrKeep(scanner, "Enter new zip code or press Enter to skip: ",
+                    String.valueOf(store.getZip()));
+            String phone = promptOrKeep(scanner, "Enter new phone number or press Enter to skip: ", store.getPhone());
+            String storeType = promptOrKeep(scanner,
+                    "Enter new store type (retail/warehouse) or press Enter to skip: ", store.getStoreType());
+
+            int zip;
+            try {
+                zip = Integer.parseInt(zipInput);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid zip code.");
+                return;
+            }
 
-        try (DatabaseManager dbManager = new DatabaseManager()) {
-            boolean isUpdated = dbManager.updateStore(storeId, storeName, address, city, state, zip, phone, storeType);
-            if (isUpdated) {
-                System.out.println("Store updated successfully.");
-            } else {
-                System.out.println("Failed to update the store.");
+            try (DatabaseManager dbManager = new DatabaseManager()) {
+                if (dbManager.updateStore(storeId, storeName, address, city, state, zip, phone, storeType,
+                        store.getVersion())) {
+                    System.out.println("Store updated successfully.");
+                } else {
+                    System.out.println("Another user changed or removed this store since it was shown; nothing "
+                            + "was saved. Please reload it and try again.");
+                }
             }
         } catch (Exception e) {
             System.err.println("Error updating store: " + e.getMessage());
@@ -840,6 +1398,13 @@ public class LoginSystem {
         }
     }
 
+    // Read a line, keeping the current value when the user just presses Enter
+    private static String promptOrKeep(Scanner scanner, String prompt, String current) {
+        System.out.print(prompt);
+        String input = scanner.nextLine().trim();
+        return input.isEmpty() ? current : input;
+    }
+
     private static void deleteStore(Scanner scanner) {
         System.out.print("Enter store ID to delete: ");
         int storeId = scanner.nextInt();
@@ -925,7 +1490,8 @@ public class LoginSystem {
         System.out.println("Update Inventory:");
         System.out.println("1. Update Product Quantity");
         System.out.println("2. Add New Product");
-        System.out.println("3. Return to User Menu");
+        System.out.println("3. Update Product Expiration Date");
+        System.out.println("4. Return to User Menu");
 
         System.out.print("Choose an option: ");
         int choice = scanner.nextInt();
@@ -946,6 +1512,14 @@ public class LoginSystem {
                 }
                 break;
             case 3:
+                if (currentUser.hasRole("admin") || currentUser.hasRole("manager")) {
+                    updateProductExpiration(scanner);
+                } else {
+                    System.out.println("This function is for Admin and Manager users only.");
+                    updateInventory(scanner);
+                }
+                break;
+            case 4:
                 // Return to user menu
                 break;
             default:
@@ -956,6 +1530,33 @@ public class LoginSystem {
     }
 
     private static void updateProductQuantity(Scanner scanner) {
+        new ProductService(DatabaseManager::new, scanner).updateProductQuantity();
+    }
+
+    private static void updateProductExpiration(Scanner scanner) {
+        System.out.print("Enter productID: ");
+        int productId = promptForInt(scanner, "Please enter a valid productID.");
+        scanner.nextLine(); // consume newline
+        System.out.print("Enter new expiration date (YYYY-MM-DD) or press Enter if none: ");
+        String dateInput = scanner.nextLine().trim();
+        LocalDate expirationDate;
+        try {
+            expirationDate = dateInput.isEmpty() ? null : LocalDate.parse(dateInput);
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid date format. Please use YYYY-MM-DD.");
+            return;
+        }
+
+        try (DatabaseManager dbManager = new DatabaseManager()) {
+            if (dbManager.updateProductExpiration(productId, expirationDate)) {
+                System.out.println("Expiration date updated.");
+            } else {
+                System.out.println("Product not found for the given productID.");
+            }
+        } catch (SQLException e) {
+            System.err.println("Error updating expiration date: " + e.getMessage());
+            e.printStackTrace();
+        }
     }
 
     // Method to add products
@@ -992,43 +1593,24 @@ public class LoginSystem {
         double price = promptForDouble(scanner, "Invalid input for price.");
         scanner.nextLine(); // Consume the newline after double input
 
+        System.out.print("Enter store ID: ");
+        int storeId = promptForInt(scanner, "Invalid input for store ID.");
+        scanner.nextLine(); // Consume the newline after integer input
+
         Product product = new Product(productName, expirationDate, markdownDate, quantity, manufacturer, brand, price,
                 category);
+        product.setStoreId(storeId);
 
         // Insert the product into the database
         try (DatabaseManager dbManager = new DatabaseManager()) {
-            try (Connection connection = dbManager.getConnection()) {
-                connection.setAutoCommit(false);
-
-                String insertSQL = "INSERT INTO product (productName, expirationDate, markdownDate, quantity, manufacturer, brand, price, category) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-                try (PreparedStatement stmt = connection.prepareStatement(insertSQL, Statement.RETURN_GENERATED_KEYS)) {
-                    stmt.setString(1, product.getProductName());
-                    stmt.setDate(2, expirationDate != null ? Date.valueOf(expirationDate) : null);
-                    stmt.setDate(3, markdownDate != null ? Date.valueOf(markdownDate) : null);
-                    stmt.setInt(4, product.getQuantity());
-                    stmt.setString(5, product.getManufacturer());
-                    stmt.setString(6, product.getBrand());
-                    stmt.setDouble(7, product.getPrice());
-                    stmt.setString(8, product.getCategory());
-
-                    int affectedRows = stmt.executeUpdate();
-                    if (affectedRows > 0) {
-                        try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                            if (generatedKeys.next()) {
-                                product.setProductID(generatedKeys.getInt(1));
-                                System.out.println("Product added successfully with ID: " + product.getProductID());
-                            }
-                        }
-                    }
-                    connection.commit(); // Commit the transaction
-                } catch (SQLException e) {
-                    connection.rollback(); // Rollback the transaction in case of an error
-                    System.err.println("SQL error: " + e.getMessage());
-                    e.printStackTrace();
-                }
+            if (dbManager.getStoreByID(storeId) == null) {
+                System.out.println("No store with ID " + storeId + ".");
+                return;
             }
+            int productId = dbManager.insertProduct(product);
+            System.out.println("Product added successfully with ID: " + productId);
         } catch (SQLException e) {
-            System.err.println("Database connection error: " + e.getMessage());
+            System.err.println("SQL error: " + e.getMessage());
             e.printStackTrace();
         }
     }
@@ -1072,10 +1654,9 @@ public class LoginSystem {
     }
 
     private static void checkExpiredItems() throws SQLException {
-        DatabaseManager dbManager = null;
-        try {
-            dbManager = new DatabaseManager();
-            List<Product> expiredProducts = dbManager.getExpiredProducts();
+        try (DatabaseManager dbManager = new DatabaseManager()) {
+            ExpiryChecker expiryChecker = new ExpiryChecker(dbManager, new NotificationService(dbManager));
+            List<Product> expiredProducts = expiryChecker.checkForExpiredProducts();
 
             if (expiredProducts.isEmpty()) {
                 System.out.println("No expired products.");
@@ -1088,22 +1669,11 @@ public class LoginSystem {
                             product.getExpirationDate());
                 }
             }
-        } finally {
-            if (dbManager != null) {
-                try {
-                    dbManager.close();
-                } catch (SQLException e) {
-                    System.out.println("Failed to close database connection: " + e.getMessage());
-                    e.printStackTrace();
-                }
-            }
         }
     }
 
     public static void displayMarkdownProducts() throws SQLException {
-        DatabaseManager dbManager = null;
-        try {
-            dbManager = new DatabaseManager();
+        try (DatabaseManager dbManager = new DatabaseManager()) {
             List<Product> markdownProducts = dbManager.getMarkdownProducts(); // Corrected this line
 
             if (markdownProducts == null || markdownProducts.isEmpty()) {
@@ -1119,15 +1689,6 @@ public class LoginSystem {
                             product.getMarkdownDate());
                 }
             }
-        } finally {
-            if (dbManager != null) {
-                try {
-                    dbManager.close();
-                } catch (SQLException e) {
-                    System.out.println("Failed to close database connection: " + e.getMessage());
-                    e.printStackTrace();
-                }
-            }
         }
     }
 
@@ -1,38 +1,75 @@
 import java.sql.SQLException;
 import java.util.InputMismatchException;
 import java.util.Scanner;
+import java.util.function.Supplier;
 
 import databasemanager.DatabaseManager;
+import databasemanager.InsufficientStockException;
+import databasemanager.OptimisticLockException;
+import product.java.Product;
 
 public class ProductService {
 
-    private DatabaseManager dbManager;
+    private Supplier<DatabaseManager> managers;
     private Scanner scanner;
 
-    public ProductService(DatabaseManager dbManager, Scanner scanner) {
-        this.dbManager = dbManager;
+    // A manager is taken from managers for each database step and closed
+    // straight after, so no connection is held while the clerk types
+    public ProductService(Supplier<DatabaseManager> managers, Scanner scanner) {
+        this.managers = managers;
         this.scanner = scanner;
     }
 
+    // Shows the product first and writes back against the version that was
+    // shown, so a change another clerk made in between is reported instead of
+    // overwritten. "+N" / "-N" records a stock movement as a delta, which never
+    // conflicts with another clerk's movement.
     public void updateProductQuantity() {
         try {
             System.out.println("Enter the product ID of the item you wish to update:");
             int productId = scanner.nextInt();
             scanner.nextLine(); // Consume the newline left-over
 
-            System.out.println("Enter the new quantity:");
-            int newQuantity = scanner.nextInt();
-            scanner.nextLine(); // Consume the newline left-over
+            Product product;
+            try (DatabaseManager dbManager = managers.get()) {
+                product = dbManager.getProductByID(productId);
+            }
+            if (product == null) {
+                System.out.println("Product not found for the given product ID.");
+                return;
+            }
+            System.out.println(product.getProductName() + ": " + product.getQuantity() + " in stock");
 
-            boolean success = dbManager.updateProductQuantity(productId, newQuantity);
-            if (success) {
-                System.out.println("Quantity updated successfully.");
-            } else {
-                System.out.println("Failed to update quantity. Please check the product ID.");
+            System.out.println("Enter the new quantity, or +N / -N to receive or remove stock:");
+            String input = scanner.nextLine().trim();
+            try (DatabaseManager dbManager = managers.get()) {
+                boolean success;
+                if (input.startsWith("+") || input.startsWith("-")) {
+                    success = dbManager.adjustProductQuantity(productId, Integer.parseInt(input));
+                } else {
+                    success = dbManager.updateProductQuantity(product, Integer.parseInt(input));
+                }
+                if (success) {
+                    System.out.println("Quantity updated successfully.");
+                } else {
+                    Product current = dbManager.getProductByID(productId);
+                    if (current == null) {
+                        System.out.println("The product was removed by another user; nothing was saved.");
+                    } else {
+                        System.out.println("Another user changed this product (now " + current.getQuantity()
+                                + " in stock); nothing was saved. Please try again.");
+                    }
+                }
             }
         } catch (InputMismatchException e) {
             System.out.println("Invalid input. Please enter numeric values.");
             scanner.nextLine(); // Consume the invalid input
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid input. Please enter numeric values.");
+        } catch (InsufficientStockException e) {
+            System.out.println("Only " + e.getInStock() + " in stock; nothing was removed.");
+        } catch (OptimisticLockException e) {
+            System.out.println("The product is being updated by other users; please try again.");
         } catch (SQLException e) {
             System.out.println("A database error occurred: " + e.getMessage());
             e.printStackTrace();
@@ -0,0 +1,193 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import databasemanager.DatabaseManager;
+import databasemanager.ListingFormat;
+import databasemanager.PurchaseOrder;
+import databasemanager.User;
+import product.java.Product;
+
+// Allocation-budget check for the listing paths. Seeds an embedded database
+// with 100k products, users and purchase orders, then measures how many
+// bytes each listing call allocates per row using the per-thread allocation
+// counter in com.sun.management.ThreadMXBean, both for the fetch alone and
+// for the fetch plus the per-row ListingFormat line the listing screens print. Exits with status 1 if any
+// path is over its budget, so a CI step can fail the build on it:
+//
+//   java -cp out:h2.jar -Dsamsmart.db.url="jdbc:h2:mem:alloc;MODE=MySQL;DB_CLOSE_DELAY=-1" \
+//        benchmark.AllocationBudgetCheck [budget-file] [--record]
+//
+// Budgets are bytes per row, read from allocation_budgets.properties by
+// default. --record rewrites the file from this run's measurements plus
+// 20% headroom instead of checking. Only the calling thread is counted,
+// which covers the JDBC drivers in use since they decode on the caller.
+public class AllocationBudgetCheck {
+
+    private static final int ROWS = 100_000;
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+    private static final double RECORD_HEADROOM = 1.2;
+
+    // Keeps the rendered rows from being optimized away
+    private static volatile long renderedChars;
+
+    @FunctionalInterface
+    private interface Listing {
+        Collection<?> list(DatabaseManager dbManager) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path budgetFile = Paths.get("allocation_budgets.properties");
+        boolean record = false;
+        for (String arg : args) {
+            if (arg.equals("--record")) {
+                record = true;
+            } else {
+                budgetFile = Paths.get(arg);
+            }
+        }
+        if (DatabaseManager.DB_URL.startsWith("jdbc:mysql:")) {
+            System.err.println("Refusing to seed " + DatabaseManager.DB_URL
+                    + "; set -Dsamsmart.db.url to an embedded database.");
+            System.exit(2);
+        }
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        if (threads == null) {
+            System.err.println("This JVM doesn't report per-thread allocation; can't check budgets.");
+            System.exit(2);
+        }
+
+        new BenchmarkDatabase(ROWS, ROWS, ROWS, BenchmarkDatabase.DEFAULT_STORES).createAndSeed();
+
+        Map<String, Listing> listings = new LinkedHashMap<>();
+        listings.put("getAllProducts", DatabaseManager::getAllProducts);
+        listings.put("getAllUsers", DatabaseManager::getAllUsers);
+        listings.put("getAllPurchaseOrders", DatabaseManager::getAllPurchaseOrders);
+        listings.put("viewProducts", dbManager -> {
+            List<Product> products = dbManager.getAllProducts();
+            long chars = 0;
+            for (Product product : products) {
+                chars += ListingFormat.productRow(product).length();
+            }
+            renderedChars = chars;
+            return products;
+        });
+        listings.put("viewAllUsers", dbManager -> {
+            List<User> users = dbManager.getAllUsers();
+            long chars = 0;
+            for (User user : users) {
+                chars += ListingFormat.userRow(user).length();
+            }
+            renderedChars = chars;
+            return users;
+        });
+        listings.put("viewPurchaseOrders", dbManager -> {
+            List<PurchaseOrder> orders = dbManager.getAllPurchaseOrders();
+            long chars = 0;
+            for (PurchaseOrder order : orders) {
+                chars += ListingFormat.purchaseOrderRow(order).length();
+            }
+            renderedChars = chars;
+            return orders;
+        });
+
+        Map<String, Long> measured = new LinkedHashMap<>();
+        try (DatabaseManager dbManager = new DatabaseManager()) {
+            for (Map.Entry<String, Listing> listing : listings.entrySet()) {
+                measured.put(listing.getKey(), bytesPerRow(threads, dbManager, listing.getValue()));
+            }
+        }
+
+        if (record) {
+            writeBudgets(budgetFile, measured);
+            System.out.println("Budgets recorded to " + budgetFile.toAbsolutePath());
+            return;
+        }
+
+        Properties budgets = readBudgets(budgetFile);
+        List<String> failures = new ArrayList<>();
+        System.out.printf("%-24s %14s %14s%n", "Listing", "bytes/row", "budget");
+        for (Map.Entry<String, Long> entry : measured.entrySet()) {
+            String budgetValue = budgets.getProperty(entry.getKey() + ".bytesPerRow");
+            long budget = budgetValue != null ? Long.parseLong(budgetValue.trim()) : -1;
+            // A path with no budget fails too, so a new one can't go unchecked
+            boolean over = budget < 0 || entry.getValue() > budget;
+            System.out.printf("%-24s %14d %14s%s%n", entry.getKey(), entry.getValue(),
+                    budget >= 0 ? String.valueOf(budget) : "none", over ? "  OVER BUDGET" : "");
+            if (over) {
+                failures.add(entry.getKey());
+            }
+        }
+        if (!failures.isEmpty()) {
+            System.err.println("Allocation budget exceeded (or missing) for: " + String.join(", ", failures));
+            System.exit(1);
+        }
+        System.out.println("All listing paths within their allocation budgets.");
+    }
+
+    // Smallest allocation seen over the measured runs, per row. The minimum
+    // filters out one-off costs such as class loading or a resized buffer.
+    private static long bytesPerRow(com.sun.management.ThreadMXBean threads, DatabaseManager dbManager,
+            Listing listing) throws Exception {
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            listing.list(dbManager);
+        }
+        long best = Long.MAX_VALUE;
+        int rows = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            Collection<?> result = listing.list(dbManager);
+            long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+            rows = result.size();
+            best = Math.min(best, allocated);
+        }
+        return best / Math.max(1, rows);
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    private static Properties readBudgets(Path budgetFile) throws IOException {
+        Properties budgets = new Properties();
+        try (InputStream in = Files.newInputStream(budgetFile)) {
+            budgets.load(in);
+        }
+        return budgets;
+    }
+
+    // Sorted, with no timestamp, so re-recording gives a readable diff
+    private static void writeBudgets(Path budgetFile, Map<String, Long> measured) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# Bytes allocated per row by each listing path; checked by benchmark.AllocationBudgetCheck.");
+        lines.add("# Recorded with --record against the embedded database: the measured figure");
+        lines.add("# plus " + Math.round((RECORD_HEADROOM - 1) * 100) + "% headroom. Re-record after a deliberate change.");
+        for (Map.Entry<String, Long> entry : new TreeMap<>(measured).entrySet()) {
+            lines.add(entry.getKey() + ".bytesPerRow=" + (long) Math.ceil(entry.getValue() * RECORD_HEADROOM));
+        }
+        Files.write(budgetFile, lines);
+    }
+}
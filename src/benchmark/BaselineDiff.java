@@ -0,0 +1,44 @@
+package benchmark;
+
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Compares two benchmark reports and exits with status 1 if any benchmark's
+// throughput dropped by more than the allowed percentage (default 10%):
+//
+//   java benchmark.BaselineDiff baseline.txt bench_output.txt [maxRegressionPercent]
+public class BaselineDiff {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineDiff <baseline> <current> [maxRegressionPercent]");
+            System.exit(2);
+        }
+        double maxRegression = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        Map<String, BenchmarkResult> baseline = new HashMap<>();
+        for (BenchmarkResult result : DatabaseManagerBenchmarks.readReport(Paths.get(args[0]))) {
+            baseline.put(result.getName(), result);
+        }
+        List<BenchmarkResult> current = DatabaseManagerBenchmarks.readReport(Paths.get(args[1]));
+
+        boolean regressed = false;
+        System.out.printf("%-40s %14s %14s %9s%n", "Benchmark", "Baseline ops/s", "Current ops/s", "Change");
+        for (BenchmarkResult result : current) {
+            BenchmarkResult before = baseline.get(result.getName());
+            if (before == null) {
+                System.out.printf("%-40s %14s %14.1f %9s%n", result.getName(), "-", result.getOpsPerSecond(), "new");
+                continue;
+            }
+            double change = (result.getOpsPerSecond() - before.getOpsPerSecond()) / before.getOpsPerSecond() * 100;
+            boolean isRegression = change < -maxRegression;
+            regressed |= isRegression;
+            System.out.println(String.format(Locale.ROOT, "%-40s %14.1f %14.1f %+8.1f%%%s", result.getName(),
+                    before.getOpsPerSecond(), result.getOpsPerSecond(), change, isRegression ? "  REGRESSION" : ""));
+        }
+        System.exit(regressed ? 1 : 0);
+    }
+}
@@ -0,0 +1,192 @@
+package benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Random;
+
+import databasemanager.DatabaseManager;
+import databasemanager.MigrationRunner;
+
+// Migrates the configured database to the current schema and seeds it
+// with store-sized volumes. Meant for an embedded stand-in such as
+// -Dsamsmart.db.url=jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1
+// (the H2 jar on the classpath), never for the production database.
+public class BenchmarkDatabase {
+    public static final int DEFAULT_PRODUCTS = 100_000;
+    public static final int DEFAULT_USERS = 10_000;
+    public static final int DEFAULT_PURCHASE_ORDERS = 1_000_000;
+    public static final int DEFAULT_STORES = 20;
+
+    private static final String[] CATEGORIES = { "Grocery", "Dairy", "Produce", "Bakery", "Frozen", "Household",
+            "Health", "Beauty", "Electronics", "Apparel" };
+    private static final int BATCH_SIZE = 5_000;
+
+    private final int products;
+    private final int users;
+    private final int purchaseOrders;
+    private final int stores;
+
+    public BenchmarkDatabase(int products, int users, int purchaseOrders, int stores) {
+        this.products = products;
+        this.users = users;
+        this.purchaseOrders = purchaseOrders;
+        this.stores = stores;
+    }
+
+    public static BenchmarkDatabase withDefaults() {
+        return new BenchmarkDatabase(DEFAULT_PRODUCTS, DEFAULT_USERS, DEFAULT_PURCHASE_ORDERS, DEFAULT_STORES);
+    }
+
+    public int getProducts() {
+        return products;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    // Email and password of seeded user i, for login benchmarks
+    public static String userEmail(int i) {
+        return "clerk" + i + "@samsmart.test";
+    }
+
+    public static String userPassword(int i) {
+        return String.valueOf(5550000000L + i);
+    }
+
+    // Create the tables and fill them; a fixed seed keeps runs comparable
+    public void createAndSeed() throws SQLException {
+        Random random = new Random(42);
+        try (DatabaseManager dbManager = new DatabaseManager()) {
+            Connection connection = dbManager.getConnection();
+            new MigrationRunner(connection).migrate();
+            connection.setAutoCommit(false);
+            try {
+                seedStores(connection);
+                seedUsers(connection);
+                seedProducts(connection, random);
+                registerProductIds(connection);
+                seedPurchaseOrders(connection, random);
+                seedSequences(connection);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void seedStores(Connection connection) throws SQLException {
+        String sql = "INSERT INTO stores (store_id, store_name, address, city, state, zip, phone, store_type, opening_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int i = 1; i <= stores; i++) {
+                stmt.setInt(1, i);
+                stmt.setString(2, "Store " + i);
+                stmt.setString(3, i + " Main St");
+                stmt.setString(4, "City " + i);
+                stmt.setString(5, "TX");
+                stmt.setInt(6, 75000 + i);
+                stmt.setString(7, "555000" + (1000 + i));
+                stmt.setString(8, i % 5 == 0 ? "warehouse" : "retail");
+                stmt.setDate(9, java.sql.Date.valueOf(LocalDate.of(2010, 1, 1).plusDays(i * 30L)));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void seedUsers(Connection connection) throws SQLException {
+        String sql = "INSERT INTO users (first_name, last_name, phone_number, email, password, role) VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < users; i++) {
+                stmt.setString(1, "First" + i);
+                stmt.setString(2, "Last" + i);
+                stmt.setString(3, userPassword(i));
+                stmt.setString(4, userEmail(i));
+                stmt.setString(5, userPassword(i));
+                stmt.setString(6, i % 100 == 0 ? "MANAGER" : "EMPLOYEE");
+                stmt.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // Expiration dates spread from 60 days ago to 300 days ahead, so the
+    // expired and markdown queries return a realistic slice of the catalog
+    private void seedProducts(Connection connection, Random random) throws SQLException {
+        String sql = "INSERT INTO product (productName, description, expirationDate, markdownDate, quantity, manufacturer, brand, price, category, total, date_added, store_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        LocalDate today = LocalDate.now();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < products; i++) {
+                LocalDate expiration = today.plusDays(random.nextInt(360) - 60);
+                int quantity = random.nextInt(200);
+                double price = 0.5 + random.nextInt(10_000) / 100.0;
+                stmt.setString(1, "Product " + i);
+                stmt.setString(2, "Seeded product " + i);
+                stmt.setDate(3, java.sql.Date.valueOf(expiration));
+                stmt.setDate(4, java.sql.Date.valueOf(expiration.minusDays(7)));
+                stmt.setInt(5, quantity);
+                stmt.setString(6, "Manufacturer " + (i % 500));
+                stmt.setString(7, "Brand " + (i % 2_000));
+                stmt.setDouble(8, price);
+                stmt.setString(9, CATEGORIES[i % CATEGORIES.length]);
+                stmt.setDouble(10, quantity * price);
+                stmt.setDate(11, java.sql.Date.valueOf(today.minusDays(random.nextInt(365))));
+                stmt.setInt(12, 1 + (i % stores));
+                stmt.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // Seeded rows bypass insertProduct, so register their ids in one statement
+    private void registerProductIds(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection
+                .prepareStatement("INSERT INTO product_ids (productID) SELECT productID FROM product")) {
+            stmt.executeUpdate();
+        }
+    }
+
+    private void seedPurchaseOrders(Connection connection, Random random) throws SQLException {
+        String sql = "INSERT INTO purchase_orders (po_number, productID, quantity, order_date, deliverydate, tracking_number) VALUES (?, ?, ?, ?, ?, ?)";
+        LocalDate today = LocalDate.now();
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < purchaseOrders; i++) {
+                LocalDate orderDate = today.minusDays(random.nextInt(730));
+                stmt.setInt(1, 10_000 + i);
+                stmt.setInt(2, 1 + random.nextInt(products));
+                stmt.setInt(3, 1 + random.nextInt(100));
+                stmt.setDate(4, java.sql.Date.valueOf(orderDate));
+                stmt.setDate(5, java.sql.Date.valueOf(orderDate.plusDays(2 + random.nextInt(12))));
+                stmt.setString(6, "SEED" + i); // Can't clash with generated tracking numbers
+                stmt.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // Start the PO number allocator above every seeded PO number; the rows
+    // come from the id sequences migration, and the seeded tracking numbers
+    // can't clash with generated ones, so that sequence keeps its migrated start
+    private void seedSequences(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection
+                .prepareStatement("UPDATE id_sequences SET next_value = ? WHERE name = ?")) {
+            stmt.setLong(1, Math.max(100_000L, 10_000L + purchaseOrders));
+            stmt.setString(2, "po_number");
+            stmt.executeUpdate();
+        }
+    }
+}
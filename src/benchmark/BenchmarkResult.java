@@ -0,0 +1,60 @@
+package benchmark;
+
+import java.util.Locale;
+
+// Throughput and per-operation time for one benchmark, averaged over the
+// measurement iterations
+public class BenchmarkResult {
+    private final String name;
+    private final double opsPerSecond;
+    private final double opsPerSecondError;
+    private final double microsPerOp;
+    private final long operations;
+
+    public BenchmarkResult(String name, double opsPerSecond, double opsPerSecondError, double microsPerOp,
+            long operations) {
+        this.name = name;
+        this.opsPerSecond = opsPerSecond;
+        this.opsPerSecondError = opsPerSecondError;
+        this.microsPerOp = microsPerOp;
+        this.operations = operations;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getOpsPerSecond() {
+        return opsPerSecond;
+    }
+
+    public double getOpsPerSecondError() {
+        return opsPerSecondError;
+    }
+
+    public double getMicrosPerOp() {
+        return microsPerOp;
+    }
+
+    public long getOperations() {
+        return operations;
+    }
+
+    // One tab-separated report line: name, ops/s, error, us/op, operations
+    public String toReportLine() {
+        return String.format(Locale.ROOT, "%s\t%.3f\t%.3f\t%.3f\t%d", name, opsPerSecond, opsPerSecondError,
+                microsPerOp, operations);
+    }
+
+    public static BenchmarkResult fromReportLine(String line) {
+        String[] fields = line.split("\t");
+        return new BenchmarkResult(fields[0], Double.parseDouble(fields[1]), Double.parseDouble(fields[2]),
+                Double.parseDouble(fields[3]), Long.parseLong(fields[4]));
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%-40s %12.1f +- %8.1f ops/s %12.2f us/op", name, opsPerSecond,
+                opsPerSecondError, microsPerOp);
+    }
+}
@@ -0,0 +1,81 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Minimal throughput harness following JMH's model: untimed warmup iterations
+// let the JIT and the database caches settle, then timed measurement
+// iterations each run the operation for a fixed wall-clock time. Results are
+// fed into a sink so the JIT can't eliminate the work.
+public class BenchmarkRunner {
+
+    // One invocation of the code under test; the argument counts invocations so
+    // benchmarks can rotate through their inputs
+    @FunctionalInterface
+    public interface Operation {
+        Object run(long invocation) throws Exception;
+    }
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private volatile int sink;
+
+    public BenchmarkRunner(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+    }
+
+    // Five 1s warmup iterations and five 1s measurement iterations
+    public static BenchmarkRunner withDefaults() {
+        return new BenchmarkRunner(5, 5, 1000);
+    }
+
+    public BenchmarkResult run(String name, Operation operation) throws Exception {
+        long invocation = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            invocation = iterate(operation, invocation, null);
+        }
+
+        List<Double> throughputs = new ArrayList<>();
+        long operations = 0;
+        long elapsed = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            long[] measured = new long[2];
+            invocation = iterate(operation, invocation, measured);
+            operations += measured[0];
+            elapsed += measured[1];
+            throughputs.add(measured[0] / (measured[1] / 1_000_000_000.0));
+        }
+
+        double mean = throughputs.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        double variance = throughputs.stream().mapToDouble(t -> (t - mean) * (t - mean)).sum()
+                / Math.max(1, throughputs.size() - 1);
+        double microsPerOp = operations == 0 ? 0.0 : (elapsed / 1000.0) / operations;
+        return new BenchmarkResult(name, mean, Math.sqrt(variance), microsPerOp, operations);
+    }
+
+    // Run the operation until the iteration time is used up; records
+    // {operations, elapsedNanos} into measured when it isn't null
+    private long iterate(Operation operation, long invocation, long[] measured) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + iterationNanos;
+        long count = 0;
+        long now;
+        do {
+            consume(operation.run(invocation++));
+            count++;
+            now = System.nanoTime();
+        } while (now < deadline);
+        if (measured != null) {
+            measured[0] = count;
+            measured[1] = now - start;
+        }
+        return invocation;
+    }
+
+    private void consume(Object result) {
+        sink ^= System.identityHashCode(result);
+    }
+}
@@ -0,0 +1,97 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import databasemanager.DatabaseManager;
+import databasemanager.PurchaseOrder;
+
+// Throughput benchmarks for the DatabaseManager hot paths. Run against an
+// embedded stand-in database, for example:
+//
+//   java -cp out:h2.jar -Dsamsmart.db.url="jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1" \
+//        benchmark.DatabaseManagerBenchmarks [report-file]
+//
+// The report (bench_output.txt by default) is one tab-separated line per
+// benchmark and can be compared between releases with BaselineDiff.
+public class DatabaseManagerBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        Path report = Paths.get(args.length > 0 ? args[0] : "bench_output.txt");
+        if (DatabaseManager.DB_URL.startsWith("jdbc:mysql:")) {
+            System.err.println("Refusing to seed " + DatabaseManager.DB_URL
+                    + "; set -Dsamsmart.db.url to an embedded database.");
+            System.exit(2);
+        }
+
+        BenchmarkDatabase database = BenchmarkDatabase.withDefaults();
+        long seedStart = System.nanoTime();
+        database.createAndSeed();
+        System.out.printf("Seeded %d products, %d users, %d purchase orders in %d ms%n", database.getProducts(),
+                database.getUsers(), BenchmarkDatabase.DEFAULT_PURCHASE_ORDERS,
+                (System.nanoTime() - seedStart) / 1_000_000);
+
+        List<BenchmarkResult> results = runAll(BenchmarkRunner.withDefaults(), database);
+        writeReport(report, results);
+        System.out.println("Baseline written to " + report.toAbsolutePath());
+    }
+
+    public static List<BenchmarkResult> runAll(BenchmarkRunner runner, BenchmarkDatabase database)
+            throws Exception {
+        List<BenchmarkResult> results = new ArrayList<>();
+        int users = database.getUsers();
+        int products = database.getProducts();
+        LocalDate today = LocalDate.now();
+
+        try (DatabaseManager dbManager = new DatabaseManager()) {
+            results.add(report(runner.run("authenticateUser", i -> {
+                int user = (int) (i % users);
+                return dbManager.authenticateUser(BenchmarkDatabase.userEmail(user),
+                        BenchmarkDatabase.userPassword(user));
+            })));
+            results.add(report(runner.run("getAllProducts", i -> dbManager.getAllProducts())));
+            results.add(report(runner.run("getExpiredProducts", i -> dbManager.getExpiredProducts())));
+            results.add(report(runner.run("getMarkdownProducts", i -> dbManager.getMarkdownProducts())));
+            results.add(report(runner.run("updateProductQuantity",
+                    i -> dbManager.updateProductQuantity(1 + (int) (i % products), (int) (i % 200)))));
+            results.add(report(runner.run("addPurchaseOrder", i -> {
+                PurchaseOrder order = new PurchaseOrder(0, null, null);
+                order.setProductID(1 + (int) (i % products));
+                return dbManager.addPurchaseOrder(order, 10, today);
+            })));
+        }
+        return results;
+    }
+
+    private static BenchmarkResult report(BenchmarkResult result) {
+        System.out.println(result);
+        return result;
+    }
+
+    static void writeReport(Path report, List<BenchmarkResult> results) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# DatabaseManager benchmarks " + LocalDateTime.now() + " java " + System.getProperty("java.version"));
+        lines.add("# name\tops/s\terror\tus/op\toperations");
+        for (BenchmarkResult result : results) {
+            lines.add(result.toReportLine());
+        }
+        Files.write(report, lines, StandardCharsets.UTF_8);
+    }
+
+    static List<BenchmarkResult> readReport(Path report) throws IOException {
+        List<BenchmarkResult> results = new ArrayList<>();
+        for (String line : Files.readAllLines(report, StandardCharsets.UTF_8)) {
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                results.add(BenchmarkResult.fromReportLine(line));
+            }
+        }
+        return results;
+    }
+}
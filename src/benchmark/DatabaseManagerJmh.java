@@ -0,0 +1,105 @@
+package benchmark;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import databasemanager.DatabaseManager;
+import databasemanager.PurchaseOrder;
+
+// JMH version of DatabaseManagerBenchmarks, built into benchmarks/target/benchmarks.jar
+// by the benchmarks module. Each fork points samsmart.db.url at an in-memory
+// H2 database and seeds it with the default volumes (100k products, 10k users,
+// 1M purchase orders):
+//
+//   java -jar benchmarks/target/benchmarks.jar -rf json -rff jmh_output.json
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsamsmart.db.url=jdbc:h2:mem:jmh;MODE=MySQL;DB_CLOSE_DELAY=-1")
+public class DatabaseManagerJmh {
+
+    // Seeded once per fork
+    @State(Scope.Benchmark)
+    public static class Seeded {
+        BenchmarkDatabase database;
+
+        @Setup(Level.Trial)
+        public void seed() throws SQLException {
+            if (DatabaseManager.DB_URL.startsWith("jdbc:mysql:")) {
+                throw new IllegalStateException("Refusing to seed " + DatabaseManager.DB_URL);
+            }
+            database = BenchmarkDatabase.withDefaults();
+            database.createAndSeed();
+        }
+    }
+
+    // One pooled connection per benchmark thread, like one terminal
+    @State(Scope.Thread)
+    public static class Terminal {
+        DatabaseManager dbManager;
+        long invocation;
+        LocalDate today;
+
+        @Setup(Level.Trial)
+        public void open() {
+            dbManager = new DatabaseManager();
+            today = LocalDate.now();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            dbManager.close();
+        }
+    }
+
+    @Benchmark
+    public Object authenticateUser(Seeded seeded, Terminal terminal) throws SQLException {
+        int user = (int) (terminal.invocation++ % seeded.database.getUsers());
+        return terminal.dbManager.authenticateUser(BenchmarkDatabase.userEmail(user),
+                BenchmarkDatabase.userPassword(user));
+    }
+
+    @Benchmark
+    public Object getAllProducts(Seeded seeded, Terminal terminal) throws SQLException {
+        return terminal.dbManager.getAllProducts();
+    }
+
+    @Benchmark
+    public Object getExpiredProducts(Seeded seeded, Terminal terminal) throws SQLException {
+        return terminal.dbManager.getExpiredProducts();
+    }
+
+    @Benchmark
+    public Object getMarkdownProducts(Seeded seeded, Terminal terminal) throws SQLException {
+        return terminal.dbManager.getMarkdownProducts();
+    }
+
+    @Benchmark
+    public boolean updateProductQuantity(Seeded seeded, Terminal terminal) throws SQLException {
+        long i = terminal.invocation++;
+        return terminal.dbManager.updateProductQuantity(1 + (int) (i % seeded.database.getProducts()),
+                (int) (i % 200));
+    }
+
+    @Benchmark
+    public Object addPurchaseOrder(Seeded seeded, Terminal terminal) throws SQLException {
+        PurchaseOrder order = new PurchaseOrder(0, null, null);
+        order.setProductID(1 + (int) (terminal.invocation++ % seeded.database.getProducts()));
+        return terminal.dbManager.addPurchaseOrder(order, 10, terminal.today);
+    }
+}
@@ -0,0 +1,146 @@
+package benchmark;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import databasemanager.DatabaseManager;
+import databasemanager.PurchaseOrder;
+import databasemanager.RowMappers;
+import databasemanager.User;
+import databasemanager.UserRole;
+import product.java.Product;
+
+// Per-row decode cost of the RowMappers against the by-name decoding the
+// repository used before them. Both decoders run the same query over the
+// same rows, so the difference between a byName/rowMapper pair is the
+// decoding alone; ns/row divides one operation (query + every row) by the
+// row count. Run against an embedded database as for DatabaseManagerBenchmarks:
+//
+//   java -cp out:h2.jar -Dsamsmart.db.url="jdbc:h2:mem:map;MODE=MySQL;DB_CLOSE_DELAY=-1" \
+//        benchmark.MappingBenchmarks [report-file]
+public class MappingBenchmarks {
+
+    private static final int ROWS = 10_000;
+
+    @FunctionalInterface
+    private interface Decoder<T> {
+        List<T> decode(ResultSet rs) throws SQLException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path report = Paths.get(args.length > 0 ? args[0] : "mapping_bench_output.txt");
+        if (DatabaseManager.DB_URL.startsWith("jdbc:mysql:")) {
+            System.err.println("Refusing to seed " + DatabaseManager.DB_URL
+                    + "; set -Dsamsmart.db.url to an embedded database.");
+            System.exit(2);
+        }
+
+        new BenchmarkDatabase(ROWS, ROWS, ROWS, BenchmarkDatabase.DEFAULT_STORES).createAndSeed();
+        BenchmarkRunner runner = BenchmarkRunner.withDefaults();
+        List<BenchmarkResult> results = new ArrayList<>();
+
+        try (DatabaseManager dbManager = new DatabaseManager()) {
+            Connection connection = dbManager.getConnection();
+            String products = "SELECT * FROM product";
+            String users = "SELECT * FROM users";
+            String orders = "SELECT po_number, productID, quantity, order_date, deliverydate, tracking_number, version FROM purchase_orders";
+
+            results.add(run(runner, connection, "product/byName", products, MappingBenchmarks::productsByName));
+            results.add(run(runner, connection, "product/rowMapper", products,
+                    rs -> RowMappers.mapAll(rs, RowMappers.product(rs))));
+            results.add(run(runner, connection, "user/byName", users, MappingBenchmarks::usersByName));
+            results.add(run(runner, connection, "user/rowMapper", users,
+                    rs -> RowMappers.mapAll(rs, RowMappers.user(rs))));
+            results.add(run(runner, connection, "purchaseOrder/byName", orders,
+                    MappingBenchmarks::purchaseOrdersByName));
+            results.add(run(runner, connection, "purchaseOrder/rowMapper", orders,
+                    rs -> RowMappers.mapAll(rs, RowMappers.purchaseOrder(rs))));
+        }
+        DatabaseManagerBenchmarks.writeReport(report, results);
+        System.out.println("Report written to " + report.toAbsolutePath());
+    }
+
+    private static <T> BenchmarkResult run(BenchmarkRunner runner, Connection connection, String name,
+            String query, Decoder<T> decoder) throws Exception {
+        int[] rowCount = new int[1];
+        BenchmarkResult result = runner.run(name, i -> {
+            try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
+                List<T> rows = decoder.decode(rs);
+                rowCount[0] = rows.size();
+                return rows;
+            }
+        });
+        System.out.printf("%s  (%d rows, %.1f ns/row)%n", result, rowCount[0],
+                result.getMicrosPerOp() * 1_000.0 / Math.max(1, rowCount[0]));
+        return result;
+    }
+
+    // The by-name decoders below are the loops DatabaseManager used before
+    // RowMappers, kept here as the baseline
+
+    private static List<Product> productsByName(ResultSet rs) throws SQLException {
+        List<Product> products = new ArrayList<>();
+        while (rs.next()) {
+            LocalDate expirationDate = null;
+            if (rs.getDate("expirationDate") != null) {
+                expirationDate = rs.getDate("expirationDate").toLocalDate();
+            }
+            LocalDate markdownDate = null;
+            if (rs.getDate("markdownDate") != null) {
+                markdownDate = rs.getDate("markdownDate").toLocalDate();
+            }
+            Product product = new Product(
+                    rs.getString("productName"),
+                    expirationDate,
+                    markdownDate,
+                    rs.getInt("quantity"),
+                    rs.getString("manufacturer"),
+                    rs.getString("brand"),
+                    rs.getDouble("price"),
+                    rs.getString("category"));
+            product.setProductID(rs.getInt("productID"));
+            product.setStoreId(rs.getInt("store_id"));
+            products.add(product);
+        }
+        return products;
+    }
+
+    private static List<User> usersByName(ResultSet rs) throws SQLException {
+        List<User> users = new ArrayList<>();
+        while (rs.next()) {
+            users.add(new User(
+                    rs.getInt("user_id"),
+                    rs.getString("first_name"),
+                    rs.getString("last_name"),
+                    rs.getString("phone_number"),
+                    rs.getString("email"),
+                    rs.getString("password"),
+                    UserRole.valueOf(rs.getString("role"))));
+        }
+        return users;
+    }
+
+    private static List<PurchaseOrder> purchaseOrdersByName(ResultSet rs) throws SQLException {
+        List<PurchaseOrder> purchaseOrders = new ArrayList<>();
+        while (rs.next()) {
+            java.sql.Date orderDate = rs.getDate("order_date");
+            java.sql.Date deliveryDate = rs.getDate("deliverydate");
+            PurchaseOrder purchaseOrder = new PurchaseOrder(rs.getInt("po_number"),
+                    orderDate != null ? orderDate.toLocalDate() : null,
+                    deliveryDate != null ? deliveryDate.toLocalDate() : null);
+            purchaseOrder.setProductID(rs.getInt("productID"));
+            purchaseOrder.setQuantity(rs.getInt("quantity"));
+            purchaseOrder.setTrackingNumber(rs.getString("tracking_number"));
+            purchaseOrder.setVersion(rs.getInt("version"));
+            purchaseOrders.add(purchaseOrder);
+        }
+        return purchaseOrders;
+    }
+}
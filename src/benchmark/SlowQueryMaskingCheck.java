@@ -0,0 +1,72 @@
+package benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import databasemanager.DatabaseManager;
+import databasemanager.SlowQueryLog;
+import databasemanager.User;
+import databasemanager.UserRole;
+
+// Checks that credentials never reach the slow query log. Logs every
+// statement (threshold 0) to a scratch file while it registers and logs in a
+// user on an embedded database, then fails if the password or phone number
+// appears anywhere in the file:
+//
+//   java -cp out:h2.jar -Dsamsmart.db.url="jdbc:h2:mem:mask;MODE=MySQL;DB_CLOSE_DELAY=-1" \
+//        benchmark.SlowQueryMaskingCheck
+public class SlowQueryMaskingCheck {
+
+    private static final String PHONE = "5559871234";
+    private static final String PASSWORD = "s3cret-Pa55";
+
+    public static void main(String[] args) throws Exception {
+        if (DatabaseManager.DB_URL.startsWith("jdbc:mysql:")) {
+            System.err.println("Refusing to write to " + DatabaseManager.DB_URL
+                    + "; set -Dsamsmart.db.url to an embedded database.");
+            System.exit(2);
+        }
+        Path logFile = Files.createTempFile("slow_query_check", ".log");
+        System.setProperty("samsmart.slowQuery.thresholdMillis", "0");
+        System.setProperty("samsmart.slowQuery.file", logFile.toString());
+
+        new BenchmarkDatabase(10, 10, 10, 1).createAndSeed();
+        try (DatabaseManager dbManager = new DatabaseManager()) {
+            dbManager.addUser(new User(0, "Mask", "Check", PHONE, "mask.check@samsmart.test", PASSWORD,
+                    UserRole.EMPLOYEE));
+            dbManager.authenticateUser("mask.check@samsmart.test", PHONE);
+            dbManager.getUserByEmail("mask.check@samsmart.test");
+        }
+
+        // The log is written by a background thread
+        SlowQueryLog slowQueryLog = SlowQueryLog.getInstance();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (slowQueryLog.getQueueDepth() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Thread.sleep(500);
+
+        List<String> leaks = new ArrayList<>();
+        List<String> lines = Files.readAllLines(logFile);
+        for (String line : lines) {
+            if (line.contains(PHONE) || line.contains(PASSWORD)) {
+                leaks.add(line);
+            }
+        }
+        boolean addUserLogged = lines.stream().anyMatch(line -> line.contains("op=addUser "));
+        Files.deleteIfExists(logFile);
+
+        if (!addUserLogged) {
+            System.err.println("addUser was not written to the slow query log; nothing was checked.");
+            System.exit(1);
+        }
+        if (!leaks.isEmpty()) {
+            System.err.println("Credentials written to the slow query log:");
+            leaks.forEach(System.err::println);
+            System.exit(1);
+        }
+        System.out.println("No password or phone number in " + lines.size() + " slow query log lines.");
+    }
+}
@@ -0,0 +1,243 @@
+package benchmark;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import databasemanager.DatabaseManager;
+import databasemanager.InsufficientStockException;
+import databasemanager.LatencyHistogram;
+import databasemanager.PurchaseOrder;
+import product.java.Product;
+
+// Load test that simulates a store full of clerks driving the same
+// DatabaseManager calls the LoginSystem menus make: logging in, browsing
+// products, adjusting quantities and raising purchase orders.
+//
+// Arrivals are open-loop: requests are generated at the configured rate
+// (exponential inter-arrival times) regardless of how fast they are served,
+// and latency is measured from the time a request was due, so a slow system
+// can't hide queueing delay. Example:
+//
+//   java -cp out:h2.jar -Dsamsmart.db.url="jdbc:h2:mem:load;MODE=MySQL;DB_CLOSE_DELAY=-1" \
+//        benchmark.WorkloadGenerator clerks=200 rate=500 seconds=60 login=10 browse=50 adjust=30 po=10
+//
+// Clerks share the ConnectionPool (samsmart.pool.maxSize, default 8) and
+// borrow a connection per operation, the way a menu action does, so with more
+// clerks than connections the pool wait shows up in the latencies instead of
+// the extra clerks timing out.
+public class WorkloadGenerator {
+
+    public enum Operation {
+        LOGIN, BROWSE, ADJUST_QUANTITY, CREATE_PURCHASE_ORDER
+    }
+
+    private final int clerks;
+    private final double ratePerSecond;
+    private final int durationSeconds;
+    private final Map<Operation, Integer> mix;
+    private final int users;
+    private final int products;
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    public WorkloadGenerator(int clerks, double ratePerSecond, int durationSeconds, Map<Operation, Integer> mix,
+            int users, int products) {
+        this.clerks = clerks;
+        this.ratePerSecond = ratePerSecond;
+        this.durationSeconds = durationSeconds;
+        this.mix = mix;
+        this.users = users;
+        this.products = products;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            options.put(pair[0], pair.length > 1 ? pair[1] : "");
+        }
+        if (DatabaseManager.DB_URL.startsWith("jdbc:mysql:")) {
+            System.err.println("Refusing to seed " + DatabaseManager.DB_URL
+                    + "; set -Dsamsmart.db.url to an embedded database.");
+            System.exit(2);
+        }
+
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        mix.put(Operation.LOGIN, Integer.parseInt(options.getOrDefault("login", "10")));
+        mix.put(Operation.BROWSE, Integer.parseInt(options.getOrDefault("browse", "50")));
+        mix.put(Operation.ADJUST_QUANTITY, Integer.parseInt(options.getOrDefault("adjust", "30")));
+        mix.put(Operation.CREATE_PURCHASE_ORDER, Integer.parseInt(options.getOrDefault("po", "10")));
+
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        int products = Integer.parseInt(options.getOrDefault("products", "5000"));
+        int purchaseOrders = Integer.parseInt(options.getOrDefault("purchaseOrders", "50000"));
+        new BenchmarkDatabase(products, users, purchaseOrders, BenchmarkDatabase.DEFAULT_STORES).createAndSeed();
+
+        WorkloadGenerator generator = new WorkloadGenerator(
+                Integer.parseInt(options.getOrDefault("clerks", "200")),
+                Double.parseDouble(options.getOrDefault("rate", "500")),
+                Integer.parseInt(options.getOrDefault("seconds", "60")),
+                mix, users, products);
+        System.out.print(generator.run());
+    }
+
+    // Run the workload for the configured duration and return the report
+    public String run() throws InterruptedException {
+        BlockingQueue<Arrival> arrivals = new LinkedBlockingQueue<>();
+        CountDownLatch finished = new CountDownLatch(clerks);
+        for (int i = 0; i < clerks; i++) {
+            Thread clerk = new Thread(() -> serve(arrivals, finished), "clerk-" + i);
+            clerk.setDaemon(true);
+            clerk.start();
+        }
+
+        Random random = new Random();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long next = start;
+        long generated = 0;
+        while (next < end) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            arrivals.add(new Arrival(pick(random), next));
+            generated++;
+            next += (long) (-Math.log(1.0 - random.nextDouble()) / ratePerSecond * 1_000_000_000L);
+        }
+        for (int i = 0; i < clerks; i++) {
+            arrivals.add(Arrival.STOP);
+        }
+        finished.await();
+        long elapsed = System.nanoTime() - start;
+        return report(generated, elapsed);
+    }
+
+    private Operation pick(Random random) {
+        int total = 0;
+        for (int weight : mix.values()) {
+            total += weight;
+        }
+        int roll = random.nextInt(Math.max(total, 1));
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        return Operation.BROWSE;
+    }
+
+    // One clerk, like one terminal in a store: a DatabaseManager is opened for
+    // each operation and closed right after, so a connection is only held while
+    // a request is being served
+    private void serve(BlockingQueue<Arrival> arrivals, CountDownLatch finished) {
+        try {
+            while (true) {
+                Arrival arrival = arrivals.take();
+                if (arrival == Arrival.STOP) {
+                    break;
+                }
+                boolean failed = false;
+                try (DatabaseManager dbManager = new DatabaseManager()) {
+                    execute(dbManager, arrival.operation);
+                } catch (Exception e) {
+                    failed = true;
+                }
+                latencies.get(arrival.operation).record(System.nanoTime() - arrival.dueNanos);
+                if (failed) {
+                    errors.get(arrival.operation).increment();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    private void execute(DatabaseManager dbManager, Operation operation) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int productId = 1 + random.nextInt(products);
+        switch (operation) {
+            case LOGIN:
+                int user = random.nextInt(users);
+                if (dbManager.authenticateUser(BenchmarkDatabase.userEmail(user),
+                        BenchmarkDatabase.userPassword(user)) == null) {
+                    throw new IllegalStateException("Seeded user failed to log in");
+                }
+                break;
+            case BROWSE:
+                dbManager.getAllProducts();
+                break;
+            case ADJUST_QUANTITY:
+                try {
+                    dbManager.adjustProductQuantity(productId, random.nextInt(21) - 10);
+                } catch (InsufficientStockException e) {
+                    // A clerk turned away at the counter, not a failure
+                }
+                break;
+            case CREATE_PURCHASE_ORDER:
+                Product product = dbManager.getProductByID(productId);
+                if (product != null) {
+                    PurchaseOrder order = new PurchaseOrder(0, null, null);
+                    order.setProductID(productId);
+                    dbManager.addPurchaseOrder(order, 1 + random.nextInt(50), LocalDate.now());
+                }
+                break;
+        }
+    }
+
+    private String report(long generated, long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "Clerks: %d, target rate: %.0f ops/s, generated: %d in %.1f s%n",
+                clerks, ratePerSecond, generated, seconds));
+        report.append(String.format("%-24s %10s %10s %8s %12s %12s %12s%n", "Operation", "Count", "ops/s",
+                "Errors", "p50 (ms)", "p99 (ms)", "p999 (ms)"));
+        long totalCount = 0;
+        long totalErrors = 0;
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = latencies.get(operation);
+            long count = histogram.getCount();
+            long failed = errors.get(operation).sum();
+            totalCount += count;
+            totalErrors += failed;
+            report.append(String.format(Locale.ROOT, "%-24s %10d %10.1f %7.2f%% %12.2f %12.2f %12.2f%n",
+                    operation, count, count / seconds, count == 0 ? 0.0 : failed * 100.0 / count,
+                    histogram.getValueAtQuantile(0.5) / 1e6, histogram.getValueAtQuantile(0.99) / 1e6,
+                    histogram.getValueAtQuantile(0.999) / 1e6));
+        }
+        report.append(String.format(Locale.ROOT, "%-24s %10d %10.1f %7.2f%%%n", "TOTAL", totalCount,
+                totalCount / seconds, totalCount == 0 ? 0.0 : totalErrors * 100.0 / totalCount));
+        return report.toString();
+    }
+
+    private static final class Arrival {
+        static final Arrival STOP = new Arrival(null, 0);
+
+        final Operation operation;
+        final long dueNanos;
+
+        Arrival(Operation operation, long dueNanos) {
+            this.operation = operation;
+            this.dueNanos = dueNanos;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package databasemanager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import product.java.Product;
+
+// Non-blocking facade over DatabaseManager. Every call runs on a dedicated,
+// bounded executor with its own DatabaseManager (JDBC connections are not
+// thread-safe), so independent queries for a screen can run concurrently:
+//
+//   CompletableFuture<List<Product>> products = db.getAllProducts();
+//   CompletableFuture<List<PurchaseOrder>> orders = db.getAllPurchaseOrders();
+//   CompletableFuture.allOf(products, orders).join();
+//
+// Cancelling a returned future, or letting its deadline pass, cancels the
+// statement the worker is running (Statement.cancel(), through a
+// StatementCanceller) and fails any statement the call starts after that.
+// The worker is never interrupted, so its connection goes back to the pool
+// in a usable state; a call still queued is simply skipped.
+public class AsyncDatabaseManager implements AutoCloseable {
+
+    // A DatabaseManager operation that may throw SQLException
+    @FunctionalInterface
+    public interface DatabaseCall<T> {
+        T apply(DatabaseManager dbManager) throws Exception;
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Supplier<DatabaseManager> managerFactory;
+    private final Duration defaultDeadline;
+
+    // Size the pool no larger than the number of database connections you can spare
+    public AsyncDatabaseManager(int threads, int queueCapacity, Duration defaultDeadline) {
+        this(threads, queueCapacity, defaultDeadline, DatabaseManager::new);
+    }
+
+    public AsyncDatabaseManager(int threads, int queueCapacity, Duration defaultDeadline,
+            Supplier<DatabaseManager> managerFactory) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new DatabaseThreadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.managerFactory = managerFactory;
+        this.defaultDeadline = defaultDeadline;
+    }
+
+    // Four workers, 100 queued calls, 30 second deadline
+    public static AsyncDatabaseManager withDefaults() {
+        return new AsyncDatabaseManager(4, 100, Duration.ofSeconds(30));
+    }
+
+    // Run an arbitrary DatabaseManager call with the default deadline
+    public <T> CompletableFuture<T> submit(DatabaseCall<T> call) {
+        return submit(call, defaultDeadline);
+    }
+
+    // Run an arbitrary DatabaseManager call; a null deadline means no deadline
+    public <T> CompletableFuture<T> submit(DatabaseCall<T> call, Duration deadline) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<StatementCanceller> running = new AtomicReference<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (result.isDone()) {
+                    return; // Cancelled or timed out while still queued
+                }
+                try (DatabaseManager dbManager = managerFactory.get()) {
+                    StatementCanceller canceller = dbManager.makeCancellable();
+                    running.set(canceller);
+                    if (result.isDone()) {
+                        return; // Cancelled while the connection was being borrowed
+                    }
+                    try {
+                        result.complete(call.apply(dbManager));
+                    } finally {
+                        canceller.finish();
+                    }
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        // Propagate cancellation and deadline expiry to the call
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                task.cancel(false);
+                StatementCanceller canceller = running.get();
+                if (canceller != null) {
+                    canceller.cancel();
+                }
+            }
+        });
+        if (deadline != null) {
+            result.orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    // For a result composed from several calls: once it fails (or is
+    // cancelled, or times out) the calls still running are cancelled too
+    public static <T> CompletableFuture<T> cancelOnFailure(CompletableFuture<T> result,
+            List<? extends CompletableFuture<?>> calls) {
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                for (CompletableFuture<?> call : calls) {
+                    call.cancel(false);
+                }
+            }
+        });
+        return result;
+    }
+
+    // Users
+    public CompletableFuture<User> authenticateUser(String email, String phoneNumber) {
+        return submit(db -> db.authenticateUser(email, phoneNumber));
+    }
+
+    public CompletableFuture<Boolean> userExists(String email) {
+        return submit(db -> db.userExists(email));
+    }
+
+    public CompletableFuture<User> getUserByEmail(String email) {
+        return submit(db -> db.getUserByEmail(email));
+    }
+
+    public CompletableFuture<List<User>> getAllUsers() {
+        return submit(DatabaseManager::getAllUsers);
+    }
+
+    public CompletableFuture<User> addUser(User newUser) {
+        return submit(db -> {
+            db.addUser(newUser);
+            return newUser;
+        });
+    }
+
+    public CompletableFuture<Void> updateUserRole(String email, UserRole newRole) {
+        return submit(db -> {
+            db.updateUserRole(email, newRole);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteUserByEmail(String email) {
+        return submit(db -> {
+            db.deleteUserByEmail(email);
+            return null;
+        });
+    }
+
+    // Products
+    public CompletableFuture<List<Product>> getAllProducts() {
+        return submit(DatabaseManager::getAllProducts);
+    }
+
+    public CompletableFuture<Product> getProductByID(int productID) {
+        return submit(db -> db.getProductByID(productID));
+    }
+
+    public CompletableFuture<List<Product>> getExpiredProducts() {
+        return submit(DatabaseManager::getExpiredProducts);
+    }
+
+    public CompletableFuture<List<Product>> getMarkdownProducts() {
+        return submit(DatabaseManager::getMarkdownProducts);
+    }
+
+    public CompletableFuture<Boolean> updateProductQuantity(int productId, int newQuantity) {
+        return submit(db -> db.updateProductQuantity(productId, newQuantity));
+    }
+
+    public CompletableFuture<Boolean> adjustProductQuantity(int productId, int delta) {
+        return submit(db -> db.adjustProductQuantity(productId, delta));
+    }
+
+    public CompletableFuture<Void> deleteProduct(int productID) {
+        return submit(db -> {
+            db.deleteProduct(productID);
+            return null;
+        });
+    }
+
+    // Purchase orders
+    public CompletableFuture<List<PurchaseOrder>> getAllPurchaseOrders() {
+        return submit(DatabaseManager::getAllPurchaseOrders);
+    }
+
+    public CompletableFuture<Boolean> addPurchaseOrder(PurchaseOrder newPurchaseOrder, int quantity,
+            LocalDate orderDate) {
+        return submit(db -> db.addPurchaseOrder(newPurchaseOrder, quantity, orderDate));
+    }
+
+    public CompletableFuture<Boolean> updatePurchaseOrder(int poNumber, int productId, int quantity,
+            LocalDate orderDate, String trackingNumber) {
+        return submit(db -> db.updatePurchaseOrder(poNumber, productId, quantity, orderDate, trackingNumber));
+    }
+
+    public CompletableFuture<Boolean> deletePurchaseOrder(int poNumber) {
+        return submit(db -> db.deletePurchaseOrder(poNumber));
+    }
+
+    // Stores
+    public CompletableFuture<List<Store>> getAllStores() {
+        return submit(DatabaseManager::getAllStores);
+    }
+
+    public CompletableFuture<Boolean> addStore(int storeId, String storeName, String address, String city,
+            String state, int zip, String phone, String storeType, LocalDate openingDate) {
+        return submit(db -> db.addStore(storeId, storeName, address, city, state, zip, phone, storeType,
+                openingDate));
+    }
+
+    public CompletableFuture<Boolean> updateStore(int storeId, String storeName, String address, String city,
+            String state, int zip, String phone, String storeType) {
+        return submit(db -> db.updateStore(storeId, storeName, address, city, state, zip, phone, storeType));
+    }
+
+    public CompletableFuture<Boolean> deleteStore(int storeId) {
+        return submit(db -> db.deleteStore(storeId));
+    }
+
+    // Number of calls waiting for a worker
+    public int getQueuedCalls() {
+        return executor.getQueue().size();
+    }
+
+    // Stop accepting work and wait briefly for running calls to finish
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(defaultDeadline != null ? defaultDeadline.toMillis() : 30_000,
+                    TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Daemon threads so an abandoned facade never keeps the CLI alive
+    private static class DatabaseThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "db-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
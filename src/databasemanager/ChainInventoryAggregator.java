@@ -0,0 +1,133 @@
+package databasemanager;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+// Computes chain-wide inventory totals by splitting the store list in half
+// until each task owns one store, querying each store's partition on its own
+// connection in parallel, and combining the partial sums on the way back up.
+public class ChainInventoryAggregator implements AutoCloseable {
+
+    private final ForkJoinPool pool;
+    private final Supplier<DatabaseManager> managerFactory;
+    private final int expiringWithinDays;
+
+    // Parallelism is also the number of connections used at once
+    public ChainInventoryAggregator(int parallelism, int expiringWithinDays) {
+        this(parallelism, expiringWithinDays, DatabaseManager::new);
+    }
+
+    public ChainInventoryAggregator(int parallelism, int expiringWithinDays,
+            Supplier<DatabaseManager> managerFactory) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.managerFactory = managerFactory;
+        this.expiringWithinDays = expiringWithinDays;
+    }
+
+    // Totals for every store that has a stores row or any stock
+    public ChainTotals aggregate() throws SQLException {
+        List<Integer> storeIds;
+        try (DatabaseManager dbManager = managerFactory.get()) {
+            storeIds = dbManager.getStoreIds();
+        }
+        return aggregate(storeIds);
+    }
+
+    // Totals for the given stores only
+    public ChainTotals aggregate(List<Integer> storeIds) throws SQLException {
+        List<StoreInventoryTotals> perStore = Collections.synchronizedList(new ArrayList<>());
+        int[] ids = storeIds.stream().mapToInt(Integer::intValue).toArray();
+        try {
+            StoreInventoryTotals chain = pool.invoke(new StoreRangeTask(ids, 0, ids.length, perStore));
+            perStore.sort((a, b) -> Integer.compare(a.getStoreId(), b.getStoreId()));
+            return new ChainTotals(chain, perStore);
+        } catch (StoreQueryException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // Chain-wide totals plus the per-store rows they were built from
+    public static class ChainTotals {
+        private final StoreInventoryTotals chain;
+        private final List<StoreInventoryTotals> stores;
+
+        ChainTotals(StoreInventoryTotals chain, List<StoreInventoryTotals> stores) {
+            this.chain = chain;
+            this.stores = stores;
+        }
+
+        public StoreInventoryTotals getChain() {
+            return chain;
+        }
+
+        public List<StoreInventoryTotals> getStores() {
+            return stores;
+        }
+    }
+
+    private class StoreRangeTask extends RecursiveTask<StoreInventoryTotals> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] storeIds;
+        private final int from;
+        private final int to;
+        private final List<StoreInventoryTotals> perStore;
+
+        StoreRangeTask(int[] storeIds, int from, int to, List<StoreInventoryTotals> perStore) {
+            this.storeIds = storeIds;
+            this.from = from;
+            this.to = to;
+            this.perStore = perStore;
+        }
+
+        @Override
+        protected StoreInventoryTotals compute() {
+            if (to - from == 0) {
+                return StoreInventoryTotals.empty();
+            }
+            if (to - from == 1) {
+                return queryStore(storeIds[from]);
+            }
+            int mid = (from + to) >>> 1;
+            StoreRangeTask left = new StoreRangeTask(storeIds, from, mid, perStore);
+            StoreRangeTask right = new StoreRangeTask(storeIds, mid, to, perStore);
+            left.fork();
+            StoreInventoryTotals rightTotals = right.compute();
+            return left.join().combine(rightTotals);
+        }
+
+        private StoreInventoryTotals queryStore(int storeId) {
+            try (DatabaseManager dbManager = managerFactory.get()) {
+                StoreInventoryTotals totals = dbManager.getStoreInventoryTotals(storeId, expiringWithinDays);
+                perStore.add(totals);
+                return totals;
+            } catch (SQLException e) {
+                throw new StoreQueryException(e);
+            }
+        }
+    }
+
+    // Carries a SQLException out of the fork-join pool
+    private static class StoreQueryException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        StoreQueryException(SQLException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+}
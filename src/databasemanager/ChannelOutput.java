@@ -0,0 +1,163 @@
+package databasemanager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Byte sink for the exporters: bytes are encoded straight into one reusable
+// direct buffer, which is written to the FileChannel (or fed to a Deflater
+// whose output goes to a second direct buffer) each time it fills. With gzip
+// on, the file is a standard single-member .gz: header, raw deflate stream,
+// then CRC32 and length trailer.
+class ChannelOutput implements Closeable {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final byte[] NO_INPUT = new byte[0];
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Deflater deflater;
+    private final ByteBuffer compressed;
+    private final CRC32 crc;
+    private long bytesIn;
+    private long bytesOut;
+    private boolean closed;
+
+    ChannelOutput(FileChannel channel, boolean gzip) {
+        this.channel = channel;
+        if (gzip) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            compressed = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            crc = new CRC32();
+            compressed.put(GZIP_HEADER);
+        } else {
+            deflater = null;
+            compressed = null;
+            crc = null;
+        }
+    }
+
+    void put(byte b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put(b);
+    }
+
+    // UTF-8 encode into the buffer without an intermediate byte[]
+    void put(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            putChar(text, i);
+        }
+    }
+
+    // Encode the char at index i; a surrogate pair is written when its high half is seen
+    void putChar(CharSequence text, int i) throws IOException {
+        char c = text.charAt(i);
+        if (buffer.remaining() < 4) {
+            drain();
+        }
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xc0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3f)));
+        } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                && Character.isLowSurrogate(text.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, text.charAt(i + 1));
+            buffer.put((byte) (0xf0 | (codePoint >> 18)));
+            buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+            buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+            buffer.put((byte) (0x80 | (codePoint & 0x3f)));
+        } else if (Character.isSurrogate(c)) {
+            if (!Character.isLowSurrogate(c) || i == 0 || !Character.isHighSurrogate(text.charAt(i - 1))) {
+                buffer.put((byte) '?'); // Unpaired half
+            }
+        } else {
+            buffer.put((byte) (0xe0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+            buffer.put((byte) (0x80 | (c & 0x3f)));
+        }
+    }
+
+    // Bytes handed to the output so far, before compression
+    long getBytesIn() {
+        return bytesIn + buffer.position();
+    }
+
+    // Bytes in the file; final once the output is closed
+    long getBytesOut() {
+        return bytesOut;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        bytesIn += buffer.remaining();
+        if (deflater == null) {
+            writeFully(buffer);
+        } else {
+            int start = buffer.position();
+            crc.update(buffer);
+            buffer.position(start);
+            deflater.setInput(buffer);
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+            // The deflater keeps a reference to its input; detach it before
+            // the buffer is cleared, or finish() would read the stale bytes
+            deflater.setInput(NO_INPUT);
+        }
+        buffer.clear();
+    }
+
+    private void deflate() throws IOException {
+        if (compressed.remaining() < 8) {
+            compressed.flip();
+            writeFully(compressed);
+            compressed.clear();
+        }
+        deflater.deflate(compressed);
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            bytesOut += channel.write(source);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            drain();
+            if (deflater != null) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflate();
+                }
+                if (compressed.remaining() < 8) {
+                    compressed.flip();
+                    writeFully(compressed);
+                    compressed.clear();
+                }
+                compressed.putInt((int) crc.getValue());
+                compressed.putInt((int) bytesIn);
+                compressed.flip();
+                writeFully(compressed);
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+            channel.close();
+        }
+    }
+}
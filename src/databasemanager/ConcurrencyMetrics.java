@@ -0,0 +1,63 @@
+package databasemanager;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters for optimistic updates, shared by every DatabaseManager instance
+public class ConcurrencyMetrics {
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    void recordUpdate() {
+        updates.increment();
+    }
+
+    void recordConflict() {
+        conflicts.increment();
+    }
+
+    void recordRetry() {
+        retries.increment();
+    }
+
+    void recordExhausted() {
+        exhausted.increment();
+    }
+
+    // Number of versioned updates that were attempted
+    public long getUpdates() {
+        return updates.sum();
+    }
+
+    // Number of times the row version had changed between read and write
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    // Number of retries after a conflict
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    // Number of updates that gave up after the retry policy ran out
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    // Average number of conflicts per versioned update
+    public double getConflictRate() {
+        long total = getUpdates();
+        return total == 0 ? 0.0 : (double) getConflicts() / total;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyMetrics{" +
+                "updates=" + getUpdates() +
+                ", conflicts=" + getConflicts() +
+                ", retries=" + getRetries() +
+                ", exhausted=" + getExhausted() +
+                '}';
+    }
+}
@@ -0,0 +1,347 @@
+package databasemanager;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.ObjectName;
+
+// Bounded pool of JDBC connections shared by every DatabaseManager. A
+// DatabaseManager borrows one connection when it is created and gives it
+// back in close(), so opening a manager per menu action no longer means a
+// new MySQL login each time.
+//
+// The pool publishes its gauges (active, idle, waiting) and the time spent
+// acquiring a connection over JMX as samsmart:type=ConnectionPool. A lease
+// held longer than the leak threshold is logged once, with the stack trace
+// of the code that borrowed it. Menu screens borrow only around their
+// database calls, never across a prompt, so a report means a real leak.
+//
+// Settings: samsmart.pool.maxSize (default 8), samsmart.pool.borrowTimeoutMillis (default 30000),
+// samsmart.pool.leakThresholdMillis (default 60000, 0 turns leak detection off)
+public class ConnectionPool implements ConnectionPoolMXBean {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    private static volatile ConnectionPool instance;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+    private final Semaphore leases;
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Map<Connection, Lease> active = new ConcurrentHashMap<>();
+    private final LatencyHistogram acquireTimes = new LatencyHistogram();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final long leakThresholdMillis;
+
+    public ConnectionPool(String url, String user, String password, int maxSize, long borrowTimeoutMillis,
+            long leakThresholdMillis) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.leases = new Semaphore(maxSize, true);
+        if (leakThresholdMillis > 0) {
+            startLeakDetector();
+        }
+        if (url.startsWith("jdbc:mysql:")) {
+            try {
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException("JDBC Driver not found: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public static ConnectionPool getInstance() {
+        if (instance == null) {
+            synchronized (ConnectionPool.class) {
+                if (instance == null) {
+                    ConnectionPool pool = new ConnectionPool(DatabaseManager.DB_URL, DatabaseManager.DB_USER,
+                            DatabaseManager.DB_PASSWORD, Integer.getInteger("samsmart.pool.maxSize", 8),
+                            Long.getLong("samsmart.pool.borrowTimeoutMillis", 30_000),
+                            Long.getLong("samsmart.pool.leakThresholdMillis", 60_000));
+                    pool.registerWithJmx();
+                    instance = pool;
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Take an idle connection, or open a new one if the pool isn't full yet;
+    // waits up to the borrow timeout when every connection is in use
+    public Connection borrow() throws SQLException {
+        return borrow(borrowTimeoutMillis);
+    }
+
+    // Borrow with a caller-chosen wait, e.g. a health check that must answer quickly
+    public Connection borrow(long timeoutMillis) throws SQLException {
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            if (!leases.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                acquireTimeouts.increment();
+                throw new SQLException("Timed out after " + timeoutMillis
+                        + " ms waiting for a database connection (pool size " + maxSize + ", "
+                        + active.size() + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        try {
+            Connection connection = takeIdleOrOpen();
+            acquireTimes.record(System.nanoTime() - start);
+            active.put(connection, new Lease(leakThresholdMillis > 0));
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            leases.release();
+            throw e;
+        }
+    }
+
+    private Connection takeIdleOrOpen() throws SQLException {
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            if (!connection.isClosed()) {
+                return connection;
+            }
+            opened.decrementAndGet(); // Closed behind our back; drop it
+        }
+        return open();
+    }
+
+    // Return a connection. Any open transaction is rolled back and auto-commit
+    // restored, so the next borrower starts clean.
+    public void release(Connection connection) {
+        Lease lease = active.remove(connection);
+        if (lease == null) {
+            LOGGER.log(Level.WARNING, "Ignoring release of a connection that isn't leased from this pool",
+                    new IllegalStateException("Released here"));
+            return;
+        }
+        if (lease.reported) {
+            LOGGER.info(String.format("Leaked connection returned after %d ms by %s", lease.heldMillis(),
+                    Thread.currentThread().getName()));
+        }
+        try {
+            if (connection.isClosed()) {
+                opened.decrementAndGet();
+                return;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            idle.offer(connection);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Discarding connection that failed to reset", e);
+            closeQuietly(connection);
+            opened.decrementAndGet();
+        } finally {
+            leases.release();
+        }
+    }
+
+    // Open connections up front (at most maxSize) so the first borrowers don't
+    // pay for it. Each one is opened under a lease permit, like a borrow, so
+    // prefilling while the pool is in use can't open more than maxSize.
+    public void prefill(int connections) throws SQLException {
+        int target = Math.min(connections, maxSize);
+        while (opened.get() < target) {
+            if (!leases.tryAcquire()) {
+                return; // Every permit is taken; the borrowers open what they need
+            }
+            try {
+                if (opened.get() < target) {
+                    idle.offer(open());
+                }
+            } finally {
+                leases.release();
+            }
+        }
+    }
+
+    // A connection outside the pool for a caller that must never wait behind
+    // borrowers (IdAllocator refills); it doesn't count against maxSize and
+    // the caller closes it
+    public Connection openDedicated() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public int getOpenConnections() {
+        return opened.get();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return active.size();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    @Override
+    public int getWaitingThreads() {
+        return waiting.get();
+    }
+
+    @Override
+    public long getAcquireCount() {
+        return acquireTimes.getCount();
+    }
+
+    @Override
+    public long getAcquireTimeouts() {
+        return acquireTimeouts.sum();
+    }
+
+    @Override
+    public double getAcquireP50Micros() {
+        return acquireTimes.getValueAtQuantile(0.50) / 1_000.0;
+    }
+
+    @Override
+    public double getAcquireP99Micros() {
+        return acquireTimes.getValueAtQuantile(0.99) / 1_000.0;
+    }
+
+    @Override
+    public double getAcquireMaxMicros() {
+        return acquireTimes.getMaxNanos() / 1_000.0;
+    }
+
+    @Override
+    public long getLeaksDetected() {
+        return leaksDetected.sum();
+    }
+
+    @Override
+    public long getLeakThresholdMillis() {
+        return leakThresholdMillis;
+    }
+
+    @Override
+    public void resetAcquireTimes() {
+        acquireTimes.reset();
+    }
+
+    public LatencyHistogram getAcquireTimes() {
+        return acquireTimes;
+    }
+
+    // Text summary for the admin menu
+    public String formatReport() {
+        return String.format("Connection pool: %d active, %d idle, %d waiting (max %d, %d open)%n"
+                + "  acquire: %d calls, p50 %.1f us, p99 %.1f us, max %.1f us, %d timeouts%n"
+                + "  leaks detected: %d (threshold %s)%n",
+                getActiveConnections(), getIdleConnections(), getWaitingThreads(), maxSize, getOpenConnections(),
+                getAcquireCount(), getAcquireP50Micros(), getAcquireP99Micros(), getAcquireMaxMicros(),
+                getAcquireTimeouts(), getLeaksDetected(),
+                leakThresholdMillis > 0 ? leakThresholdMillis + " ms" : "off");
+    }
+
+    // Close every idle connection (used at shutdown)
+    public void closeIdle() {
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            closeQuietly(connection);
+            opened.decrementAndGet();
+        }
+    }
+
+    // Scan the leases a few times per threshold and report each overdue one once
+    private void startLeakDetector() {
+        ScheduledExecutorService detector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-leak-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1_000, leakThresholdMillis / 4);
+        detector.scheduleAtFixedRate(this::reportLeaks, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    void reportLeaks() {
+        for (Lease lease : active.values()) {
+            if (!lease.reported && lease.heldMillis() >= leakThresholdMillis) {
+                lease.reported = true;
+                leaksDetected.increment();
+                LOGGER.log(Level.WARNING, String.format(
+                        "Connection held for %d ms by %s (leak threshold %d ms); borrowed at:", lease.heldMillis(),
+                        lease.threadName, leakThresholdMillis), lease.borrowSite);
+            }
+        }
+    }
+
+    private void registerWithJmx() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    new ObjectName("samsmart:type=ConnectionPool"));
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Unable to register JMX bean for the connection pool", e);
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, user, password);
+        opened.incrementAndGet();
+        return connection;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Error closing pooled connection", e);
+        }
+    }
+
+    // One borrowed connection. The borrow site is only captured when leak
+    // detection is on, since filling in a stack trace isn't free.
+    private static final class Lease {
+        final long borrowedNanos = System.nanoTime();
+        final String threadName = Thread.currentThread().getName();
+        final Throwable borrowSite;
+        volatile boolean reported;
+
+        Lease(boolean captureBorrowSite) {
+            this.borrowSite = captureBorrowSite ? new Throwable("Connection borrowed here") : null;
+        }
+
+        long heldMillis() {
+            return (System.nanoTime() - borrowedNanos) / 1_000_000;
+        }
+    }
+}
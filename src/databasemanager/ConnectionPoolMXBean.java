@@ -0,0 +1,30 @@
+package databasemanager;
+
+// JMX view of the shared connection pool (samsmart:type=ConnectionPool)
+public interface ConnectionPoolMXBean {
+    int getMaxSize();
+
+    int getOpenConnections();
+
+    int getActiveConnections();
+
+    int getIdleConnections();
+
+    int getWaitingThreads();
+
+    long getAcquireCount();
+
+    long getAcquireTimeouts();
+
+    double getAcquireP50Micros();
+
+    double getAcquireP99Micros();
+
+    double getAcquireMaxMicros();
+
+    long getLeaksDetected();
+
+    long getLeakThresholdMillis();
+
+    void resetAcquireTimes();
+}
@@ -0,0 +1,80 @@
+package databasemanager;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+// RFC 4180 CSV: a header row, CRLF line ends, and a field quoted only when
+// it holds a comma, quote or line break. NULL is an empty field. Values are
+// the driver's text form of each column, encoded straight into the output.
+class CsvExportWriter implements ExportWriter {
+
+    private final ChannelOutput out;
+    private int columnCount;
+
+    CsvExportWriter(ChannelOutput out) {
+        this.out = out;
+    }
+
+    @Override
+    public void start(List<String> columns) throws IOException {
+        columnCount = columns.size();
+        for (int i = 0; i < columnCount; i++) {
+            if (i > 0) {
+                out.put((byte) ',');
+            }
+            field(columns.get(i));
+        }
+        endLine();
+    }
+
+    @Override
+    public void row(ResultSet rs) throws SQLException, IOException {
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                out.put((byte) ',');
+            }
+            String value = rs.getString(i);
+            if (value != null) {
+                field(value);
+            }
+        }
+        endLine();
+    }
+
+    @Override
+    public void finish() {
+        // Nothing after the last row
+    }
+
+    private void endLine() throws IOException {
+        out.put((byte) '\r');
+        out.put((byte) '\n');
+    }
+
+    private void field(String value) throws IOException {
+        if (!needsQuotes(value)) {
+            out.put(value);
+            return;
+        }
+        out.put((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                out.put((byte) '"');
+            }
+            out.putChar(value, i);
+        }
+        out.put((byte) '"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,95 @@
+package databasemanager;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+// Full-table dumps for the auditors. Rows are streamed from the driver one
+// at a time and encoded straight into ChannelOutput's direct buffer, so an
+// export never holds more than one row and one buffer in memory however big
+// the table is. The file is written under a .part name and renamed when
+// complete, so a failed export never leaves a truncated file behind.
+public class DataExporter {
+
+    private static final Logger LOGGER = Logger.getLogger(DataExporter.class.getName());
+
+    private static final int FETCH_SIZE = 1_000;
+
+    private final Supplier<DatabaseManager> managerFactory;
+
+    public DataExporter() {
+        this(DatabaseManager::new);
+    }
+
+    public DataExporter(Supplier<DatabaseManager> managerFactory) {
+        this.managerFactory = managerFactory;
+    }
+
+    // Write the chosen columns of every row to target as CSV, gzipped if asked
+    public ExportReport exportCsv(ExportTable table, List<String> columns, Path target, boolean gzip)
+            throws SQLException, IOException {
+        for (String column : columns) {
+            if (!table.getColumns().contains(column)) {
+                throw new IllegalArgumentException("No column '" + column + "' in " + table.getTable());
+            }
+        }
+        long start = System.nanoTime();
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        long rows = 0;
+        ChannelOutput out = new ChannelOutput(FileChannel.open(part, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), gzip);
+        try {
+            ExportWriter writer = new CsvExportWriter(out);
+            writer.start(columns);
+            try (DatabaseManager dbManager = managerFactory.get();
+                    PreparedStatement stmt = streaming(dbManager.getConnection(), exportSql(table, columns));
+                    ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    writer.row(rs);
+                    rows++;
+                }
+            }
+            writer.finish();
+            out.close();
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (SQLException | IOException | RuntimeException e) {
+            try {
+                out.close();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            Files.deleteIfExists(part);
+            throw e;
+        }
+
+        ExportReport report = new ExportReport(table, target, rows, out.getBytesIn(), out.getBytesOut(),
+                System.nanoTime() - start);
+        LOGGER.info("Export finished: " + report);
+        return report;
+    }
+
+    // Columns have been checked against the table's list by the caller
+    static String exportSql(ExportTable table, List<String> columns) {
+        return "SELECT " + String.join(", ", columns) + " FROM " + table.getTable();
+    }
+
+    // A forward-only statement that doesn't buffer the whole result. MySQL
+    // Connector/J only streams when the fetch size is Integer.MIN_VALUE;
+    // other drivers take an ordinary fetch size.
+    static PreparedStatement streaming(Connection connection, String sql) throws SQLException {
+        PreparedStatement stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(DatabaseManager.DB_URL.startsWith("jdbc:mysql:") ? Integer.MIN_VALUE : FETCH_SIZE);
+        return stmt;
+    }
+}
@@ -1,7 +1,6 @@
 package databasemanager;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -9,28 +8,104 @@ import java.sql.Statement;
 import java.sql.Types;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import product.java.Product;
 
 public class DatabaseManager implements AutoCloseable {
+    // Conflict counters shared by all instances, since each menu action opens its own manager
+    private static final ConcurrencyMetrics CONCURRENCY_METRICS = new ConcurrencyMetrics();
+
+    // Told about every product and purchase order write made through this class
+    private static final CopyOnWriteArrayList<InventoryListener> INVENTORY_LISTENERS = new CopyOnWriteArrayList<>();
+
     private Connection connection;
+    private Connection pooled; // What goes back to the pool; connection may wrap it
+    private long connectionWaitNanos; // Time it took to get the connection, reported in the slow query log
+    private RetryPolicy retryPolicy = RetryPolicy.defaultPolicy();
 
     LocalDate localDate = LocalDate.now(); // Example LocalDate
     java.sql.Date sqlDate = java.sql.Date.valueOf(localDate); // Converting LocalDate to java.sql.Date
 
-    // Constructor that sets up the connection to the MySQL database
+    // Connection settings; override with -Dsamsmart.db.url=... to point the app
+    // (or the benchmarks) at another database, e.g. an embedded one. The MySQL
+    // defaults turn on the driver's prepared statement cache, which the startup
+    // warm-up fills on every pooled connection.
+    public static final String DB_URL = System.getProperty("samsmart.db.url",
+            "jdbc:mysql://localhost:3306/applicationdb?cachePrepStmts=true&useServerPrepStmts=true&prepStmtCacheSize=64");
+    public static final String DB_USER = System.getProperty("samsmart.db.user", "root");
+    public static final String DB_PASSWORD = System.getProperty("samsmart.db.password", "password");
+
+    // Statements are package-visible so QueryPlanCheck explains exactly the SQL
+    // that runs; INSERTs stay inline since they don't read anything
+    static final String USER_EXISTS_SQL = "SELECT COUNT(*) AS count FROM users WHERE email = ?";
+    static final String AUTHENTICATE_SQL = "SELECT * FROM users WHERE email = ? AND password = ?";
+    static final String USER_ID_EXISTS_SQL = "SELECT COUNT(*) AS count FROM users WHERE user_id = ?";
+    static final String USER_BY_EMAIL_SQL = "SELECT * FROM users WHERE email = ?";
+    static final String UPDATE_USER_ROLE_SQL = "UPDATE users SET role = ? WHERE email = ?";
+    static final String DELETE_USER_SQL = "DELETE FROM users WHERE email = ?";
+    static final String ALL_USERS_SQL = "SELECT * FROM users";
+
+    static final String PRODUCT_BY_ID_SQL = "SELECT * FROM product WHERE productID = ?";
+    static final String UPDATE_QUANTITY_SQL = "UPDATE product SET quantity = ?, version = version + 1 WHERE productID = ? AND version = ?";
+    static final String UPDATE_STORE_QUANTITY_SQL = "UPDATE product SET quantity = ?, version = version + 1 WHERE productID = ? AND store_id = ? AND version = ?";
+    private static final String REGISTER_PRODUCT_ID_SQL = "INSERT INTO product_ids (productID) VALUES (?)";
+    static final String ALL_PRODUCTS_SQL = "SELECT * FROM Product";
+    static final String PRODUCTS_BY_STORE_SQL = "SELECT productID, productName, expirationDate, markdownDate, quantity, manufacturer, brand, price, category, store_id FROM product WHERE store_id = ?";
+    static final String STORE_TOTALS_SQL = "SELECT COALESCE(SUM(quantity), 0), COALESCE(SUM(quantity * price), 0), "
+            + "COALESCE(SUM(CASE WHEN expirationDate BETWEEN ? AND ? THEN quantity ELSE 0 END), 0) "
+            + "FROM product WHERE store_id = ?";
+    static final String PRODUCT_VERSION_SQL = "SELECT version FROM product WHERE productID = ?";
+    static final String PRODUCT_QUANTITY_SQL = "SELECT quantity, version FROM product WHERE productID = ?";
+    static final String PRODUCT_DESCRIPTION_SQL = "SELECT description FROM product WHERE productID = ?";
+    static final String UPDATE_EXPIRATION_SQL = "UPDATE product SET expirationDate = ?, version = version + 1 WHERE productID = ? AND version = ?";
+    static final String DELETE_PRODUCT_SQL = "DELETE FROM product WHERE productID = ?";
+    static final String UNREGISTER_PRODUCT_ID_SQL = "DELETE FROM product_ids WHERE productID = ?";
+    static final String EXPIRED_PRODUCTS_SQL = "SELECT productID, productName, expirationDate FROM product WHERE expirationDate < CURDATE()";
+    static final String MARKDOWN_PRODUCTS_SQL = "SELECT * FROM product WHERE expirationDate BETWEEN ? AND ?";
+
+    static final String VIEW_STORES_SQL = "SELECT * FROM stores";
+    static final String ALL_STORES_SQL = "SELECT store_id, store_name, address, city, state, zip, phone, store_type, opening_date, version FROM stores";
+    static final String STORE_BY_ID_SQL = "SELECT store_id, store_name, address, city, state, zip, phone, store_type, opening_date, version FROM stores WHERE store_id = ?";
+    static final String STORE_IDS_SQL = "SELECT store_id FROM stores UNION SELECT store_id FROM product "
+            + "ORDER BY store_id";
+    static final String STORE_VERSION_SQL = "SELECT version FROM stores WHERE store_id = ?";
+    static final String DELETE_STORE_SQL = "DELETE FROM stores WHERE store_id = ?";
+    static final String UPDATE_STORE_SQL = "UPDATE stores SET store_name = ?, address = ?, city = ?, state = ?, zip = ?, phone = ?, store_type = ?, version = version + 1 WHERE store_id = ? AND version = ?";
+
+    static final String ALL_PURCHASE_ORDERS_SQL = "SELECT po_number, productID, quantity, order_date, deliverydate, tracking_number, version FROM purchase_orders";
+    static final String PURCHASE_ORDER_BY_NUMBER_SQL = "SELECT po_number, productID, quantity, order_date, deliverydate, tracking_number, version FROM purchase_orders WHERE po_number = ?";
+    static final String UPDATE_PURCHASE_ORDER_SQL = "UPDATE purchase_orders SET productID = ?, quantity = ?, order_date = ?, tracking_number = ?, version = version + 1 WHERE po_number = ? AND version = ?";
+    static final String MARK_DELIVERED_SQL = "UPDATE purchase_orders SET deliverydate = ?, version = version + 1 WHERE po_number = ? AND version = ?";
+    static final String DELETE_PURCHASE_ORDER_SQL = "DELETE FROM purchase_orders WHERE po_number = ? AND version = ?";
+    static final String ROLLUPS_SQL = "SELECT bucket_start, orders, units, delivered, lead_days FROM purchase_order_rollups "
+            + "WHERE dimension = ? AND dimension_key = ? AND granularity = ? AND bucket_start BETWEEN ? AND ? "
+            + "ORDER BY bucket_start";
+
+    // Statements on the login and stock-update paths; StartupWarmup prepares
+    // these on every pooled connection so the driver's statement cache is hot
+    static final List<String> WARM_UP_SQL = List.of(USER_EXISTS_SQL, AUTHENTICATE_SQL, PRODUCT_BY_ID_SQL,
+            UPDATE_QUANTITY_SQL);
+
+    // Valuation grouped by one dimension; the column comes from the enum, never
+    // from user input
+    static String valuationSql(ValuationDimension dimension) {
+        String column = dimension.getColumn();
+        return "SELECT " + column + ", COUNT(*), COALESCE(SUM(quantity), 0), "
+                + "COALESCE(SUM(quantity * price), 0) FROM product GROUP BY " + column;
+    }
+
+    // Constructor that borrows a connection to the MySQL database from the pool
     public DatabaseManager() {
         try {
-            String url = "jdbc:mysql://localhost:3306/applicationdb";
-            String user = "root";
-            String password = "password";
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            this.connection = DriverManager.getConnection(url, user, password);
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException("JDBC Driver not found: " + e.getMessage(), e);
+            long connectStart = System.nanoTime();
+            this.connection = ConnectionPool.getInstance().borrow();
+            this.pooled = connection;
+            this.connectionWaitNanos = System.nanoTime() - connectStart;
         } catch (SQLException e) {
             throw new RuntimeException("Unable to connect to the database: " + e.getMessage(), e);
         }
@@ -38,130 +113,140 @@ public class DatabaseManager implements AutoCloseable {
 
     // Check if a user exists by email
     public boolean userExists(String email) throws SQLException {
-        String query = "SELECT COUNT(*) AS count FROM users WHERE email = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            stmt.setString(1, email);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("count") > 0;
+        String query = USER_EXISTS_SQL;
+        return timed("userExists", query, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                stmt.setString(1, email);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getInt("count") > 0;
+                    }
                 }
             }
-        }
-        return false;
+            return false;
+        }, email);
     }
 
     public void addUser(User newUser) throws SQLException {
-        // Assuming 'connection' is a class member of type java.sql.Connection that has
-        // been initialized elsewhere
-        // Start a transaction
-        connection.setAutoCommit(false);
-        try {
-            // Prepare the SQL statement for inserting a new user
-            String insertQuery = "INSERT INTO users (first_name, last_name, phone_number, email, password, role) VALUES (?, ?, ?, ?, ?, ?)";
-
-            // Create a PreparedStatement for executing the query
-            try (PreparedStatement stmt = connection.prepareStatement(insertQuery, Statement.RETURN_GENERATED_KEYS)) { // ID
-                // Set the parameters for the PreparedStatement
-                stmt.setString(1, newUser.getFirstName());
-                stmt.setString(2, newUser.getLastName());
-                stmt.setString(3, newUser.getPhoneNumber());
-                stmt.setString(4, newUser.getEmail());
-                stmt.setString(5, newUser.getPassword()); // Ensure that you hash the password before storing it
-                stmt.setString(6, newUser.getRole().toString());
-
-                // Execute the update
-                int affectedRows = stmt.executeUpdate();
-                if (affectedRows == 0) {
-                    throw new SQLException("Creating user failed, no rows affected.");
-                }
-
-                // Retrieve the generated key (user ID)
-                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        newUser.setUserId(generatedKeys.getInt(1)); // Assuming User class has a setId method to store
-                                                                    // the ID
-                    } else {
-                        throw new SQLException("Creating user failed, no ID obtained.");
+        // Prepare the SQL statement for inserting a new user
+        String insertQuery = "INSERT INTO users (first_name, last_name, phone_number, email, password, role) VALUES (?, ?, ?, ?, ?, ?)";
+        timed("addUser", insertQuery, () -> {
+            // Assuming 'connection' is a class member of type java.sql.Connection that has
+            // been initialized elsewhere
+            // Start a transaction
+            connection.setAutoCommit(false);
+            try {
+                // Create a PreparedStatement for executing the query
+                try (PreparedStatement stmt = connection.prepareStatement(insertQuery, Statement.RETURN_GENERATED_KEYS)) { // ID
+                    // Set the parameters for the PreparedStatement
+                    stmt.setString(1, newUser.getFirstName());
+                    stmt.setString(2, newUser.getLastName());
+                    stmt.setString(3, newUser.getPhoneNumber());
+                    stmt.setString(4, newUser.getEmail());
+                    stmt.setString(5, newUser.getPassword()); // Ensure that you hash the password before storing it
+                    stmt.setString(6, newUser.getRole().toString());
+
+                    // Execute the update
+                    int affectedRows = stmt.executeUpdate();
+                    if (affectedRows == 0) {
+                        throw new SQLException("Creating user failed, no rows affected.");
                     }
-                }
 
-                // Commit the transaction
-                connection.commit();
-            } catch (SQLException e) {
-                // Rollback the transaction in case of an error
+                    // Retrieve the generated key (user ID)
+                    try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            newUser.setUserId(generatedKeys.getInt(1)); // Assuming User class has a setId method to store
+                                                                        // the ID
+                        } else {
+                            throw new SQLException("Creating user failed, no ID obtained.");
+                        }
+                    }
+
+                    // Commit the transaction
+                    connection.commit();
+                } catch (SQLException e) {
+                    // Rollback the transaction in case of an error
+                    if (connection != null) {
+                        connection.rollback();
+                    }
+                    // Re-throw the exception to be handled elsewhere
+                    throw e;
+                }
+            } finally {
+                // Reset auto-commit to its default state
                 if (connection != null) {
-                    connection.rollback();
+                    connection.setAutoCommit(true);
                 }
-                // Re-throw the exception to be handled elsewhere
-                throw e;
-            }
-        } finally {
-            // Reset auto-commit to its default state
-            if (connection != null) {
-                connection.setAutoCommit(true);
             }
-        }
+        }, newUser.getFirstName(), newUser.getLastName(), newUser.getPhoneNumber(), newUser.getEmail(),
+                newUser.getPassword(), newUser.getRole().toString());
     }
 
     // Check if a user ID already exists in the database
     public boolean userIdExists(int userId) throws SQLException {
-        String query = "SELECT COUNT(*) AS count FROM users WHERE user_id = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            stmt.setInt(1, userId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("count") > 0; // If count is greater than 0, the user ID exists
+        String query = USER_ID_EXISTS_SQL;
+        return timed("userIdExists", query, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                stmt.setInt(1, userId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getInt("count") > 0; // If count is greater than 0, the user ID exists
+                    }
                 }
             }
-        }
-        return false; // If no count is found, the user ID does not exist
+            return false; // If no count is found, the user ID does not exist
+        }, userId);
     }
 
     // Get a user by email
     public User getUserByEmail(String email) throws SQLException {
-        String query = "SELECT * FROM users WHERE email = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            stmt.setString(1, email);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return new User(
-                            rs.getInt("user_id"),
-                            rs.getString("first_name"),
-                            rs.getString("last_name"),
-                            rs.getString("phone_number"),
-                            rs.getString("email"),
-                            rs.getString("password"),
-                            UserRole.valueOf(rs.getString("role")));
+        String query = USER_BY_EMAIL_SQL;
+        return timed("getUserByEmail", query, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                stmt.setString(1, email);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return new User(
+                                rs.getInt("user_id"),
+                                rs.getString("first_name"),
+                                rs.getString("last_name"),
+                                rs.getString("phone_number"),
+                                rs.getString("email"),
+                                rs.getString("password"),
+                                UserRole.valueOf(rs.getString("role")));
+                    }
                 }
             }
-        }
-        return null;
+            return null;
+        }, email);
     }
 
     public User authenticateUser(String email, String phoneNumber) throws SQLException {
-        // The query should select a user where the email and password match
-        String query = "SELECT * FROM users WHERE email = ? AND password = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            stmt.setString(1, email);
-            stmt.setString(2, phoneNumber); // This assumes you are storing the phone number in plain text as a
-                                            // password, which is not recommended for real applications
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    // If a row is returned, the user is authenticated
-                    return new User(
-                            rs.getInt("user_id"),
-                            rs.getString("first_name"),
-                            rs.getString("last_name"),
-                            rs.getString("phone_number"),
-                            rs.getString("email"),
-                            rs.getString("password"),
-                            UserRole.valueOf(rs.getString("role")));
+        String query = AUTHENTICATE_SQL;
+        return timed("authenticateUser", query, () -> {
+            // The query should select a user where the email and password match
+            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                stmt.setString(1, email);
+                stmt.setString(2, phoneNumber); // This assumes you are storing the phone number in plain text as a
+                                                // password, which is not recommended for real applications
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        // If a row is returned, the user is authenticated
+                        return new User(
+                                rs.getInt("user_id"),
+                                rs.getString("first_name"),
+                                rs.getString("last_name"),
+                                rs.getString("phone_number"),
+                                rs.getString("email"),
+                                rs.getString("password"),
+                                UserRole.valueOf(rs.getString("role")));
+                    }
                 }
             }
-        }
-        // If no row is returned, then the user is not found or password does not match
-        return null;
+            // If no row is returned, then the user is not found or password does not match
+            return null;
+        }, email, phoneNumber);
     }
 
     // Assign manager role via admin
@@ -171,289 +256,531 @@ public class DatabaseManager implements AutoCloseable {
 
     // Update a user's role
     public void updateUserRole(String email, UserRole newRole) throws SQLException {
-        String update = "UPDATE users SET role = ? WHERE email = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(update)) {
-            stmt.setString(1, newRole.toString());
-            stmt.setString(2, email);
-            stmt.executeUpdate();
-        }
+        String update = UPDATE_USER_ROLE_SQL;
+        timed("updateUserRole", update, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement(update)) {
+                stmt.setString(1, newRole.toString());
+                stmt.setString(2, email);
+                stmt.executeUpdate();
+            }
+        }, newRole.toString(), email);
     }
 
     // Admin delete users method
     public void deleteUserByEmail(String email) throws SQLException {
-        String sql = "DELETE FROM users WHERE email = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, email);
-            stmt.executeUpdate();
-        }
+        String sql = DELETE_USER_SQL;
+        timed("deleteUserByEmail", sql, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, email);
+                stmt.executeUpdate();
+            }
+        }, email);
     }
 
     // Method to retrieve all users from the database
     public List<User> getAllUsers() throws SQLException {
-        List<User> users = new ArrayList<>();
-        String query = "SELECT * FROM users";
-        try (Connection connection = this.getConnection();
-                Statement stmt = connection.createStatement();
-                ResultSet rs = stmt.executeQuery(query)) {
-
-            while (rs.next()) {
-                User user = new User(
-                        rs.getInt("user_id"), // UserID
-                        rs.getString("first_name"), // FirstName
-                        rs.getString("last_name"), // LastName
-                        rs.getString("phone_number"), // PhoneNumber
-                        rs.getString("email"), // Email
-                        rs.getString("password"), // Password
-                        UserRole.valueOf(rs.getString("role")) // Role
-                );
-
-                users.add(user);
+        String query = ALL_USERS_SQL;
+        return timed("getAllUsers", query, () -> {
+            try (Statement stmt = connection.createStatement();
+                    ResultSet rs = stmt.executeQuery(query)) {
+                return RowMappers.mapAll(rs, RowMappers.user(rs));
             }
-        }
-        return users;
+        });
     }
 
     // Method to retrieve all products from the database
     public List<Product> getAllProducts() throws SQLException {
-        List<Product> products = new ArrayList<>();
-        String query = "SELECT * FROM Product"; // Adjust the table name and columns as necessary
-        try (Connection connection = getConnection(); // Ensure you have a connection here
-                Statement stmt = connection.createStatement();
-                ResultSet rs = stmt.executeQuery(query)) {
-            while (rs.next()) {
-                LocalDate expirationDate = null;
-                if (rs.getDate("expirationDate") != null) {
-                    expirationDate = rs.getDate("expirationDate").toLocalDate();
-                }
-
-                LocalDate markdownDate = null;
-                if (rs.getDate("markdownDate") != null) {
-                    markdownDate = rs.getDate("markdownDate").toLocalDate();
-                }
-
-                // Assuming Product constructor is properly defined to accept these arguments
-                Product product = new Product(
-                        rs.getString("productName"),
-                        expirationDate,
-                        markdownDate,
-                        rs.getInt("quantity"),
-                        rs.getString("manufacturer"),
-                        rs.getString("brand"),
-                        rs.getDouble("price"),
-                        rs.getString("category"));
-                product.setProductID(rs.getInt("productID"));
-                products.add(product);
+        String query = ALL_PRODUCTS_SQL; // Adjust the table name and columns as necessary
+        return timed("getAllProducts", query, () -> {
+            try (Statement stmt = connection.createStatement();
+                    ResultSet rs = stmt.executeQuery(query)) {
+                return RowMappers.mapAll(rs, RowMappers.product(rs));
             }
-        }
-        return products;
+        });
+    }
+
+    // Products held by one store; the store_id predicate lets MySQL prune every
+    // other partition of the product table
+    public List<Product> getProductsByStore(int storeId) throws SQLException {
+        String query = PRODUCTS_BY_STORE_SQL;
+        return timed("getProductsByStore", query, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                stmt.setInt(1, storeId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return RowMappers.mapAll(rs, RowMappers.product(rs));
+                }
+            }
+        }, storeId);
+    }
+
+    // Units, stock value and units expiring within the given number of days for
+    // one store, computed inside that store's partition
+    public StoreInventoryTotals getStoreInventoryTotals(int storeId, int expiringWithinDays) throws SQLException {
+        String query = STORE_TOTALS_SQL;
+        LocalDate today = LocalDate.now();
+        LocalDate expiringBy = today.plusDays(expiringWithinDays);
+        return timed("getStoreInventoryTotals", query, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                stmt.setDate(1, java.sql.Date.valueOf(today));
+                stmt.setDate(2, java.sql.Date.valueOf(expiringBy));
+                stmt.setInt(3, storeId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    return new StoreInventoryTotals(storeId, rs.getLong(1), rs.getDouble(2), rs.getLong(3));
+                }
+            }
+        }, today, expiringBy, storeId);
     }
 
-    // Method to add products
+    // Units and stock value per group of one dimension, grouped by MySQL
+    public List<ValuationLine> getInventoryValuation(ValuationDimension dimension) throws SQLException {
+        String query = valuationSql(dimension);
+        return timed("getInventoryValuation", query, () -> {
+            List<ValuationLine> lines = new ArrayList<>();
+            try (Statement stmt = connection.createStatement();
+                    ResultSet rs = stmt.executeQuery(query)) {
+                while (rs.next()) {
+                    String key = rs.getString(1);
+                    lines.add(new ValuationLine(key != null ? key : ValuationDimension.NONE, rs.getLong(2),
+                            rs.getLong(3), rs.getDouble(4)));
+                }
+            }
+            return lines;
+        });
+    }
+
+    // Method to add products. Every prompt comes before the connection is
+    // borrowed, so the pool isn't held while the clerk types.
     public static void addProduct(Scanner scanner) throws SQLException {
         System.out.println("Adding a new product...");
-        try (DatabaseManager dbManager = new DatabaseManager()) {
-            Connection connection = dbManager.getConnection();
-
-            connection.setAutoCommit(false);
+        // Prompt user for product details
+        System.out.print("Enter product name: ");
+        String productName = scanner.nextLine();
+
+        System.out.print("Enter expiration date (YYYY-MM-DD) or press Enter if none: ");
+        String expirationDateInput = scanner.nextLine();
+        LocalDate expirationDate = null;
+        if (!expirationDateInput.isEmpty()) {
+            expirationDate = LocalDate.parse(expirationDateInput);
+        }
 
-            // Prompt user for product details
-            System.out.print("Enter product name: ");
-            String productName = scanner.nextLine();
+        System.out.print("Enter markdown date (YYYY-MM-DD) or press Enter if none: ");
+        String markdownDateInput = scanner.nextLine();
+        LocalDate markdownDate = null;
+        if (!markdownDateInput.isEmpty()) {
+            markdownDate = LocalDate.parse(markdownDateInput);
+        }
 
-            System.out.print("Enter expiration date (YYYY-MM-DD) or press Enter if none: ");
-            String expirationDateInput = scanner.nextLine();
-            LocalDate expirationDate = null;
-            if (!expirationDateInput.isEmpty()) {
-                expirationDate = LocalDate.parse(expirationDateInput);
-            }
+        System.out.print("Enter quantity: ");
+        int quantity = scanner.nextInt();
+        scanner.nextLine(); // consume the newline left behind by nextInt()
 
-            System.out.print("Enter markdown date (YYYY-MM-DD) or press Enter if none: ");
-            String markdownDateInput = scanner.nextLine();
-            LocalDate markdownDate = null;
-            if (!markdownDateInput.isEmpty()) {
-                markdownDate = LocalDate.parse(markdownDateInput);
-            }
+        System.out.print("Enter manufacturer: ");
+        String manufacturer = scanner.nextLine();
 
-            System.out.print("Enter quantity: ");
-            int quantity = scanner.nextInt();
-            scanner.nextLine(); // consume the newline left behind by nextInt()
+        System.out.print("Enter brand: ");
+        String brand = scanner.nextLine();
 
-            System.out.print("Enter manufacturer: ");
-            String manufacturer = scanner.nextLine();
+        System.out.print("Enter category: ");
+        String category = scanner.nextLine();
 
-            System.out.print("Enter brand: ");
-            String brand = scanner.nextLine();
+        System.out.print("Enter price: ");
+        double price = scanner.nextDouble();
+        scanner.nextLine(); // consume the newline
 
-            System.out.print("Enter category: ");
-            String category = scanner.nextLine();
+        System.out.print("Enter store ID: ");
+        int storeId = scanner.nextInt();
+        scanner.nextLine(); // consume the newline
 
-            System.out.print("Enter price: ");
-            double price = scanner.nextDouble();
-            scanner.nextLine(); // consume the newline
+        // Assume the Product constructor takes these parameters in the same order
+        Product product = new Product(productName, expirationDate, markdownDate, quantity, manufacturer, brand,
+                price, category);
+        product.setStoreId(storeId);
 
-            // Assume the Product constructor takes these parameters in the same order
-            Product product = new Product(productName, expirationDate, markdownDate, quantity, manufacturer, brand,
-                    price, category);
+        try (DatabaseManager dbManager = new DatabaseManager()) {
+            if (dbManager.getStoreByID(storeId) == null) {
+                System.out.println("No store with ID " + storeId + ".");
+                return;
+            }
 
-            // are closed automatically
-            connection.setAutoCommit(false); // Ensure auto-commit is off if handling transactions manually
+            // Only the database work is timed, not the prompts
+            try {
+                dbManager.insertProduct(product);
+            } catch (SQLException e) {
+                System.out.println("SQL Error: " + e.getMessage());
+                e.printStackTrace();
+            }
+        } catch (SQLException e) {
+            System.out.println("Database connection error: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 
-            String insert = "INSERT INTO product (productName, expirationDate, markdownDate, quantity, manufacturer, brand, price, category) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    // Insert a product into its store's partition and return its generated id,
+    // which is also set on the product. The id is registered in product_ids in
+    // the same transaction, so a productID can't end up under two stores. The
+    // add-product menus go through here so inventory listeners see every new
+    // product.
+    public int insertProduct(Product product) throws SQLException {
+        String insert = "INSERT INTO product (productName, expirationDate, markdownDate, quantity, manufacturer, brand, price, category, store_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        int productId = timed("addProduct", insert, () -> inTransaction(() -> {
+            int generatedId;
             try (PreparedStatement stmt = connection.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS)) {
-                // Set the prepared statement parameters with product details
-                stmt.setString(1, product.getProductName()); // productName
-                if (expirationDate != null) {
-                    stmt.setDate(2, java.sql.Date.valueOf(expirationDate)); // expirationDate
+                stmt.setString(1, product.getProductName());
+                if (product.getExpirationDate() != null) {
+                    stmt.setDate(2, java.sql.Date.valueOf(product.getExpirationDate()));
                 } else {
                     stmt.setNull(2, Types.DATE);
                 }
-                if (markdownDate != null) {
-                    stmt.setDate(3, java.sql.Date.valueOf(markdownDate)); // markdownDate
+                if (product.getMarkdownDate() != null) {
+                    stmt.setDate(3, java.sql.Date.valueOf(product.getMarkdownDate()));
                 } else {
                     stmt.setNull(3, Types.DATE);
                 }
-                stmt.setInt(4, quantity); // quantity
-                stmt.setString(5, manufacturer); // manufacturer
-                stmt.setString(6, brand); // brand
-                stmt.setDouble(7, price); // price
-                stmt.setString(8, category); // category
-
-                // Execute the update
-                int affectedRows = stmt.executeUpdate();
-                if (affectedRows == 0) {
+                stmt.setInt(4, product.getQuantity());
+                stmt.setString(5, product.getManufacturer());
+                stmt.setString(6, product.getBrand());
+                stmt.setDouble(7, product.getPrice());
+                stmt.setString(8, product.getCategory());
+                stmt.setInt(9, product.getStoreId());
+
+                if (stmt.executeUpdate() == 0) {
                     throw new SQLException("Inserting product failed, no rows affected.");
                 }
-
-                // If you need to retrieve generated keys, do it here
-
-                connection.commit();
-            } catch (SQLException e) {
-                // Rollback transaction if exception occurs
-                if (connection != null) {
-                    connection.rollback();
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (!generatedKeys.next()) {
+                        throw new SQLException("Inserting product failed, no id generated.");
+                    }
+                    generatedId = generatedKeys.getInt(1);
                 }
-                System.out.println("SQL Error: " + e.getMessage());
-                e.printStackTrace();
             }
-        } catch (SQLException e) {
-            System.out.println("Database connection error: " + e.getMessage());
-            e.printStackTrace();
-        }
+            try (PreparedStatement stmt = connection.prepareStatement(REGISTER_PRODUCT_ID_SQL)) {
+                stmt.setInt(1, generatedId);
+                stmt.executeUpdate();
+            }
+            return generatedId;
+        }), product.getProductName(), product.getExpirationDate(), product.getMarkdownDate(), product.getQuantity(),
+                product.getManufacturer(), product.getBrand(), product.getPrice(), product.getCategory(),
+                product.getStoreId());
+        product.setProductID(productId);
+        notifyInventoryListeners(listener -> listener.productSaved(product));
+        return productId;
     }
 
     public void deleteProduct(int productID) throws SQLException {
-        String delete = "DELETE FROM product WHERE productID = ?"; // Ensure 'productID' is the correct column name
-        try (PreparedStatement stmt = connection.prepareStatement(delete)) {
-            stmt.setInt(1, productID);
-            stmt.executeUpdate();
+        String delete = DELETE_PRODUCT_SQL; // Ensure 'productID' is the correct column name
+        boolean deleted = timed("deleteProduct", delete, () -> inTransaction(() -> {
+            try (PreparedStatement stmt = connection.prepareStatement(delete)) {
+                stmt.setInt(1, productID);
+                if (stmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+            try (PreparedStatement stmt = connection.prepareStatement(UNREGISTER_PRODUCT_ID_SQL)) {
+                stmt.setInt(1, productID);
+                stmt.executeUpdate();
+            }
+            return true;
+        }), productID);
+        if (deleted) {
+            notifyInventoryListeners(listener -> listener.productDeleted(productID));
         }
     }
 
-    // Method to update the quantity of a product in the database
+    // Method to update the quantity of a product in the database. The write is
+    // conditional on the row version, so a concurrent change costs a retry
+    // instead of a lock wait
     public boolean updateProductQuantity(int productId, int newQuantity) throws SQLException {
-        String updateSql = "UPDATE product SET quantity = ? WHERE productID = ?";
-        try (PreparedStatement stmt = this.connection.prepareStatement(updateSql)) {
+        // The version slot is filled in once it has been read
+        Object[] parameters = { newQuantity, productId, null };
+        return timed("updateProductQuantity", UPDATE_QUANTITY_SQL,
+                () -> updateWithRetry("product", PRODUCT_VERSION_SQL, productId,
+                        version -> {
+                            parameters[2] = version;
+                            return writeProductQuantity(productId, newQuantity, version);
+                        }),
+                parameters);
+    }
+
+    // Conditional update for callers that already hold the version they read;
+    // returns false if another clerk changed the product in the meantime
+    public boolean updateProductQuantity(int productId, int newQuantity, int expectedVersion) throws SQLException {
+        return timed("updateProductQuantityIfVersion", UPDATE_QUANTITY_SQL,
+                () -> writeProductQuantity(productId, newQuantity, expectedVersion),
+                newQuantity, productId, expectedVersion);
+    }
+
+    // The versioned write itself, untimed so callers that are already timed
+    // don't record it twice
+    private boolean writeProductQuantity(int productId, int newQuantity, int expectedVersion) throws SQLException {
+        try (PreparedStatement stmt = this.connection.prepareStatement(UPDATE_QUANTITY_SQL)) {
             stmt.setInt(1, newQuantity);
             stmt.setInt(2, productId);
-            int affectedRows = stmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            // You may want to log this exception or handle it as per your application's
-            // requirements.
-            throw e; // Re-throwing the exception to indicate failure
+            stmt.setInt(3, expectedVersion);
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
         }
+        notifyInventoryListeners(listener -> listener.productQuantityChanged(productId, newQuantity));
+        return true;
+    }
+
+    // Conditional update against a product as it was read (getProductByID):
+    // checks its version, and names its store so only that partition is
+    // probed. Returns false if another clerk changed the product in the meantime.
+    public boolean updateProductQuantity(Product product, int newQuantity) throws SQLException {
+        int productId = product.getProductID();
+        return timed("updateProductQuantity(product)", UPDATE_STORE_QUANTITY_SQL, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement(UPDATE_STORE_QUANTITY_SQL)) {
+                stmt.setInt(1, newQuantity);
+                stmt.setInt(2, productId);
+                stmt.setInt(3, product.getStoreId());
+                stmt.setInt(4, product.getVersion());
+                if (stmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+            notifyInventoryListeners(listener -> listener.productQuantityChanged(productId, newQuantity));
+            return true;
+        }, newQuantity, productId, product.getStoreId(), product.getVersion());
+    }
+
+    // Change a product's expiration date (null: it doesn't expire). Versioned
+    // like the quantity update; returns false if there is no such product.
+    public boolean updateProductExpiration(int productId, LocalDate expirationDate) throws SQLException {
+        String query = UPDATE_EXPIRATION_SQL;
+        Object[] parameters = { expirationDate, productId, null };
+        return timed("updateProductExpiration", query, () -> {
+            boolean updated = updateWithRetry("product", PRODUCT_VERSION_SQL,
+                    productId, version -> {
+                        parameters[2] = version;
+                        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                            stmt.setDate(1, Date.toSqlDate(expirationDate));
+                            stmt.setInt(2, productId);
+                            stmt.setInt(3, version);
+                            return stmt.executeUpdate() > 0;
+                        }
+                    });
+            if (updated) {
+                notifyInventoryListeners(listener -> listener.productExpirationChanged(productId, expirationDate));
+            }
+            return updated;
+        }, parameters);
+    }
+
+    // Add or remove stock relative to the current quantity (read-modify-write
+    // with retry). Removing more than is in stock throws
+    // InsufficientStockException and changes nothing.
+    public boolean adjustProductQuantity(int productId, int delta) throws SQLException {
+        String query = PRODUCT_QUANTITY_SQL;
+        return timed("adjustProductQuantity", query, () -> {
+            CONCURRENCY_METRICS.recordUpdate();
+            for (int attempt = 1;; attempt++) {
+                int quantity;
+                int version;
+                try (PreparedStatement stmt = connection.prepareStatement(query)) {
+                    stmt.setInt(1, productId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            return false; // No such product
+                        }
+                        quantity = rs.getInt("quantity");
+                        version = rs.getInt("version");
+                    }
+                }
+                if (quantity + delta < 0) {
+                    throw new InsufficientStockException(productId, quantity, delta);
+                }
+                if (writeProductQuantity(productId, quantity + delta, version)) {
+                    return true;
+                }
+                retryOrGiveUp("product", productId, attempt);
+            }
+        }, productId);
     }
 
     public void viewAllStores() throws SQLException {
-        String query = "SELECT * FROM stores";
-        try (Connection conn = this.getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(query)) {
-
-            // Print table header
-            System.out.println("\033[35m" + // ANSI purple text color
-                    String.format("%-10s %-20s %-20s %-15s %-15s %-10s %-15s %-15s %-15s",
-                            "Store ID", "Store Name", "Address", "City", "State", "ZIP", "Phone", "Store Type",
-                            "Opening Date")
-                    +
-                    "\033[0m"); // Reset color
-
-            // Print table rows
-            while (rs.next()) {
-                int storeId = rs.getInt("store_id");
-                String storeName = rs.getString("store_name");
-                String address = rs.getString("address");
-                String city = rs.getString("city");
-                String state = rs.getString("state");
-                int zip = rs.getInt("zip");
-                String phone = rs.getString("phone");
-                String storeType = rs.getString("store_type");
-                java.sql.Date openingDate = rs.getDate("opening_date");
+        String query = VIEW_STORES_SQL;
+        timed("viewAllStores", query, () -> {
+            try (Statement stmt = connection.createStatement();
+                    ResultSet rs = stmt.executeQuery(query)) {
 
+                // Print table header
                 System.out.println("\033[35m" + // ANSI purple text color
-                        String.format("%-10d %-20s %-20s %-15s %-15s %-10d %-15s %-15s %-15tF",
-                                storeId, storeName, address, city, state, zip, phone, storeType, openingDate)
+                        String.format("%-10s %-20s %-20s %-15s %-15s %-10s %-15s %-15s %-15s",
+                                "Store ID", "Store Name", "Address", "City", "State", "ZIP", "Phone", "Store Type",
+                                "Opening Date")
                         +
                         "\033[0m"); // Reset color
+
+                // Print table rows
+                while (rs.next()) {
+                    int storeId = rs.getInt("store_id");
+                    String storeName = rs.getString("store_name");
+                    String address = rs.getString("address");
+                    String city = rs.getString("city");
+                    String state = rs.getString("state");
+                    int zip = rs.getInt("zip");
+                    String phone = rs.getString("phone");
+                    String storeType = rs.getString("store_type");
+                    java.sql.Date openingDate = rs.getDate("opening_date");
+
+                    System.out.println("\033[35m" + // ANSI purple text color
+                            String.format("%-10d %-20s %-20s %-15s %-15s %-10d %-15s %-15s %-15tF",
+                                    storeId, storeName, address, city, state, zip, phone, storeType, openingDate)
+                            +
+                            "\033[0m"); // Reset color
+                }
             }
-        }
+        });
+    }
+
+    // Method to retrieve all stores from the database
+    public List<Store> getAllStores() throws SQLException {
+        String query = ALL_STORES_SQL;
+        return timed("getAllStores", query, () -> {
+            List<Store> stores = new ArrayList<>();
+            try (Statement stmt = connection.createStatement();
+                    ResultSet rs = stmt.executeQuery(query)) {
+                while (rs.next()) {
+                    java.sql.Date openingDate = rs.getDate("opening_date");
+                    Store store = new Store(
+                            rs.getInt("store_id"),
+                            rs.getString("store_name"),
+                            rs.getString("address"),
+                            rs.getString("city"),
+                            rs.getString("state"),
+                            rs.getInt("zip"),
+                            rs.getString("phone"),
+                            rs.getString("store_type"),
+                            openingDate != null ? openingDate.toLocalDate() : null);
+                    store.setVersion(rs.getInt("version"));
+                    stores.add(store);
+                }
+            }
+            return stores;
+        });
+    }
+
+    // Ids of every store plus any store_id that still has stock without a
+    // stores row, i.e. every inventory partition in use
+    public List<Integer> getStoreIds() throws SQLException {
+        String query = STORE_IDS_SQL;
+        return timed("getStoreIds", query, () -> {
+            List<Integer> storeIds = new ArrayList<>();
+            try (Statement stmt = connection.createStatement();
+                    ResultSet rs = stmt.executeQuery(query)) {
+                while (rs.next()) {
+                    storeIds.add(rs.getInt(1));
+                }
+            }
+            return storeIds;
+        });
     }
 
     public boolean addStore(int storeId, String storeName, String address, String city, String state, int zip,
             String phone, String storeType, LocalDate openingDate) {
         String query = "INSERT INTO stores (store_id, store_name, address, city, state, zip, phone, store_type, opening_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = this.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setInt(1, storeId);
-            pstmt.setString(2, storeName);
-            pstmt.setString(3, address);
-            pstmt.setString(4, city);
-            pstmt.setString(5, state);
-            pstmt.setInt(6, zip);
-            pstmt.setString(7, phone);
-            pstmt.setString(8, storeType);
-            pstmt.setDate(9, Date.valueOf(openingDate));
-
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+        try {
+            return timed("addStore", query, () -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+
+                    pstmt.setInt(1, storeId);
+                    pstmt.setString(2, storeName);
+                    pstmt.setString(3, address);
+                    pstmt.setString(4, city);
+                    pstmt.setString(5, state);
+                    pstmt.setInt(6, zip);
+                    pstmt.setString(7, phone);
+                    pstmt.setString(8, storeType);
+                    pstmt.setDate(9, Date.toSqlDate(openingDate));
+
+                    int affectedRows = pstmt.executeUpdate();
+                    return affectedRows > 0;
+                }
+            }, storeId, storeName, address, city, state, zip, phone, storeType, openingDate);
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    // Look up one store, with the version an edit screen hands back to updateStore
+    public Store getStoreByID(int storeId) throws SQLException {
+        String query = STORE_BY_ID_SQL;
+        return timed("getStoreByID", query, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+                pstmt.setInt(1, storeId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    java.sql.Date openingDate = rs.getDate("opening_date");
+                    Store store = new Store(
+                            rs.getInt("store_id"),
+                            rs.getString("store_name"),
+                            rs.getString("address"),
+                            rs.getString("city"),
+                            rs.getString("state"),
+                            rs.getInt("zip"),
+                            rs.getString("phone"),
+                            rs.getString("store_type"),
+                            openingDate != null ? openingDate.toLocalDate() : null);
+                    store.setVersion(rs.getInt("version"));
+                    return store;
+                }
+            }
+        }, storeId);
+    }
+
     public boolean updateStore(int storeId, String storeName, String address, String city, String state, int zip,
             String phone, String storeType) {
-        String query = "UPDATE stores SET store_name = ?, address = ?, city = ?, state = ?, zip = ?, phone = ?, store_type = ? WHERE store_id = ?";
-        try (Connection conn = this.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setString(1, storeName);
-            pstmt.setString(2, address);
-            pstmt.setString(3, city);
-            pstmt.setString(4, state);
-            pstmt.setInt(5, zip);
-            pstmt.setString(6, phone);
-            pstmt.setString(7, storeType);
-            pstmt.setInt(8, storeId);
-
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+        // The version slot is filled in once it has been read
+        Object[] parameters = { storeName, address, city, state, zip, phone, storeType, storeId, null };
+        try {
+            return timed("updateStore", UPDATE_STORE_SQL, () -> updateWithRetry("stores",
+                    STORE_VERSION_SQL, storeId, version -> {
+                        parameters[8] = version;
+                        return updateStore(storeId, storeName, address, city, state, zip, phone, storeType, version);
+                    }), parameters);
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    // Conditional update for an edit screen that shows the store first; returns
+    // false if another user changed (or deleted) the store since it was read
+    public boolean updateStore(int storeId, String storeName, String address, String city, String state, int zip,
+            String phone, String storeType, int expectedVersion) throws SQLException {
+        return timed("updateStoreIfVersion", UPDATE_STORE_SQL, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(UPDATE_STORE_SQL)) {
+                pstmt.setString(1, storeName);
+                pstmt.setString(2, address);
+                pstmt.setString(3, city);
+                pstmt.setString(4, state);
+                pstmt.setInt(5, zip);
+                pstmt.setString(6, phone);
+                pstmt.setString(7, storeType);
+                pstmt.setInt(8, storeId);
+                pstmt.setInt(9, expectedVersion);
+
+                return pstmt.executeUpdate() > 0;
+            }
+        }, storeName, address, city, state, zip, phone, storeType, storeId, expectedVersion);
+    }
+
     public boolean deleteStore(int storeId) {
-        String query = "DELETE FROM stores WHERE store_id = ?";
-        try (Connection conn = this.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(query)) {
+        String query = DELETE_STORE_SQL;
+        try {
+            return timed("deleteStore", query, () -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(query)) {
 
-            pstmt.setInt(1, storeId);
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
+                    pstmt.setInt(1, storeId);
+                    int affectedRows = pstmt.executeUpdate();
+                    return affectedRows > 0;
+                }
+            }, storeId);
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
@@ -461,25 +788,26 @@ public class DatabaseManager implements AutoCloseable {
     }
 
     public List<Product> getExpiredProducts() throws SQLException {
-        List<Product> expiredProducts = new ArrayList<>();
-        String query = "SELECT productID, productName, expirationDate FROM product WHERE expirationDate < CURDATE()";
+        String query = EXPIRED_PRODUCTS_SQL;
+        return timed("getExpiredProducts", query, () -> {
+            List<Product> expiredProducts = new ArrayList<>();
 
-        try (Connection connection = this.getConnection();
-                PreparedStatement pstmt = connection.prepareStatement(query);
-                ResultSet rs = pstmt.executeQuery()) {
+            try (PreparedStatement pstmt = connection.prepareStatement(query);
+                    ResultSet rs = pstmt.executeQuery()) {
 
-            while (rs.next()) {
-                int productId = rs.getInt("productID");
-                String productName = rs.getString("productName");
-                LocalDate expirationDate = rs.getDate("expirationDate").toLocalDate();
+                while (rs.next()) {
+                    int productId = rs.getInt("productID");
+                    String productName = rs.getString("productName");
+                    LocalDate expirationDate = rs.getDate("expirationDate").toLocalDate();
 
-                // Create a Product object with the retrieved values
-                Product product = new Product(productId, productName, expirationDate);
-                expiredProducts.add(product);
-            }
+                    // Create a Product object with the retrieved values
+                    Product product = new Product(productId, productName, expirationDate);
+                    expiredProducts.add(product);
+                }
 
-        }
-        return expiredProducts;
+            }
+            return expiredProducts;
+        });
     }
 
     public Connection getConnection() {
@@ -487,178 +815,482 @@ public class DatabaseManager implements AutoCloseable {
     }
 
     // getMarkdownProducts method
+    // Products expiring within the next month. The dates are bound rather than
+    // computed with DATE_ADD, which the embedded backend doesn't have.
     public List<Product> getMarkdownProducts() throws SQLException {
-        List<Product> products = new ArrayList<>();
+        String sql = MARKDOWN_PRODUCTS_SQL;
+        LocalDate today = LocalDate.now();
+        LocalDate monthAhead = today.plusMonths(1);
+        return timed("getMarkdownProducts", sql, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setDate(1, java.sql.Date.valueOf(today));
+                stmt.setDate(2, java.sql.Date.valueOf(monthAhead));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return RowMappers.mapAll(rs, RowMappers.product(rs));
+                }
+            }
+        }, today, monthAhead);
+    }
 
-        String sql = "SELECT * FROM product WHERE expirationDate BETWEEN CURDATE() AND DATE_ADD(CURDATE(), INTERVAL 1 MONTH)";
+    public List<PurchaseOrder> getAllPurchaseOrders() throws SQLException {
+        String query = ALL_PURCHASE_ORDERS_SQL;
+        return timed("getAllPurchaseOrders", query, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(query);
+                    ResultSet rs = pstmt.executeQuery()) {
+                return RowMappers.mapAll(rs, RowMappers.purchaseOrder(rs));
+            }
+        });
+    }
 
-        try (Connection conn = this.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+    public boolean addPurchaseOrder(PurchaseOrder newPurchaseOrder, int quantity, LocalDate orderDate)
+            throws SQLException {
+        String query = "INSERT INTO purchase_orders (po_number, productID, quantity, order_date, tracking_number) VALUES (?, ?, ?, ?, ?)";
+        // The PO and tracking numbers are filled in once allocated
+        Object[] parameters = { null, newPurchaseOrder.getProductID(), quantity, orderDate, null };
+        return timed("addPurchaseOrder", query, () -> {
+            // Numbers come from pre-reserved sequence blocks, so they never collide
+            // and usually cost no round trip
+            if (newPurchaseOrder.getPoNumber() <= 0) {
+                newPurchaseOrder.setPoNumber(Math.toIntExact(IdAllocator.poNumbers().next()));
+            }
+            if (newPurchaseOrder.getTrackingNumber() == null || newPurchaseOrder.getTrackingNumber().isEmpty()) {
+                newPurchaseOrder.setTrackingNumber(TrackingNumberGenerator.shared().next());
+            }
+            int poNumber = newPurchaseOrder.getPoNumber();
+            String trackingNumber = newPurchaseOrder.getTrackingNumber();
+            parameters[0] = poNumber;
+            parameters[4] = trackingNumber;
+
+            try {
+                // The order and its rollup rows are written together
+                boolean added = inTransaction(() -> {
+                    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+
+                        pstmt.setInt(1, poNumber);
+                        pstmt.setInt(2, newPurchaseOrder.getProductID()); // Extract productID from newPurchaseOrder
+                        pstmt.setInt(3, quantity);
+                        pstmt.setDate(4, Date.toSqlDate(orderDate));
+                        pstmt.setString(5, trackingNumber);
+
+                        if (pstmt.executeUpdate() == 0) {
+                            return false;
+                        }
+                    }
+                    PurchaseOrder placed = new PurchaseOrder(poNumber, orderDate, null);
+                    placed.setProductID(newPurchaseOrder.getProductID());
+                    placed.setQuantity(quantity);
+                    PurchaseOrderRollups rollups = new PurchaseOrderRollups();
+                    rollups.add(placed);
+                    rollups.flush(connection);
+                    return true;
+                });
+                if (added) {
+                    notifyInventoryListeners(listener -> listener.purchaseOrderAdded(poNumber, true));
+                }
+                return added;
+            } catch (SQLException e) {
+                handleSQLException(e);
+            }
+            return false;
+        }, parameters);
+    }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    // Assuming you have a constructor in Product class that takes ResultSet
-                    Product product = new Product(rs);
-                    products.add(product);
+    public Product getProductByID(int productID) throws SQLException {
+        String query = PRODUCT_BY_ID_SQL;
+        return timed("getProductByID", query, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+
+                pstmt.setInt(1, productID);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        Product product = new Product();
+                        product.setProductID(rs.getInt("productID"));
+                        product.setDescription(rs.getString("description"));
+                        product.setProductName(rs.getString("productName"));
+                        product.setQuantity(rs.getInt("quantity"));
+                        product.setStoreId(rs.getInt("store_id"));
+                        // The version a screen showing this product passes back
+                        // to the conditional updateProductQuantity
+                        product.setVersion(rs.getInt("version"));
+
+                        // Check for null values and convert to LocalDate if not null
+                        java.sql.Date expirationDate = rs.getDate("expirationDate");
+                        if (expirationDate != null) {
+                            product.setExpirationDate(expirationDate.toLocalDate());
+                        }
+
+                        java.sql.Date markdownDate = rs.getDate("markdownDate");
+                        if (markdownDate != null) {
+                            product.setMarkdownDate(markdownDate.toLocalDate());
+                        }
+
+                        // Set other attributes in a similar manner
+
+                        return product;
+                    }
                 }
+            } catch (SQLException e) {
+                // Handle any exceptions here
+                e.printStackTrace();
+                throw e; // You might want to handle this exception differently
             }
-        }
-        return products;
+
+            // Return null if no product found with the given productID
+            return null;
+        }, productID);
     }
 
-    public List<PurchaseOrder> getAllPurchaseOrders() throws SQLException {
-        List<PurchaseOrder> purchaseOrders = new ArrayList<>();
-        String query = "SELECT purchaseOrderID, orderDate, deliverydate, /* other columns */ FROM purchase_orders";
+    public String getDescription(int productID) throws SQLException {
+        String query = PRODUCT_DESCRIPTION_SQL;
+        return timed("getDescription", query, () -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(query)) {
 
-        try (Connection connection = this.getConnection();
-                PreparedStatement pstmt = connection.prepareStatement(query);
-                ResultSet rs = pstmt.executeQuery()) {
+                pstmt.setInt(1, productID);
 
-            while (rs.next()) {
-                int purchaseOrderID = rs.getInt("purchaseOrderID");
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getString("description");
+                    }
+                }
+            } catch (SQLException e) {
+                handleSQLException(e);
+            }
 
-                // Retrieve the orderDate column as java.sql.Date
-                java.sql.Date orderDate = rs.getDate("orderDate");
-                LocalDate localOrderDate = (orderDate != null) ? orderDate.toLocalDate() : null;
+            return null; // No product found
+        }, productID);
+    }
 
-                // Retrieve the deliverydate column as java.sql.Date
-                java.sql.Date deliveryDate = rs.getDate("deliverydate");
-                LocalDate localDeliveryDate = (deliveryDate != null) ? deliveryDate.toLocalDate() : null;
+    // Change a purchase order. A productId or quantity of -1, or a null or empty
+    // orderDate / trackingNumber, keeps the current value.
+    public boolean updatePurchaseOrder(int poNumber, int productId, int quantity, LocalDate orderDate,
+            String trackingNumber) throws SQLException {
+        String query = UPDATE_PURCHASE_ORDER_SQL;
+        // Skipped fields and the version are filled in from the row as read
+        Object[] parameters = { productId, quantity, orderDate, trackingNumber, poNumber, null };
+        return timed("updatePurchaseOrder", query, () -> {
+            try {
+                return rewritePurchaseOrder(poNumber, before -> {
+                    PurchaseOrder after = new PurchaseOrder(poNumber,
+                            orderDate != null ? orderDate : before.getOrderDate(), before.getDeliveryDate());
+                    after.setProductID(productId != -1 ? productId : before.getProductID());
+                    after.setQuantity(quantity != -1 ? quantity : before.getQuantity());
+                    after.setTrackingNumber(trackingNumber != null && !trackingNumber.isEmpty() ? trackingNumber
+                            : before.getTrackingNumber());
+                    parameters[0] = after.getProductID();
+                    parameters[1] = after.getQuantity();
+                    parameters[2] = after.getOrderDate();
+                    parameters[3] = after.getTrackingNumber();
+                    parameters[5] = before.getVersion();
+                    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+                        pstmt.setInt(1, after.getProductID());
+                        pstmt.setInt(2, after.getQuantity());
+                        pstmt.setDate(3, Date.toSqlDate(after.getOrderDate()));
+                        pstmt.setString(4, after.getTrackingNumber());
+                        pstmt.setInt(5, poNumber);
+                        pstmt.setInt(6, before.getVersion());
+
+                        return pstmt.executeUpdate() > 0 ? after : null;
+                    }
+                });
+            } catch (SQLException e) {
+                handleSQLException(e);
+            }
+            return false;
+        }, parameters);
+    }
 
-                // Create a PurchaseOrder object with the retrieved values
-                PurchaseOrder purchaseOrder = new PurchaseOrder(purchaseOrderID, localOrderDate, localDeliveryDate /*
-                                                                                                                    * other
-                                                                                                                    * values
-                                                                                                                    */);
-                purchaseOrders.add(purchaseOrder);
+    // Record that a purchase order has arrived. Its lead time counts towards the
+    // rollups from then on. Returns false if there is no such order.
+    public boolean markPurchaseOrderDelivered(int poNumber, LocalDate deliveryDate) throws SQLException {
+        String query = MARK_DELIVERED_SQL;
+        Object[] parameters = { deliveryDate, poNumber, null };
+        return timed("markPurchaseOrderDelivered", query, () -> {
+            try {
+                boolean delivered = rewritePurchaseOrder(poNumber, before -> {
+                    PurchaseOrder after = new PurchaseOrder(poNumber, before.getOrderDate(), deliveryDate);
+                    after.setProductID(before.getProductID());
+                    after.setQuantity(before.getQuantity());
+                    after.setTrackingNumber(before.getTrackingNumber());
+                    parameters[2] = before.getVersion();
+                    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+                        pstmt.setDate(1, Date.toSqlDate(deliveryDate));
+                        pstmt.setInt(2, poNumber);
+                        pstmt.setInt(3, before.getVersion());
+
+                        return pstmt.executeUpdate() > 0 ? after : null;
+                    }
+                });
+                if (delivered) {
+                    notifyInventoryListeners(listener -> listener.purchaseOrderDelivered(poNumber));
+                }
+                return delivered;
+            } catch (SQLException e) {
+                handleSQLException(e);
             }
-        }
-        return purchaseOrders;
+            return false;
+        }, parameters);
     }
 
-    public boolean addPurchaseOrder(PurchaseOrder newPurchaseOrder, int quantity, LocalDate orderDate)
-            throws SQLException {
-        int poNumber = generateRandomPoNumber();
-        String trackingNumber = generateRandomTrackingNumber();
+    public boolean deletePurchaseOrder(int poNumber) throws SQLException {
+        String query = DELETE_PURCHASE_ORDER_SQL;
+        Object[] parameters = { poNumber, null };
+        return timed("deletePurchaseOrder", query, () -> {
+            try {
+                // The row is read first so its rollup contribution can be taken back out
+                boolean deleted = rewritePurchaseOrder(poNumber, before -> {
+                    parameters[1] = before.getVersion();
+                    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+
+                        pstmt.setInt(1, poNumber);
+                        pstmt.setInt(2, before.getVersion());
+
+                        return pstmt.executeUpdate() > 0 ? DELETED : null;
+                    }
+                });
+                if (deleted) {
+                    notifyInventoryListeners(listener -> listener.purchaseOrderDeleted(poNumber));
+                }
+                return deleted;
+            } catch (SQLException e) {
+                handleSQLException(e);
+            }
+            return false;
+        }, parameters);
+    }
 
-        String query = "INSERT INTO purchase_orders (po_number, productID, quantity, order_date, tracking_number) VALUES (?, ?, ?, ?, ?)";
-        try (Connection conn = this.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(query)) {
+    // Rollup rows for one product, store or the whole chain (key 0), oldest
+    // first, for buckets starting between from and to inclusive. Buckets with
+    // no orders have no row.
+    public List<RollupBucket> getPurchaseOrderRollups(RollupDimension dimension, int key,
+            RollupGranularity granularity, LocalDate from, LocalDate to) throws SQLException {
+        String query = ROLLUPS_SQL;
+        return timed("getPurchaseOrderRollups", query, () -> {
+            List<RollupBucket> buckets = new ArrayList<>();
+            try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+                pstmt.setString(1, dimension.getCode());
+                pstmt.setInt(2, key);
+                pstmt.setString(3, granularity.getCode());
+                pstmt.setDate(4, Date.toSqlDate(from));
+                pstmt.setDate(5, Date.toSqlDate(to));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        buckets.add(new RollupBucket(rs.getDate(1).toLocalDate(), rs.getLong(2), rs.getLong(3),
+                                rs.getLong(4), rs.getLong(5)));
+                    }
+                }
+            }
+            return buckets;
+        }, dimension.getCode(), key, granularity.getCode(), from, to);
+    }
+
+    // A database call timed by timed(); may throw SQLException
+    @FunctionalInterface
+    private interface SqlCall<T> {
+        T call() throws SQLException;
+    }
 
-            pstmt.setInt(1, poNumber);
-            pstmt.setInt(2, newPurchaseOrder.getProductID()); // Extract productID from newPurchaseOrder
-            pstmt.setInt(3, quantity);
-            pstmt.setDate(4, Date.valueOf(orderDate));
-            pstmt.setString(5, trackingNumber);
+    @FunctionalInterface
+    private interface SqlRunnable {
+        void run() throws SQLException;
+    }
 
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            handleSQLException(e);
+    // Run a call, record its latency and outcome in the metrics registry, and
+    // hand it to the slow query log if it took longer than the threshold. The
+    // SQL and parameters are only looked at on the slow path. Parameters are the
+    // values bound to sql, in placeholder order, since the slow query log masks
+    // them by position. Also emits a DbOperationEvent when a JFR recording has
+    // it enabled.
+    private <T> T timed(String operation, String sql, SqlCall<T> call, Object... parameters) throws SQLException {
+        DbOperationEvent event = new DbOperationEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+        T result = null;
+        try {
+            result = call.call();
+            failed = false;
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.sql = sql;
+                event.rows = rowCount(result);
+                event.connectionWait = connectionWaitNanos;
+                event.failed = failed;
+                event.commit();
+            }
+            StartupTimer.markFirstQuery();
+            MetricsRegistry.getInstance().operation(operation).record(elapsed, failed);
+            SlowQueryLog slowQueryLog = SlowQueryLog.getInstance();
+            if (slowQueryLog.isSlow(elapsed)) {
+                slowQueryLog.log(operation, sql, parameters, rowCount(result), connectionWaitNanos, elapsed);
+            }
         }
-        return false;
     }
 
-    public Product getProductByID(int productID) throws SQLException {
-        String query = "SELECT * FROM product WHERE productID = ?";
-        try (Connection conn = this.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setInt(1, productID);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    Product product = new Product();
-                    product.setProductID(rs.getInt("productID"));
-                    product.setDescription(rs.getString("description"));
-                    // Set other product attributes as needed
-
-                    // Check for null values and convert to LocalDate if not null
-                    java.sql.Date expirationDate = rs.getDate("expirationDate");
-                    if (expirationDate != null) {
-                        product.setExpirationDate(expirationDate.toLocalDate());
-                    }
+    private void timed(String operation, String sql, SqlRunnable call, Object... parameters) throws SQLException {
+        timed(operation, sql, () -> {
+            call.run();
+            return null;
+        }, parameters);
+    }
 
-                    java.sql.Date markdownDate = rs.getDate("markdownDate");
-                    if (markdownDate != null) {
-                        product.setMarkdownDate(markdownDate.toLocalDate());
-                    }
+    // Rows returned by a call: list size for queries, 1 or 0 for single-row results
+    private static int rowCount(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Boolean) {
+            return (Boolean) result ? 1 : 0;
+        }
+        return result == null ? 0 : 1;
+    }
 
-                    // Set other attributes in a similar manner
+    public static void addInventoryListener(InventoryListener listener) {
+        INVENTORY_LISTENERS.addIfAbsent(listener);
+    }
 
-                    return product;
-                }
+    public static void removeInventoryListener(InventoryListener listener) {
+        INVENTORY_LISTENERS.remove(listener);
+    }
+
+    // A failing listener is reported but never fails the write that triggered it
+    static void notifyInventoryListeners(Consumer<InventoryListener> event) {
+        for (InventoryListener listener : INVENTORY_LISTENERS) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
             }
-        } catch (SQLException e) {
-            // Handle any exceptions here
-            e.printStackTrace();
-            throw e; // You might want to handle this exception differently
         }
+    }
 
-        // Return null if no product found with the given productID
-        return null;
+    // Optimistic concurrency counters (updates, conflicts, retries, give-ups)
+    public static ConcurrencyMetrics getConcurrencyMetrics() {
+        return CONCURRENCY_METRICS;
     }
 
-    public String getDescription(int productID) throws SQLException {
-        String query = "SELECT description FROM product WHERE productID = ?";
-        try (Connection conn = this.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(query)) {
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
 
-            pstmt.setInt(1, productID);
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
 
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getString("description");
-                }
+    // A conditional UPDATE that succeeds only if the row still has the given version
+    @FunctionalInterface
+    private interface VersionedUpdate {
+        boolean apply(int version) throws SQLException;
+    }
+
+    // Read the row version, attempt the conditional update, and retry with backoff
+    // when the version moved underneath us. Returns false if the row doesn't exist.
+    private boolean updateWithRetry(String table, String versionQuery, int key, VersionedUpdate update)
+            throws SQLException {
+        CONCURRENCY_METRICS.recordUpdate();
+        for (int attempt = 1;; attempt++) {
+            Integer version = readVersion(versionQuery, key);
+            if (version == null) {
+                return false;
             }
-        } catch (SQLException e) {
-            handleSQLException(e);
+            if (update.apply(version)) {
+                return true;
+            }
+            retryOrGiveUp(table, key, attempt);
         }
+    }
 
-        return null; // No product found
+    private Integer readVersion(String versionQuery, int key) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(versionQuery)) {
+            stmt.setInt(1, key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
     }
 
-    public boolean updatePurchaseOrder(int poNumber, int productId, int quantity, LocalDate orderDate,
-            String trackingNumber) throws SQLException {
-        String query = "UPDATE purchase_orders SET productID = ?, quantity = ?, order_date = ?, tracking_number = ? WHERE po_number = ?";
-        try (Connection conn = this.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setInt(1, productId);
-            pstmt.setInt(2, quantity);
-            pstmt.setDate(3, Date.valueOf(orderDate));
-            pstmt.setString(4, trackingNumber);
-            pstmt.setInt(5, poNumber);
-
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            handleSQLException(e);
+    // Record the conflict and back off, or throw once the retry policy is used up
+    private void retryOrGiveUp(String table, int key, int attempt) throws SQLException {
+        CONCURRENCY_METRICS.recordConflict();
+        if (!retryPolicy.shouldRetry(attempt)) {
+            CONCURRENCY_METRICS.recordExhausted();
+            throw new OptimisticLockException(table, key, attempt);
         }
-        return false;
+        CONCURRENCY_METRICS.recordRetry();
+        retryPolicy.backoff(attempt);
     }
 
-    public boolean deletePurchaseOrder(int poNumber) throws SQLException {
-        String query = "DELETE FROM purchase_orders WHERE po_number = ?";
-        try (Connection conn = this.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(query)) {
+    // Marks a purchase order write that removed the row
+    private static final PurchaseOrder DELETED = new PurchaseOrder(0, null, null);
 
-            pstmt.setInt(1, poNumber);
+    // Changes a purchase order given its current row; returns the row as
+    // written, DELETED, or null if the version moved underneath it
+    @FunctionalInterface
+    private interface PurchaseOrderWrite {
+        PurchaseOrder apply(PurchaseOrder before) throws SQLException;
+    }
 
-            int affectedRows = pstmt.executeUpdate();
-            return affectedRows > 0;
-        } catch (SQLException e) {
-            handleSQLException(e);
+    // Like updateWithRetry, but reads the whole row so the rollups can be moved
+    // from the old values to the new ones in the same transaction. Returns false
+    // if the order doesn't exist.
+    private boolean rewritePurchaseOrder(int poNumber, PurchaseOrderWrite write) throws SQLException {
+        CONCURRENCY_METRICS.recordUpdate();
+        for (int attempt = 1;; attempt++) {
+            Boolean written = inTransaction(() -> {
+                PurchaseOrder before = readPurchaseOrder(poNumber);
+                if (before == null) {
+                    return false;
+                }
+                PurchaseOrder after = write.apply(before);
+                if (after == null) {
+                    return null;
+                }
+                PurchaseOrderRollups rollups = new PurchaseOrderRollups();
+                rollups.remove(before);
+                if (after != DELETED) {
+                    rollups.add(after);
+                }
+                rollups.flush(connection);
+                return true;
+            });
+            if (written != null) {
+                return written;
+            }
+            retryOrGiveUp("purchase_orders", poNumber, attempt);
         }
-        return false;
     }
 
-    private int generateRandomPoNumber() {
-        return new Random().nextInt(90000) + 10000; // Random 5-digit number
+    private PurchaseOrder readPurchaseOrder(int poNumber) throws SQLException {
+        String query = PURCHASE_ORDER_BY_NUMBER_SQL;
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            stmt.setInt(1, poNumber);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? RowMappers.purchaseOrder(rs).map(rs) : null;
+            }
+        }
     }
 
-    private String generateRandomTrackingNumber() {
-        return String.format("%010d", new Random().nextLong(9000000000L) + 1000000000L); // Random 10-digit number
+    // Run call in a transaction, committing if it returns and rolling back if it
+    // throws. Joins the caller's transaction if auto-commit is already off.
+    private <T> T inTransaction(SqlCall<T> call) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            return call.call();
+        }
+        connection.setAutoCommit(false);
+        try {
+            T result = call.call();
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
     }
 
     private void handleSQLException(SQLException e) throws SQLException {
@@ -668,10 +1300,21 @@ public class DatabaseManager implements AutoCloseable {
         throw e;
     }
 
+    // Run this manager's statements through a StatementCanceller so another
+    // thread can cancel the call in progress (AsyncDatabaseManager)
+    StatementCanceller makeCancellable() {
+        StatementCanceller canceller = new StatementCanceller(pooled);
+        connection = canceller.connection();
+        return canceller;
+    }
+
+    // Give the connection back to the pool; safe to call more than once
     @Override
     public void close() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.close();
+        if (pooled != null) {
+            ConnectionPool.getInstance().release(pooled);
+            pooled = null;
+            connection = null;
         }
     }
 }
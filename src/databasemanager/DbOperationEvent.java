@@ -0,0 +1,39 @@
+package databasemanager;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// JFR event for one DatabaseManager operation. Emitted by DatabaseManager's
+// timing wrapper; costs next to nothing unless a recording has it enabled.
+// The event's own duration is the operation's duration.
+@Name("samsmart.DbOperation")
+@Label("Database Operation")
+@Category({ "Sam's Mart", "Database" })
+@Description("A DatabaseManager call, with the statement it ran and the rows it returned")
+@StackTrace(false)
+public class DbOperationEvent extends Event {
+
+    @Label("Operation")
+    @Description("DatabaseManager method, used as the SQL id")
+    public String operation;
+
+    @Label("SQL")
+    @Description("Statement text without parameter values")
+    public String sql;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Connection Wait")
+    @Description("Time the DatabaseManager waited for its pooled connection")
+    @Timespan(Timespan.NANOSECONDS)
+    public long connectionWait;
+
+    @Label("Failed")
+    public boolean failed;
+}
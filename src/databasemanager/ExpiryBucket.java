@@ -0,0 +1,30 @@
+package databasemanager;
+
+// Days-to-expiry ranges for markdown planning, inclusive at both ends.
+// Day 0 is today.
+public enum ExpiryBucket {
+    DAYS_0_3(0, 3),
+    DAYS_4_7(4, 7),
+    DAYS_8_14(8, 14),
+    DAYS_15_30(15, 30);
+
+    private final int fromDays;
+    private final int toDays;
+
+    ExpiryBucket(int fromDays, int toDays) {
+        this.fromDays = fromDays;
+        this.toDays = toDays;
+    }
+
+    public int getFromDays() {
+        return fromDays;
+    }
+
+    public int getToDays() {
+        return toDays;
+    }
+
+    public String getLabel() {
+        return fromDays + "-" + toDays + " days";
+    }
+}
@@ -2,6 +2,7 @@ package databasemanager;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -11,6 +12,10 @@ public class ExpiryChecker {
 
     private static final Logger LOGGER = Logger.getLogger(ExpiryChecker.class.getName());
 
+    // When the last expiry scan finished (epoch millis, 0 = never); the
+    // monitoring endpoint reports how far behind that is
+    private static final AtomicLong LAST_SCAN_MILLIS = new AtomicLong();
+
     private DatabaseManager dbManager;
     private NotificationService notificationService;
 
@@ -22,7 +27,13 @@ public class ExpiryChecker {
 
     // Method to check for expired products
     public List<Product> checkForExpiredProducts() throws SQLException {
-        return dbManager.getExpiredProducts();
+        List<Product> expiredProducts = dbManager.getExpiredProducts();
+        LAST_SCAN_MILLIS.set(System.currentTimeMillis());
+        return expiredProducts;
+    }
+
+    public static long getLastScanMillis() {
+        return LAST_SCAN_MILLIS.get();
     }
 
     // Method to check and notify about expired products
@@ -0,0 +1,75 @@
+package databasemanager;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+// Units and products expiring in each ExpiryBucket, per category, as of one
+// day. Taken from InventorySummary, so it is only as current as the summary.
+public class ExpiryHistogram {
+
+    private static final int BUCKETS = ExpiryBucket.values().length;
+
+    private final LocalDate asOf;
+    // category -> units per bucket, then products per bucket
+    private final Map<String, long[]> byCategory;
+
+    ExpiryHistogram(LocalDate asOf, Map<String, long[]> byCategory) {
+        this.asOf = asOf;
+        this.byCategory = byCategory;
+    }
+
+    // Day 0 of the buckets
+    public LocalDate getAsOf() {
+        return asOf;
+    }
+
+    // Categories with something expiring within the last bucket, by name
+    public Set<String> getCategories() {
+        return Collections.unmodifiableSet(byCategory.keySet());
+    }
+
+    public long getUnits(String category, ExpiryBucket bucket) {
+        long[] counts = byCategory.get(category);
+        return counts != null ? counts[bucket.ordinal()] : 0;
+    }
+
+    public long getProducts(String category, ExpiryBucket bucket) {
+        long[] counts = byCategory.get(category);
+        return counts != null ? counts[BUCKETS + bucket.ordinal()] : 0;
+    }
+
+    public long getTotalUnits(ExpiryBucket bucket) {
+        long units = 0;
+        for (long[] counts : byCategory.values()) {
+            units += counts[bucket.ordinal()];
+        }
+        return units;
+    }
+
+    // Units per bucket and category, with the product count in brackets
+    public String format() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Units expiring by category, as of %s%n", asOf));
+        report.append(String.format("%-24s", "Category"));
+        for (ExpiryBucket bucket : ExpiryBucket.values()) {
+            report.append(String.format(" %16s", bucket.getLabel()));
+        }
+        report.append(String.format("%n"));
+        for (Map.Entry<String, long[]> category : byCategory.entrySet()) {
+            report.append(String.format("%-24s", category.getKey()));
+            for (int i = 0; i < BUCKETS; i++) {
+                report.append(String.format(" %16s", category.getValue()[i] + " (" + category.getValue()[BUCKETS + i]
+                        + ")"));
+            }
+            report.append(String.format("%n"));
+        }
+        report.append(String.format("%-24s", "Total"));
+        for (ExpiryBucket bucket : ExpiryBucket.values()) {
+            report.append(String.format(" %16d", getTotalUnits(bucket)));
+        }
+        report.append(String.format("%n"));
+        return report.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package databasemanager;
+
+import java.nio.file.Path;
+
+// Outcome of one export
+public class ExportReport {
+    private final ExportTable table;
+    private final Path file;
+    private final long rows;
+    private final long bytesWritten;
+    private final long fileBytes;
+    private final long elapsedNanos;
+
+    public ExportReport(ExportTable table, Path file, long rows, long bytesWritten, long fileBytes,
+            long elapsedNanos) {
+        this.table = table;
+        this.file = file;
+        this.rows = rows;
+        this.bytesWritten = bytesWritten;
+        this.fileBytes = fileBytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public ExportTable getTable() {
+        return table;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    // Size of the export before compression
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getFileBytes() {
+        return fileBytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rows / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return "ExportReport{" +
+                "table=" + table.getTable() +
+                ", file=" + file +
+                ", rows=" + rows +
+                ", bytesWritten=" + bytesWritten +
+                ", fileBytes=" + fileBytes +
+                ", elapsedMillis=" + (elapsedNanos / 1_000_000) +
+                ", rowsPerSecond=" + Math.round(getRowsPerSecond()) +
+                '}';
+    }
+}
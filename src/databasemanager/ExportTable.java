@@ -0,0 +1,54 @@
+package databasemanager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Tables the exporters can dump and the columns allowed in an export. Column
+// names are only ever taken from these lists, never from user input.
+public enum ExportTable {
+    PRODUCTS("product", "productID", "productName", "description", "expirationDate", "markdownDate", "quantity",
+            "manufacturer", "brand", "price", "basePrice", "category", "total", "date_added", "store_id"),
+    PURCHASE_ORDERS("purchase_orders", "po_number", "productID", "quantity", "order_date", "deliverydate",
+            "tracking_number");
+
+    private final String table;
+    private final List<String> columns;
+
+    ExportTable(String table, String... columns) {
+        this.table = table;
+        this.columns = List.of(columns);
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    // Columns from a comma-separated list, matched case-insensitively; blank
+    // means all of them
+    public List<String> selectColumns(String spec) {
+        if (spec == null || spec.isBlank()) {
+            return columns;
+        }
+        List<String> selected = new ArrayList<>();
+        for (String name : spec.split(",")) {
+            String wanted = name.trim().toLowerCase(Locale.ROOT);
+            String match = null;
+            for (String column : columns) {
+                if (column.toLowerCase(Locale.ROOT).equals(wanted)) {
+                    match = column;
+                }
+            }
+            if (match == null) {
+                throw new IllegalArgumentException("No column '" + name.trim() + "' in " + table + "; choose from "
+                        + String.join(", ", columns));
+            }
+            selected.add(match);
+        }
+        return selected;
+    }
+}
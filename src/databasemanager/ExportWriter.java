@@ -0,0 +1,17 @@
+package databasemanager;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+// Turns the rows of an export query into one file format
+interface ExportWriter {
+
+    void start(List<String> columns) throws IOException;
+
+    // Write the current row; its columns are 1..n in the order given to start
+    void row(ResultSet rs) throws SQLException, IOException;
+
+    void finish() throws IOException;
+}
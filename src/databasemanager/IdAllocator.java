@@ -0,0 +1,180 @@
+package databasemanager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Hands out unique ids from a named row in id_sequences. A whole block of ids
+// is reserved from the database in one short transaction and then handed out
+// in memory with a single atomic increment, so callers only touch the database
+// once per block and never have to retry on a collision. Ids skipped when the
+// process exits mid-block are simply never used.
+//
+// Blocks are reserved on a dedicated connection kept outside the
+// ConnectionPool. A refill happens while other threads are spinning on the
+// allocator, often while the caller itself holds a pooled connection, so
+// borrowing from an exhausted pool here would stall every caller behind it.
+public class IdAllocator {
+    static final String SELECT_SQL = "SELECT next_value FROM id_sequences WHERE name = ? FOR UPDATE";
+    static final String UPDATE_SQL = "UPDATE id_sequences SET next_value = ? WHERE name = ?";
+
+    private static volatile IdAllocator poNumbers;
+    private static volatile IdAllocator trackingNumbers;
+
+    private final String sequenceName;
+    private final int blockSize;
+    private final ConnectionPool pool;
+    private Connection connection; // Guarded by this; opened on first refill
+    private volatile Block block = new Block(0, 0);
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder refills = new LongAdder();
+
+    public IdAllocator(String sequenceName, int blockSize, ConnectionPool pool) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be at least 1");
+        }
+        this.sequenceName = sequenceName;
+        this.blockSize = blockSize;
+        this.pool = pool;
+    }
+
+    // Shared allocator for purchase order numbers
+    public static IdAllocator poNumbers() {
+        if (poNumbers == null) {
+            synchronized (IdAllocator.class) {
+                if (poNumbers == null) {
+                    poNumbers = new IdAllocator("po_number", 1000, ConnectionPool.getInstance());
+                }
+            }
+        }
+        return poNumbers;
+    }
+
+    // Shared allocator backing TrackingNumberGenerator
+    public static IdAllocator trackingNumbers() {
+        if (trackingNumbers == null) {
+            synchronized (IdAllocator.class) {
+                if (trackingNumbers == null) {
+                    trackingNumbers = new IdAllocator("tracking_number", 1000, ConnectionPool.getInstance());
+                }
+            }
+        }
+        return trackingNumbers;
+    }
+
+    public String getSequenceName() {
+        return sequenceName;
+    }
+
+    // Next id; only blocks when the current block is used up
+    public long next() throws SQLException {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.end) {
+                issued.increment();
+                return id;
+            }
+            refill(current);
+        }
+    }
+
+    // Fill an array with ids for bulk inserts
+    public long[] next(int count) throws SQLException {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = next();
+        }
+        return ids;
+    }
+
+    // Ids handed out, and blocks reserved from the database to serve them; ids
+    // per refill is the block cache's hit rate
+    public long getIssued() {
+        return issued.sum();
+    }
+
+    public long getRefills() {
+        return refills.sum();
+    }
+
+    // Ids left in the current in-memory block
+    public long remaining() {
+        Block current = block;
+        return Math.max(0, current.end - current.next.get());
+    }
+
+    // Reserve a block ahead of time (startup warm-up) so the first caller
+    // doesn't wait on the sequence table
+    public void prefetch() throws SQLException {
+        Block current = block;
+        if (current.next.get() >= current.end) {
+            refill(current);
+        }
+    }
+
+    // Only one thread reserves the next block; the others spin back into next()
+    // and pick it up once it is published
+    private synchronized void refill(Block exhausted) throws SQLException {
+        if (block == exhausted) {
+            block = reserveBlock();
+            refills.increment();
+        }
+    }
+
+    // Called with the lock held. A connection that fails, or that the server
+    // dropped while idle, is closed and reopened on the next refill.
+    private Block reserveBlock() throws SQLException {
+        if (connection == null || !connection.isValid(2)) {
+            connection = pool.openDedicated();
+            connection.setAutoCommit(false);
+        }
+        try {
+            long start;
+            try (PreparedStatement select = connection.prepareStatement(SELECT_SQL)) {
+                select.setString(1, sequenceName);
+                try (ResultSet rs = select.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Unknown id sequence: " + sequenceName);
+                    }
+                    start = rs.getLong(1);
+                }
+            }
+            try (PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+                update.setLong(1, start + blockSize);
+                update.setString(2, sequenceName);
+                update.executeUpdate();
+            }
+            connection.commit();
+            return new Block(start, start + blockSize);
+        } catch (SQLException e) {
+            Connection failed = connection;
+            connection = null;
+            try {
+                failed.rollback();
+            } catch (SQLException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+            try {
+                failed.close();
+            } catch (SQLException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+    }
+
+    // A reserved range [next, end) of ids
+    private static final class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package databasemanager;
+
+import java.sql.SQLException;
+
+// Thrown when a stock movement would take a product's quantity below zero
+public class InsufficientStockException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    private final int inStock;
+
+    public InsufficientStockException(int productId, int inStock, int delta) {
+        super("Only " + inStock + " of product " + productId + " in stock; cannot remove " + -delta);
+        this.inStock = inStock;
+    }
+
+    public int getInStock() {
+        return inStock;
+    }
+}
@@ -2,9 +2,9 @@ package databasemanager;
 
 public class InventoryApplication {
     public static void main(String[] args) {
-        try {
-            // Initialize the DatabaseManager and NotificationService
-            DatabaseManager dbManager = new DatabaseManager();
+        // Initialize the DatabaseManager and NotificationService; the connection
+        // goes back to the pool when the check is done
+        try (DatabaseManager dbManager = new DatabaseManager()) {
             NotificationService notificationService = new NotificationService(dbManager);
 
             // Create ExpiryChecker with the dbManager and notificationService
@@ -0,0 +1,37 @@
+package databasemanager;
+
+import java.time.LocalDate;
+
+import product.java.Product;
+
+// Told about every product and purchase order write that goes through
+// DatabaseManager, after the write has succeeded. Register with
+// DatabaseManager.addInventoryListener. Callbacks run on the writing
+// thread, so they must be quick and must not call back into the database.
+public interface InventoryListener {
+
+    // A product was inserted (or fully rewritten); its id is set
+    default void productSaved(Product product) {
+    }
+
+    default void productQuantityChanged(int productId, int newQuantity) {
+    }
+
+    default void productDeleted(int productId) {
+    }
+
+    // expirationDate may be null: the product no longer expires
+    default void productExpirationChanged(int productId, LocalDate expirationDate) {
+    }
+
+    // open: the order has no delivery date yet
+    default void purchaseOrderAdded(int poNumber, boolean open) {
+    }
+
+    default void purchaseOrderDeleted(int poNumber) {
+    }
+
+    // A delivery date was recorded, so the order is no longer open
+    default void purchaseOrderDelivered(int poNumber) {
+    }
+}
@@ -0,0 +1,155 @@
+package databasemanager;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+// The buyers' inventory workbook: stock by category, items expiring soon and
+// open purchase orders, one sheet each. Every sheet is a streaming query
+// written row by row through XlsxWriter, so the report's size is bounded by
+// the disk, not the heap. Like DataExporter it writes a .part file and
+// renames it when done.
+public class InventoryReportWriter {
+
+    private static final Logger LOGGER = Logger.getLogger(InventoryReportWriter.class.getName());
+
+    public static final int EXPIRING_DAYS = 30;
+
+    static final String CATEGORY_SQL = "SELECT category, COUNT(*), COALESCE(SUM(quantity), 0), "
+            + "COALESCE(SUM(quantity * price), 0) FROM product GROUP BY category ORDER BY category";
+
+    static final String EXPIRING_SQL = "SELECT productID, productName, category, store_id, quantity, "
+            + "price, expirationDate FROM product WHERE expirationDate BETWEEN ? AND ? "
+            + "ORDER BY expirationDate, productID";
+
+    static final String OPEN_ORDERS_SQL = "SELECT po.po_number, po.productID, p.productName, po.quantity, "
+            + "po.order_date, po.tracking_number FROM purchase_orders po "
+            + "LEFT JOIN product p ON p.productID = po.productID "
+            + "WHERE po.deliverydate IS NULL ORDER BY po.order_date, po.po_number";
+
+    private final Supplier<DatabaseManager> managerFactory;
+
+    public InventoryReportWriter() {
+        this(DatabaseManager::new);
+    }
+
+    public InventoryReportWriter(Supplier<DatabaseManager> managerFactory) {
+        this.managerFactory = managerFactory;
+    }
+
+    // Write the workbook to target; returns the number of rows on each sheet
+    public Map<String, Long> write(Path target) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Path part = target.resolveSibling(target.getFileName() + ".part");
+        Map<String, Long> rows = new LinkedHashMap<>();
+        LocalDate today = LocalDate.now();
+        try (DatabaseManager dbManager = managerFactory.get()) {
+            Connection connection = dbManager.getConnection();
+            try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(part), 64 * 1024);
+                    XlsxWriter xlsx = new XlsxWriter(file)) {
+                rows.put("Inventory by Category", writeCategories(connection, xlsx));
+                rows.put("Expiring Items", writeExpiring(connection, xlsx, today));
+                rows.put("Open Purchase Orders", writeOpenOrders(connection, xlsx, today));
+            }
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+        LOGGER.info("Inventory report written to " + target + ": " + rows + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return rows;
+    }
+
+    private long writeCategories(Connection connection, XlsxWriter xlsx) throws SQLException, IOException {
+        xlsx.startSheet("Inventory by Category", new String[] { "Category", "Products", "Units", "Value" },
+                new int[] { 24, 12, 12, 16 });
+        long count = 0;
+        try (PreparedStatement stmt = DataExporter.streaming(connection, CATEGORY_SQL);
+                ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String category = rs.getString(1);
+                xlsx.startRow();
+                xlsx.cell(category != null ? category : ValuationDimension.NONE);
+                xlsx.cell(rs.getLong(2));
+                xlsx.cell(rs.getLong(3));
+                xlsx.money(rs.getDouble(4));
+                xlsx.endRow();
+                count++;
+            }
+        }
+        xlsx.endSheet();
+        return count;
+    }
+
+    private long writeExpiring(Connection connection, XlsxWriter xlsx, LocalDate today)
+            throws SQLException, IOException {
+        xlsx.startSheet("Expiring Items", new String[] { "Product ID", "Product Name", "Category", "Store",
+                "Quantity", "Price", "Expiration Date", "Days Left" }, new int[] { 12, 30, 18, 8, 10, 12, 16, 10 });
+        long count = 0;
+        try (PreparedStatement stmt = DataExporter.streaming(connection, EXPIRING_SQL)) {
+            stmt.setDate(1, java.sql.Date.valueOf(today));
+            stmt.setDate(2, java.sql.Date.valueOf(today.plusDays(EXPIRING_DAYS)));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate expirationDate = rs.getObject(7, LocalDate.class);
+                    xlsx.startRow();
+                    xlsx.cell(rs.getLong(1));
+                    xlsx.cell(rs.getString(2));
+                    xlsx.cell(rs.getString(3));
+                    xlsx.cell(rs.getLong(4));
+                    xlsx.cell(rs.getLong(5));
+                    xlsx.money(rs.getDouble(6));
+                    xlsx.cell(expirationDate);
+                    xlsx.cell(ChronoUnit.DAYS.between(today, expirationDate));
+                    xlsx.endRow();
+                    count++;
+                }
+            }
+        }
+        xlsx.endSheet();
+        return count;
+    }
+
+    private long writeOpenOrders(Connection connection, XlsxWriter xlsx, LocalDate today)
+            throws SQLException, IOException {
+        xlsx.startSheet("Open Purchase Orders", new String[] { "PO Number", "Product ID", "Product Name",
+                "Quantity", "Order Date", "Days Open", "Tracking Number" }, new int[] { 12, 12, 30, 10, 14, 10, 18 });
+        long count = 0;
+        try (PreparedStatement stmt = DataExporter.streaming(connection, OPEN_ORDERS_SQL);
+                ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                LocalDate orderDate = rs.getObject(5, LocalDate.class);
+                xlsx.startRow();
+                xlsx.cell(rs.getLong(1));
+                xlsx.cell(rs.getLong(2));
+                xlsx.cell(rs.getString(3));
+                xlsx.cell(rs.getLong(4));
+                xlsx.cell(orderDate);
+                if (orderDate != null) {
+                    xlsx.cell(ChronoUnit.DAYS.between(orderDate, today));
+                } else {
+                    xlsx.blank();
+                }
+                xlsx.cell(rs.getString(6));
+                xlsx.endRow();
+                count++;
+            }
+        }
+        xlsx.endSheet();
+        return count;
+    }
+}
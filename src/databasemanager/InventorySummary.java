@@ -0,0 +1,366 @@
+package databasemanager;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import product.java.Product;
+
+// Dashboard figures kept up to date incrementally: units per category, products
+// expiring within the next few days, the days-to-expiry histogram, and open
+// purchase orders. It is loaded
+// once from the database, then follows every write as an InventoryListener,
+// so reading a figure never scans the catalog. It keeps a small per-product
+// record (category, quantity, expiry) so a quantity change or delete can be
+// applied as a delta without reading the row back.
+//
+// Expiry figures are kept by expiration date, not by days left, and turned
+// into days-to-expiry ranges when read, so they roll over at midnight with
+// nothing to recompute.
+//
+// Writes that land while the catalog is being scanned (at load or on a
+// rebuild) are buffered and replayed onto the scanned copy before it is
+// swapped in; every event carries absolute values, so replaying one the scan
+// already saw changes nothing. Writes made by other processes aren't seen;
+// InventorySummaryReconciler rebuilds the summary periodically and reports any
+// drift it finds.
+public class InventorySummary implements InventoryListener {
+
+    private static final InventorySummary INSTANCE = new InventorySummary();
+
+    private final Map<Integer, ProductState> products = new HashMap<>();
+    private final Map<String, Long> unitsByCategory = new TreeMap<>();
+    private final TreeMap<LocalDate, Integer> productsByExpiry = new TreeMap<>();
+    // category -> expiration date -> {units, products}
+    private final Map<String, TreeMap<LocalDate, long[]>> expiryByCategory = new TreeMap<>();
+    private final Set<Integer> openPurchaseOrders = new HashSet<>();
+    private long totalUnits;
+    private boolean loaded;
+    // Events seen while a scan is running, to replay onto the scanned copy;
+    // null when no scan is running. scanLock keeps load and reconcile apart.
+    private List<Consumer<InventorySummary>> duringScan;
+    private final Object scanLock = new Object();
+
+    public static InventorySummary getInstance() {
+        return INSTANCE;
+    }
+
+    // Load from the database and start following writes
+    public void load(DatabaseManager dbManager) throws SQLException {
+        synchronized (scanLock) {
+            DatabaseManager.addInventoryListener(this);
+            InventorySummary fresh = scan(dbManager);
+            synchronized (this) {
+                replay(fresh);
+                replaceWith(fresh);
+            }
+        }
+    }
+
+    // A one-off summary built from products and purchase orders fetched
+    // concurrently, for when the shared one hasn't loaded yet. It doesn't
+    // follow later writes.
+    public static CompletableFuture<InventorySummary> snapshot(AsyncDatabaseManager async) {
+        CompletableFuture<List<Product>> products = async.getAllProducts();
+        CompletableFuture<List<PurchaseOrder>> purchaseOrders = async.getAllPurchaseOrders();
+        CompletableFuture<InventorySummary> summary = products.thenCombine(purchaseOrders, (catalog, orders) -> {
+            InventorySummary snapshot = build(catalog, orders);
+            snapshot.loaded = true;
+            return snapshot;
+        });
+        return AsyncDatabaseManager.cancelOnFailure(summary, List.of(products, purchaseOrders));
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized long getTotalUnits() {
+        return totalUnits;
+    }
+
+    public synchronized long getUnits(String category) {
+        return unitsByCategory.getOrDefault(category, 0L);
+    }
+
+    // Copy of the per-category units, by category name
+    public synchronized Map<String, Long> getUnitsByCategory() {
+        return new TreeMap<>(unitsByCategory);
+    }
+
+    // Products expiring from today through today + days (at most days + 1 map entries)
+    public synchronized int getExpiringWithin(int days) {
+        LocalDate today = LocalDate.now();
+        int count = 0;
+        for (int products : productsByExpiry.subMap(today, true, today.plusDays(days), true).values()) {
+            count += products;
+        }
+        return count;
+    }
+
+    // Units and products per category expiring in each ExpiryBucket from today;
+    // at most 31 map entries per category are read
+    public synchronized ExpiryHistogram getExpiryHistogram() {
+        LocalDate today = LocalDate.now();
+        ExpiryBucket[] buckets = ExpiryBucket.values();
+        Map<String, long[]> byCategory = new TreeMap<>();
+        for (Map.Entry<String, TreeMap<LocalDate, long[]>> category : expiryByCategory.entrySet()) {
+            long[] counts = new long[buckets.length * 2];
+            boolean any = false;
+            for (ExpiryBucket bucket : buckets) {
+                for (long[] cell : category.getValue().subMap(today.plusDays(bucket.getFromDays()), true,
+                        today.plusDays(bucket.getToDays()), true).values()) {
+                    counts[bucket.ordinal()] += cell[0];
+                    counts[buckets.length + bucket.ordinal()] += cell[1];
+                    any = true;
+                }
+            }
+            if (any) {
+                byCategory.put(category.getKey(), counts);
+            }
+        }
+        return new ExpiryHistogram(today, byCategory);
+    }
+
+    public synchronized int getOpenPurchaseOrders() {
+        return openPurchaseOrders.size();
+    }
+
+    @Override
+    public synchronized void productSaved(Product product) {
+        int productId = product.getProductID();
+        String category = product.getCategory();
+        int quantity = product.getQuantity();
+        LocalDate expirationDate = product.getExpirationDate();
+        record(summary -> summary.save(productId, category, quantity, expirationDate));
+        save(productId, category, quantity, expirationDate);
+    }
+
+    @Override
+    public synchronized void productQuantityChanged(int productId, int newQuantity) {
+        record(summary -> summary.productQuantityChanged(productId, newQuantity));
+        ProductState state = products.get(productId);
+        if (state == null) {
+            return; // Not loaded yet, or added by another process; reconciliation picks it up
+        }
+        long delta = newQuantity - state.quantity;
+        state.quantity = newQuantity;
+        totalUnits += delta;
+        addUnits(state.category, delta);
+        if (state.expirationDate != null) {
+            addExpiring(state.category, state.expirationDate, delta, 0);
+        }
+    }
+
+    @Override
+    public synchronized void productExpirationChanged(int productId, LocalDate expirationDate) {
+        record(summary -> summary.productExpirationChanged(productId, expirationDate));
+        ProductState state = products.get(productId);
+        if (state == null) {
+            return;
+        }
+        remove(productId);
+        add(productId, new ProductState(state.category, state.quantity, expirationDate));
+    }
+
+    @Override
+    public synchronized void productDeleted(int productId) {
+        record(summary -> summary.productDeleted(productId));
+        remove(productId);
+    }
+
+    @Override
+    public synchronized void purchaseOrderAdded(int poNumber, boolean open) {
+        record(summary -> summary.purchaseOrderAdded(poNumber, open));
+        if (open) {
+            openPurchaseOrders.add(poNumber);
+        }
+    }
+
+    @Override
+    public synchronized void purchaseOrderDeleted(int poNumber) {
+        record(summary -> summary.purchaseOrderDeleted(poNumber));
+        openPurchaseOrders.remove(poNumber);
+    }
+
+    @Override
+    public synchronized void purchaseOrderDelivered(int poNumber) {
+        record(summary -> summary.purchaseOrderDelivered(poNumber));
+        openPurchaseOrders.remove(poNumber);
+    }
+
+    // Rebuild from the database and return how the incrementally kept figures
+    // differed from the rebuilt ones (empty if they matched)
+    List<String> reconcile(DatabaseManager dbManager, int expiringDays) throws SQLException {
+        synchronized (scanLock) {
+            InventorySummary fresh = scan(dbManager);
+            List<String> drift = new ArrayList<>();
+            synchronized (this) {
+                replay(fresh);
+                compareWith(fresh, drift, expiringDays);
+                replaceWith(fresh);
+            }
+            return drift;
+        }
+    }
+
+    // Build a copy from the database, buffering the events that arrive meanwhile
+    private InventorySummary scan(DatabaseManager dbManager) throws SQLException {
+        synchronized (this) {
+            duringScan = new ArrayList<>();
+        }
+        try {
+            return build(dbManager.getAllProducts(), dbManager.getAllPurchaseOrders());
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                duringScan = null;
+            }
+            throw e;
+        }
+    }
+
+    // Apply the events buffered during the scan to the scanned copy; call holding this
+    private void replay(InventorySummary fresh) {
+        for (Consumer<InventorySummary> event : duringScan) {
+            event.accept(fresh);
+        }
+        duringScan = null;
+    }
+
+    private void record(Consumer<InventorySummary> event) {
+        if (duringScan != null) {
+            duringScan.add(event);
+        }
+    }
+
+    private void compareWith(InventorySummary fresh, List<String> drift, int expiringDays) {
+        // Nothing kept to compare against before the first load
+        if (!loaded) {
+            return;
+        }
+        compare(drift, "total units", totalUnits, fresh.totalUnits);
+        compare(drift, "expiring within " + expiringDays + " days", getExpiringWithin(expiringDays),
+                fresh.getExpiringWithin(expiringDays));
+        compare(drift, "open purchase orders", openPurchaseOrders.size(), fresh.openPurchaseOrders.size());
+        ExpiryHistogram kept = getExpiryHistogram();
+        ExpiryHistogram actual = fresh.getExpiryHistogram();
+        Set<String> expiring = new HashSet<>(kept.getCategories());
+        expiring.addAll(actual.getCategories());
+        for (String category : expiring) {
+            for (ExpiryBucket bucket : ExpiryBucket.values()) {
+                compare(drift, "units in " + category + " expiring in " + bucket.getLabel(),
+                        kept.getUnits(category, bucket), actual.getUnits(category, bucket));
+            }
+        }
+        Set<String> categories = new HashSet<>(unitsByCategory.keySet());
+        categories.addAll(fresh.unitsByCategory.keySet());
+        for (String category : categories) {
+            compare(drift, "units in " + category, unitsByCategory.getOrDefault(category, 0L),
+                    fresh.unitsByCategory.getOrDefault(category, 0L));
+        }
+    }
+
+    private static InventorySummary build(List<Product> catalog, List<PurchaseOrder> purchaseOrders) {
+        InventorySummary summary = new InventorySummary();
+        for (Product product : catalog) {
+            summary.add(product.getProductID(), new ProductState(product.getCategory(), product.getQuantity(),
+                    product.getExpirationDate()));
+        }
+        for (PurchaseOrder purchaseOrder : purchaseOrders) {
+            if (purchaseOrder.getDeliveryDate() == null) {
+                summary.openPurchaseOrders.add(purchaseOrder.getPoNumber());
+            }
+        }
+        return summary;
+    }
+
+    private synchronized void replaceWith(InventorySummary fresh) {
+        products.clear();
+        products.putAll(fresh.products);
+        unitsByCategory.clear();
+        unitsByCategory.putAll(fresh.unitsByCategory);
+        productsByExpiry.clear();
+        productsByExpiry.putAll(fresh.productsByExpiry);
+        expiryByCategory.clear();
+        expiryByCategory.putAll(fresh.expiryByCategory);
+        openPurchaseOrders.clear();
+        openPurchaseOrders.addAll(fresh.openPurchaseOrders);
+        totalUnits = fresh.totalUnits;
+        loaded = true;
+    }
+
+    private void save(int productId, String category, int quantity, LocalDate expirationDate) {
+        remove(productId);
+        add(productId, new ProductState(category, quantity, expirationDate));
+    }
+
+    private void add(int productId, ProductState state) {
+        products.put(productId, state);
+        totalUnits += state.quantity;
+        addUnits(state.category, state.quantity);
+        if (state.expirationDate != null) {
+            productsByExpiry.merge(state.expirationDate, 1, Integer::sum);
+            addExpiring(state.category, state.expirationDate, state.quantity, 1);
+        }
+    }
+
+    private void remove(int productId) {
+        ProductState state = products.remove(productId);
+        if (state == null) {
+            return;
+        }
+        totalUnits -= state.quantity;
+        addUnits(state.category, -state.quantity);
+        if (state.expirationDate != null) {
+            productsByExpiry.computeIfPresent(state.expirationDate, (date, count) -> count > 1 ? count - 1 : null);
+            addExpiring(state.category, state.expirationDate, -state.quantity, -1);
+        }
+    }
+
+    // Categories whose units drop to zero are removed, so deleted ones don't linger
+    private void addUnits(String category, long delta) {
+        unitsByCategory.merge(category != null ? category : ValuationDimension.NONE, delta,
+                (units, change) -> units + change == 0 ? null : units + change);
+    }
+
+    // Dates with no products left are removed, and so are categories with no dates
+    private void addExpiring(String category, LocalDate expirationDate, long units, int products) {
+        String key = category != null ? category : ValuationDimension.NONE;
+        TreeMap<LocalDate, long[]> dates = expiryByCategory.computeIfAbsent(key, k -> new TreeMap<>());
+        long[] cell = dates.computeIfAbsent(expirationDate, date -> new long[2]);
+        cell[0] += units;
+        cell[1] += products;
+        if (cell[1] <= 0) {
+            dates.remove(expirationDate);
+            if (dates.isEmpty()) {
+                expiryByCategory.remove(key);
+            }
+        }
+    }
+
+    private static void compare(List<String> drift, String figure, long kept, long actual) {
+        if (kept != actual) {
+            drift.add(String.format("%s: summary %d, database %d", figure, kept, actual));
+        }
+    }
+
+    private static final class ProductState {
+        final String category;
+        int quantity;
+        final LocalDate expirationDate;
+
+        ProductState(String category, int quantity, LocalDate expirationDate) {
+            this.category = category;
+            this.quantity = quantity;
+            this.expirationDate = expirationDate;
+        }
+    }
+}
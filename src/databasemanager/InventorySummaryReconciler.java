@@ -0,0 +1,114 @@
+package databasemanager;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Periodically rebuilds the InventorySummary from the database and logs any
+// figure the incremental updates got wrong (writes from another terminal).
+// Writes made in this process during the rebuild are replayed onto it, so
+// they aren't lost or reported as drift. The rebuilt figures replace the
+// drifted ones, so drift never accumulates past one period. Each run also
+// compacts the ProductSearchIndex if deletes or renames have left stale
+// postings in it.
+public class InventorySummaryReconciler {
+
+    private static final Logger LOGGER = Logger.getLogger(InventorySummaryReconciler.class.getName());
+
+    public static final int EXPIRING_DAYS = 7;
+
+    private final InventorySummary summary;
+    private final ProductSearchIndex searchIndex;
+    private final Supplier<DatabaseManager> managerFactory;
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong driftedRuns = new AtomicLong();
+    private ScheduledExecutorService scheduler;
+    private volatile List<String> lastDrift = Collections.emptyList();
+    private volatile long lastRunMillis;
+
+    public InventorySummaryReconciler() {
+        this(InventorySummary.getInstance(), ProductSearchIndex.shared(), DatabaseManager::new);
+    }
+
+    public InventorySummaryReconciler(InventorySummary summary, ProductSearchIndex searchIndex,
+            Supplier<DatabaseManager> managerFactory) {
+        this.summary = summary;
+        this.searchIndex = searchIndex;
+        this.managerFactory = managerFactory;
+    }
+
+    // Rebuild now; returns the drift found (empty if the summary was accurate)
+    public List<String> runOnce() throws SQLException {
+        List<String> drift;
+        try (DatabaseManager dbManager = managerFactory.get()) {
+            drift = summary.reconcile(dbManager, EXPIRING_DAYS);
+            int stale = searchIndex.getStaleDocuments();
+            if (searchIndex.compact(dbManager)) {
+                LOGGER.fine("Rebuilt the product search index to drop " + stale + " stale products");
+            }
+        }
+        runs.incrementAndGet();
+        lastRunMillis = System.currentTimeMillis();
+        lastDrift = drift;
+        if (!drift.isEmpty()) {
+            driftedRuns.incrementAndGet();
+            LOGGER.warning("Inventory summary drifted from the database: " + String.join("; ", drift));
+        }
+        return drift;
+    }
+
+    // Run every periodMinutes on a background daemon thread
+    public synchronized void start(long periodMinutes) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "summary-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runQuietly, periodMinutes, periodMinutes, TimeUnit.MINUTES);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public long getRuns() {
+        return runs.get();
+    }
+
+    public long getDriftedRuns() {
+        return driftedRuns.get();
+    }
+
+    // Drift found by the most recent run
+    public List<String> getLastDrift() {
+        return lastDrift;
+    }
+
+    // Epoch millis of the most recent run, 0 if it hasn't run yet
+    public long getLastRunMillis() {
+        return lastRunMillis;
+    }
+
+    private void runQuietly() {
+        try {
+            runOnce();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "SQL error in scheduled summary reconciliation", e);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error in scheduled summary reconciliation", e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package databasemanager;
+
+import product.java.Product;
+
+// One line per row for the product, user and purchase order listing screens.
+// Kept here rather than in LoginSystem so AllocationBudgetCheck can measure
+// the rendering the screens actually do.
+public final class ListingFormat {
+
+    public static final String PRODUCT_HEADER = String.format("%-20s %-20s %-20s %-20s %-20s %n", "Product ID",
+            "Name", "Quantity", "Price", "category");
+
+    private ListingFormat() {
+    }
+
+    public static String productRow(Product product) {
+        return String.format("%-20d %-20s %-20d %-20.2f %-20s %n",
+                product.getProductID(),
+                product.getProductName(),
+                product.getQuantity(),
+                product.getPrice(),
+                product.getCategory());
+    }
+
+    public static String userRow(User user) {
+        return String.format("ID: %d, Name: %s %s, Email: %s, Phone: %s, Role: %s%n",
+                user.getUserId(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getEmail(),
+                user.getPhoneNumber(),
+                user.getRole());
+    }
+
+    public static String purchaseOrderRow(PurchaseOrder order) {
+        return String.format("PO Number: %d, Product ID: %d, Quantity: %d, Order Date: %s, Tracking Number: %s%n",
+                order.getPoNumber(),
+                order.getProductId(),
+                order.getQuantity(),
+                order.getOrderDate(),
+                order.getTrackingNumber());
+    }
+}
@@ -0,0 +1,71 @@
+package databasemanager;
+
+// One price change worked out by the markdown engine
+public class MarkdownChange {
+    private final int productId;
+    private final int storeId;
+    private final String productName;
+    private final String category;
+    private final long daysToExpiry;
+    private final double basePrice;
+    private final double oldPrice;
+    private final double newPrice;
+    private final MarkdownRule rule;
+    private final int version;
+
+    public MarkdownChange(int productId, int storeId, String productName, String category, long daysToExpiry,
+            double basePrice, double oldPrice, double newPrice, MarkdownRule rule, int version) {
+        this.productId = productId;
+        this.storeId = storeId;
+        this.productName = productName;
+        this.category = category;
+        this.daysToExpiry = daysToExpiry;
+        this.basePrice = basePrice;
+        this.oldPrice = oldPrice;
+        this.newPrice = newPrice;
+        this.rule = rule;
+        this.version = version;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public int getStoreId() {
+        return storeId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public long getDaysToExpiry() {
+        return daysToExpiry;
+    }
+
+    // Price before any markdown
+    public double getBasePrice() {
+        return basePrice;
+    }
+
+    public double getOldPrice() {
+        return oldPrice;
+    }
+
+    public double getNewPrice() {
+        return newPrice;
+    }
+
+    public MarkdownRule getRule() {
+        return rule;
+    }
+
+    // Row version read by the scan; the update only applies if it still matches
+    public int getVersion() {
+        return version;
+    }
+}
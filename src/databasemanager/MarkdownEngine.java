@@ -0,0 +1,158 @@
+package databasemanager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+// Applies the markdown tiers across the whole catalog in one pass: a single
+// scan of the products expiring within the widest tier, then batched price
+// updates committed in chunks so a large run never holds row locks on the
+// whole catalog at once. The pre-markdown price is kept in basePrice, so
+// every tier is taken off the original price and re-running is harmless.
+public class MarkdownEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(MarkdownEngine.class.getName());
+
+    private static final int CHUNK_SIZE = 500;
+
+    static final String SCAN_SQL = "SELECT productID, store_id, productName, category, expirationDate, "
+            + "price, COALESCE(basePrice, price), version FROM product "
+            + "WHERE expirationDate BETWEEN ? AND ?";
+
+    // Conditional on the row version, so a quantity or price edit made after
+    // the scan wins and the product is re-evaluated on the next run
+    static final String UPDATE_SQL = "UPDATE product SET basePrice = ?, price = ?, markdownDate = ?, "
+            + "version = version + 1 WHERE productID = ? AND store_id = ? AND version = ?";
+
+    private final Supplier<DatabaseManager> managerFactory;
+    private final MarkdownRules rules;
+    private final Object runLock = new Object();
+
+    public MarkdownEngine() {
+        this(DatabaseManager::new, MarkdownRules.load());
+    }
+
+    public MarkdownEngine(Supplier<DatabaseManager> managerFactory, MarkdownRules rules) {
+        this.managerFactory = managerFactory;
+        this.rules = rules;
+    }
+
+    public MarkdownRules getRules() {
+        return rules;
+    }
+
+    // Markdown price for a base price, rounded to the cent
+    public static double markdownPrice(double basePrice, int percentOff) {
+        return BigDecimal.valueOf(basePrice)
+                .multiply(BigDecimal.valueOf(100 - percentOff))
+                .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP)
+                .doubleValue();
+    }
+
+    // Dry run: the price changes a run would make today, without writing them
+    public MarkdownReport preview() throws SQLException {
+        long start = System.nanoTime();
+        try (DatabaseManager dbManager = managerFactory.get()) {
+            List<MarkdownChange> changes = new ArrayList<>();
+            int scanned = scan(dbManager.getConnection(), LocalDate.now(), changes);
+            return new MarkdownReport(scanned, changes, true, 0, 0, System.nanoTime() - start);
+        }
+    }
+
+    // Work out the changes and write them. Runs never overlap.
+    public MarkdownReport apply() throws SQLException {
+        synchronized (runLock) {
+            long start = System.nanoTime();
+            LocalDate today = LocalDate.now();
+            try (DatabaseManager dbManager = managerFactory.get()) {
+                Connection connection = dbManager.getConnection();
+                List<MarkdownChange> changes = new ArrayList<>();
+                int scanned = scan(connection, today, changes);
+                int applied = write(connection, today, changes);
+                MarkdownReport report = new MarkdownReport(scanned, changes, false, applied,
+                        changes.size() - applied, System.nanoTime() - start);
+                LOGGER.info("Markdown run finished: " + report);
+                return report;
+            }
+        }
+    }
+
+    private int scan(Connection connection, LocalDate today, List<MarkdownChange> changes) throws SQLException {
+        if (rules.getMaxDaysToExpiry() < 0) {
+            return 0; // No tiers configured
+        }
+        int scanned = 0;
+        try (PreparedStatement scan = connection.prepareStatement(SCAN_SQL)) {
+            scan.setDate(1, java.sql.Date.valueOf(today));
+            scan.setDate(2, java.sql.Date.valueOf(today.plusDays(rules.getMaxDaysToExpiry())));
+            try (ResultSet rs = scan.executeQuery()) {
+                while (rs.next()) {
+                    scanned++;
+                    String category = rs.getString(4);
+                    long daysToExpiry = ChronoUnit.DAYS.between(today, rs.getObject(5, LocalDate.class));
+                    MarkdownRule rule = rules.select(category, daysToExpiry);
+                    if (rule == null) {
+                        continue;
+                    }
+                    double price = rs.getDouble(6);
+                    double basePrice = rs.getDouble(7);
+                    double newPrice = markdownPrice(basePrice, rule.getPercentOff());
+                    // Only ever lower a price; a product already at or below
+                    // its tier (e.g. after the rules were relaxed) is left alone
+                    if (newPrice >= price) {
+                        continue;
+                    }
+                    changes.add(new MarkdownChange(rs.getInt(1), rs.getInt(2), rs.getString(3), category,
+                            daysToExpiry, basePrice, price, newPrice, rule, rs.getInt(8)));
+                }
+            }
+        }
+        return scanned;
+    }
+
+    // Batched updates, one transaction per CHUNK_SIZE rows. Returns how many
+    // rows were updated; the rest lost their version check.
+    private int write(Connection connection, LocalDate today, List<MarkdownChange> changes) throws SQLException {
+        int applied = 0;
+        java.sql.Date markdownDate = java.sql.Date.valueOf(today);
+        connection.setAutoCommit(false);
+        try (PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+            for (int from = 0; from < changes.size(); from += CHUNK_SIZE) {
+                int to = Math.min(from + CHUNK_SIZE, changes.size());
+                for (MarkdownChange change : changes.subList(from, to)) {
+                    update.setDouble(1, change.getBasePrice());
+                    update.setDouble(2, change.getNewPrice());
+                    update.setDate(3, markdownDate);
+                    update.setInt(4, change.getProductId());
+                    update.setInt(5, change.getStoreId());
+                    update.setInt(6, change.getVersion());
+                    update.addBatch();
+                }
+                try {
+                    for (int count : update.executeBatch()) {
+                        if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                            applied++;
+                        }
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
+            }
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        return applied;
+    }
+}
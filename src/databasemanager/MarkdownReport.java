@@ -0,0 +1,93 @@
+package databasemanager;
+
+import java.util.List;
+
+// Outcome of a markdown run, or of a dry run when nothing was written
+public class MarkdownReport {
+    private final int productsScanned;
+    private final List<MarkdownChange> changes;
+    private final boolean dryRun;
+    private final int applied;
+    private final int conflicts;
+    private final long elapsedNanos;
+
+    public MarkdownReport(int productsScanned, List<MarkdownChange> changes, boolean dryRun, int applied,
+            int conflicts, long elapsedNanos) {
+        this.productsScanned = productsScanned;
+        this.changes = changes;
+        this.dryRun = dryRun;
+        this.applied = applied;
+        this.conflicts = conflicts;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getProductsScanned() {
+        return productsScanned;
+    }
+
+    public List<MarkdownChange> getChanges() {
+        return changes;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public int getApplied() {
+        return applied;
+    }
+
+    // Products changed by someone else between the scan and the update; they
+    // are picked up again by the next run
+    public int getConflicts() {
+        return conflicts;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // Shelf value given up across all changes, per unit of each product
+    public double getTotalPriceReduction() {
+        double reduction = 0.0;
+        for (MarkdownChange change : changes) {
+            reduction += change.getOldPrice() - change.getNewPrice();
+        }
+        return reduction;
+    }
+
+    // Text table for the menus, showing at most maxLines changes
+    public String format(int maxLines) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%s: %d products scanned, %d price changes (%d ms)%n",
+                dryRun ? "Markdown preview" : "Markdown run", productsScanned, changes.size(),
+                elapsedNanos / 1_000_000));
+        report.append(String.format("%-10s %-6s %-25s %-15s %6s %10s %10s %6s%n", "Product", "Store", "Name",
+                "Category", "Days", "Old", "New", "Off"));
+        for (int i = 0; i < changes.size() && i < maxLines; i++) {
+            MarkdownChange change = changes.get(i);
+            report.append(String.format("%-10d %-6d %-25s %-15s %6d %10.2f %10.2f %5d%%%n", change.getProductId(),
+                    change.getStoreId(), change.getProductName(), change.getCategory(), change.getDaysToExpiry(),
+                    change.getOldPrice(), change.getNewPrice(), change.getRule().getPercentOff()));
+        }
+        if (changes.size() > maxLines) {
+            report.append(String.format("... and %d more%n", changes.size() - maxLines));
+        }
+        if (!dryRun) {
+            report.append(String.format("Applied %d, skipped %d changed since the scan%n", applied, conflicts));
+        }
+        return report.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "MarkdownReport{" +
+                "productsScanned=" + productsScanned +
+                ", changes=" + changes.size() +
+                ", dryRun=" + dryRun +
+                ", applied=" + applied +
+                ", conflicts=" + conflicts +
+                ", elapsedMillis=" + (elapsedNanos / 1_000_000) +
+                '}';
+    }
+}
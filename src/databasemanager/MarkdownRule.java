@@ -0,0 +1,44 @@
+package databasemanager;
+
+// One markdown tier: products in the category (or any category, for "*")
+// expiring within maxDaysToExpiry days get percentOff off their base price
+public class MarkdownRule {
+    public static final String ANY_CATEGORY = "*";
+
+    private final String category;
+    private final int maxDaysToExpiry;
+    private final int percentOff;
+
+    public MarkdownRule(String category, int maxDaysToExpiry, int percentOff) {
+        if (maxDaysToExpiry < 0) {
+            throw new IllegalArgumentException("maxDaysToExpiry must not be negative: " + maxDaysToExpiry);
+        }
+        if (percentOff <= 0 || percentOff >= 100) {
+            throw new IllegalArgumentException("percentOff must be between 1 and 99: " + percentOff);
+        }
+        this.category = category;
+        this.maxDaysToExpiry = maxDaysToExpiry;
+        this.percentOff = percentOff;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public int getMaxDaysToExpiry() {
+        return maxDaysToExpiry;
+    }
+
+    public int getPercentOff() {
+        return percentOff;
+    }
+
+    public boolean isAnyCategory() {
+        return ANY_CATEGORY.equals(category);
+    }
+
+    @Override
+    public String toString() {
+        return category + " within " + maxDaysToExpiry + " days: " + percentOff + "% off";
+    }
+}
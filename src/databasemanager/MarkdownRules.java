@@ -0,0 +1,115 @@
+package databasemanager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// The markdown tiers, read from a properties file with one line per tier:
+//   <category>.<maxDaysToExpiry>=<percentOff>
+// where the category "*" stands for any category, e.g.
+//   *.3=50
+//   Dairy.5=40
+// A product follows its own category's tiers if it has any, otherwise the
+// "*" tiers, and gets the tightest tier that still covers its days to expiry.
+//
+// Settings: samsmart.markdown.rules (default markdown_rules.properties)
+public class MarkdownRules {
+
+    private static final Logger LOGGER = Logger.getLogger(MarkdownRules.class.getName());
+
+    // Tiers per category, tightest first
+    private final Map<String, List<MarkdownRule>> byCategory = new HashMap<>();
+    private final List<MarkdownRule> rules;
+    private final int maxDaysToExpiry;
+
+    public MarkdownRules(List<MarkdownRule> rules) {
+        List<MarkdownRule> sorted = new ArrayList<>(rules);
+        sorted.sort(Comparator.comparing(MarkdownRule::getCategory)
+                .thenComparingInt(MarkdownRule::getMaxDaysToExpiry));
+        int maxDays = -1;
+        for (MarkdownRule rule : sorted) {
+            byCategory.computeIfAbsent(rule.getCategory(), key -> new ArrayList<>()).add(rule);
+            maxDays = Math.max(maxDays, rule.getMaxDaysToExpiry());
+        }
+        this.rules = Collections.unmodifiableList(sorted);
+        this.maxDaysToExpiry = maxDays;
+    }
+
+    // Rules from samsmart.markdown.rules, or the built-in tiers when the file is missing
+    public static MarkdownRules load() {
+        Path file = Paths.get(System.getProperty("samsmart.markdown.rules", "markdown_rules.properties"));
+        if (!Files.exists(file)) {
+            return defaults();
+        }
+        try {
+            return load(file);
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Couldn't read markdown rules from " + file + "; using the defaults", e);
+            return defaults();
+        }
+    }
+
+    public static MarkdownRules load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        List<MarkdownRule> rules = new ArrayList<>();
+        for (String key : properties.stringPropertyNames()) {
+            int dot = key.lastIndexOf('.');
+            if (dot <= 0) {
+                throw new IllegalArgumentException("Markdown rule key must be <category>.<days>: " + key);
+            }
+            rules.add(new MarkdownRule(key.substring(0, dot), Integer.parseInt(key.substring(dot + 1).trim()),
+                    Integer.parseInt(properties.getProperty(key).trim())));
+        }
+        return new MarkdownRules(rules);
+    }
+
+    public static MarkdownRules defaults() {
+        List<MarkdownRule> rules = new ArrayList<>();
+        rules.add(new MarkdownRule(MarkdownRule.ANY_CATEGORY, 2, 50));
+        rules.add(new MarkdownRule(MarkdownRule.ANY_CATEGORY, 7, 25));
+        rules.add(new MarkdownRule(MarkdownRule.ANY_CATEGORY, 14, 10));
+        return new MarkdownRules(rules);
+    }
+
+    // The tier for a product, or null if it isn't due a markdown
+    public MarkdownRule select(String category, long daysToExpiry) {
+        if (daysToExpiry < 0) {
+            return null; // Expired stock is pulled, not marked down
+        }
+        List<MarkdownRule> tiers = category != null ? byCategory.get(category) : null;
+        if (tiers == null) {
+            tiers = byCategory.get(MarkdownRule.ANY_CATEGORY);
+        }
+        if (tiers != null) {
+            for (MarkdownRule rule : tiers) {
+                if (daysToExpiry <= rule.getMaxDaysToExpiry()) {
+                    return rule;
+                }
+            }
+        }
+        return null;
+    }
+
+    // The widest tier; products expiring later than this can be skipped by the scan
+    public int getMaxDaysToExpiry() {
+        return maxDaysToExpiry;
+    }
+
+    public List<MarkdownRule> getRules() {
+        return rules;
+    }
+}
@@ -0,0 +1,28 @@
+package databasemanager;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR event for one LoginSystem menu action. DbOperationEvents recorded on
+// the same thread inside its time span are the database work the action caused.
+@Name("samsmart.MenuAction")
+@Label("Menu Action")
+@Category({ "Sam's Mart", "User Interface" })
+@Description("A menu choice made by a clerk, from selection until the menu is shown again")
+@StackTrace(false)
+public class MenuActionEvent extends Event {
+
+    @Label("User Role")
+    @Description("Role of the signed-in user, or NONE before login")
+    public String role;
+
+    @Label("Menu")
+    public String menu;
+
+    @Label("Action")
+    public String action;
+}
@@ -0,0 +1,76 @@
+package databasemanager;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Process-wide registry of per-operation metrics. Every DatabaseManager call
+// records into it, and each operation is published over JMX as
+// samsmart:type=DatabaseOperation,name=<operation> the first time it runs.
+public class MetricsRegistry {
+
+    private static final Logger LOGGER = Logger.getLogger(MetricsRegistry.class.getName());
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry(true);
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final boolean registerWithJmx;
+
+    MetricsRegistry(boolean registerWithJmx) {
+        this.registerWithJmx = registerWithJmx;
+    }
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    // Metrics for the named operation, created on first use
+    public OperationMetrics operation(String name) {
+        OperationMetrics metrics = operations.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        return operations.computeIfAbsent(name, this::create);
+    }
+
+    // All operations, sorted by name
+    public List<OperationMetrics> getOperations() {
+        List<OperationMetrics> sorted = new ArrayList<>(operations.values());
+        Collections.sort(sorted, (a, b) -> a.getName().compareTo(b.getName()));
+        return sorted;
+    }
+
+    // Text table for the admin menu
+    public String formatReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-32s %10s %8s %12s %12s %12s %12s%n", "Operation", "Count", "Errors",
+                "p50 (us)", "p99 (us)", "p999 (us)", "max (us)"));
+        for (OperationMetrics metrics : getOperations()) {
+            report.append(String.format("%-32s %10d %8d %12.1f %12.1f %12.1f %12.1f%n", metrics.getName(),
+                    metrics.getCount(), metrics.getErrors(), metrics.getP50Micros(), metrics.getP99Micros(),
+                    metrics.getP999Micros(), metrics.getMaxMicros()));
+        }
+        return report.toString();
+    }
+
+    private OperationMetrics create(String name) {
+        OperationMetrics metrics = new OperationMetrics(name);
+        if (registerWithJmx) {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                server.registerMBean(metrics,
+                        new ObjectName("samsmart:type=DatabaseOperation,name=" + ObjectName.quote(name)));
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Unable to register JMX bean for " + name, e);
+            }
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,50 @@
+package databasemanager;
+
+import java.util.List;
+
+// One versioned schema change. The statements run in order; a MySQL-only
+// migration covers physical layout (partitioning and the keys it needs) that
+// the embedded backend has no equivalent for, and there it is recorded as
+// applied without running so the versions stay the same on both.
+public class Migration {
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+    private final boolean mysqlOnly;
+
+    private Migration(int version, String description, boolean mysqlOnly, String... statements) {
+        this.version = version;
+        this.description = description;
+        this.statements = List.of(statements);
+        this.mysqlOnly = mysqlOnly;
+    }
+
+    public static Migration of(int version, String description, String... statements) {
+        return new Migration(version, description, false, statements);
+    }
+
+    public static Migration mysqlOnly(int version, String description, String... statements) {
+        return new Migration(version, description, true, statements);
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    public boolean isMysqlOnly() {
+        return mysqlOnly;
+    }
+
+    @Override
+    public String toString() {
+        return "V" + version + " " + description;
+    }
+}
@@ -0,0 +1,222 @@
+package databasemanager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+// Brings a database up to the current schema by applying the migrations it
+// hasn't had yet, in version order, and recording each one in
+// schema_migrations. Works on MySQL and on the embedded backend used by the
+// benchmarks (H2 in MySQL mode).
+//
+// MySQL commits DDL implicitly, so a migration that fails part way isn't
+// rolled back; its version isn't recorded either, and the failing statement
+// is in the exception. Fix the database by hand and run again.
+//
+// Usage: java databasemanager.MigrationRunner [--status | --baseline <version>]
+// A database from before the migrations needs nothing special: V1 only
+// creates the tables that are missing, and V2 onwards add the rest.
+// --baseline records versions as applied without running them, for a
+// database whose schema is known to be at that version already.
+public class MigrationRunner {
+
+    private static final Logger LOGGER = Logger.getLogger(MigrationRunner.class.getName());
+
+    public static final List<Migration> MIGRATIONS = List.of(
+            Migration.of(1, "Base tables",
+                    "CREATE TABLE IF NOT EXISTS users (user_id INT AUTO_INCREMENT PRIMARY KEY, first_name VARCHAR(50), "
+                            + "last_name VARCHAR(50), phone_number VARCHAR(20), email VARCHAR(100), "
+                            + "password VARCHAR(100), role VARCHAR(20))",
+                    "CREATE TABLE IF NOT EXISTS stores (store_id INT PRIMARY KEY, store_name VARCHAR(100), "
+                            + "address VARCHAR(100), city VARCHAR(50), state VARCHAR(50), zip INT, phone VARCHAR(20), "
+                            + "store_type VARCHAR(20), opening_date DATE)",
+                    "CREATE TABLE IF NOT EXISTS product (productID INT AUTO_INCREMENT PRIMARY KEY, "
+                            + "productName VARCHAR(100), description VARCHAR(255), expirationDate DATE, "
+                            + "markdownDate DATE, quantity INT, manufacturer VARCHAR(100), brand VARCHAR(100), "
+                            + "price DECIMAL(10,2), category VARCHAR(50), total DECIMAL(12,2), date_added DATE)",
+                    "CREATE TABLE IF NOT EXISTS purchase_orders (po_number INT PRIMARY KEY, productID INT, "
+                            + "quantity INT, order_date DATE, deliverydate DATE, tracking_number VARCHAR(20))"),
+            // DatabaseManager updates these rows with
+            // "... SET version = version + 1 WHERE <key> = ? AND version = ?"
+            Migration.of(2, "Row versions for optimistic concurrency",
+                    "ALTER TABLE product ADD COLUMN version INT NOT NULL DEFAULT 0",
+                    "ALTER TABLE purchase_orders ADD COLUMN version INT NOT NULL DEFAULT 0",
+                    "ALTER TABLE stores ADD COLUMN version INT NOT NULL DEFAULT 0"),
+            // PO numbers start above the old random 5-digit range so they can't
+            // collide with existing orders. Tracking numbers are 12 digits
+            // (TrackingNumberGenerator) and the old random ones 10, so that
+            // sequence can start at 1.
+            Migration.of(3, "Id sequences for IdAllocator",
+                    "CREATE TABLE id_sequences (name VARCHAR(64) NOT NULL PRIMARY KEY, next_value BIGINT NOT NULL)",
+                    "INSERT INTO id_sequences (name, next_value) VALUES ('po_number', 100000), "
+                            + "('tracking_number', 1)"),
+            // Products without a row fall back to Item.DEFAULT_REORDER_POINT and
+            // ReorderEngine.DEFAULT_ORDER_UP_TO. job_locks has one row per
+            // background job that must not run in two processes at once; the
+            // job holds its row with SELECT ... FOR UPDATE for the length of its
+            // transaction.
+            Migration.of(4, "Per-product reorder thresholds and job locks",
+                    "CREATE TABLE reorder_points (productID INT NOT NULL PRIMARY KEY, reorder_point INT NOT NULL, "
+                            + "order_up_to INT NOT NULL)",
+                    "CREATE TABLE job_locks (name VARCHAR(64) NOT NULL PRIMARY KEY)",
+                    "INSERT INTO job_locks (name) VALUES ('reorder')"),
+            // The partitioned product table can only have unique keys that
+            // include store_id (V6), so nothing there stops one productID from
+            // being stocked under two stores. Every productID is registered in
+            // product_ids by DatabaseManager.insertProduct, whose primary key
+            // does the check. Products already on file go to store 1, which is
+            // created here if there are any and it is missing (new stores get
+            // random 5-digit ids, so it can't clash with one).
+            Migration.of(5, "Store of each product",
+                    "ALTER TABLE product ADD COLUMN store_id INT NOT NULL DEFAULT 1",
+                    "INSERT INTO stores (store_id, store_name) SELECT DISTINCT 1, 'Unassigned stock' FROM product "
+                            + "WHERE NOT EXISTS (SELECT 1 FROM stores WHERE store_id = 1)",
+                    "CREATE TABLE product_ids (productID INT NOT NULL PRIMARY KEY)",
+                    "INSERT INTO product_ids (productID) SELECT productID FROM product"),
+            // MySQL requires the partitioning column in every unique key, so the
+            // primary key becomes (productID, store_id); productID stays
+            // AUTO_INCREMENT and unique in practice
+            Migration.mysqlOnly(6, "Partition inventory by store",
+                    "ALTER TABLE product DROP PRIMARY KEY, ADD PRIMARY KEY (productID, store_id)",
+                    "ALTER TABLE product PARTITION BY HASH(store_id) PARTITIONS 16"),
+            // Set by MarkdownEngine the first time it lowers a price; NULL means
+            // never marked down
+            Migration.of(7, "Price before markdown",
+                    "ALTER TABLE product ADD COLUMN basePrice DECIMAL(10,2) NULL"),
+            // Login looks users up by email; the expiry and markdown scans are
+            // expirationDate ranges; ReorderEngine checks each product for an
+            // undelivered purchase order; the open-orders report lists
+            // undelivered orders oldest first. po_number is already the primary key.
+            Migration.of(8, "Indexes for the hot queries",
+                    "CREATE INDEX idx_users_email ON users (email)",
+                    "CREATE INDEX idx_product_expiration ON product (expirationDate)",
+                    "CREATE INDEX idx_purchase_orders_product ON purchase_orders (productID, deliverydate)",
+                    "CREATE INDEX idx_purchase_orders_open ON purchase_orders (deliverydate, order_date)"),
+            Migration.of(9, "Purchase order rollups",
+                    "CREATE TABLE purchase_order_rollups (dimension VARCHAR(10) NOT NULL, dimension_key INT NOT NULL, "
+                            + "granularity CHAR(1) NOT NULL, bucket_start DATE NOT NULL, "
+                            + "orders INT NOT NULL DEFAULT 0, units BIGINT NOT NULL DEFAULT 0, "
+                            + "delivered INT NOT NULL DEFAULT 0, lead_days BIGINT NOT NULL DEFAULT 0, "
+                            + "PRIMARY KEY (dimension, dimension_key, granularity, bucket_start))"),
+            // Filled in nightly by ReorderPointPlanner. Rows that were already
+            // there were set by hand, so they start out pinned.
+            Migration.of(10, "Demand statistics for reorder points",
+                    "ALTER TABLE reorder_points ADD COLUMN pinned BOOLEAN NOT NULL DEFAULT TRUE",
+                    "ALTER TABLE reorder_points ADD COLUMN demand_avg DOUBLE NULL",
+                    "ALTER TABLE reorder_points ADD COLUMN demand_var DOUBLE NULL",
+                    "ALTER TABLE reorder_points ADD COLUMN last_quantity INT NULL",
+                    "ALTER TABLE reorder_points ADD COLUMN counted_on DATE NULL"));
+
+    private static final String CREATE_HISTORY_SQL = "CREATE TABLE IF NOT EXISTS schema_migrations ("
+            + "version INT NOT NULL PRIMARY KEY, description VARCHAR(200) NOT NULL, applied_on TIMESTAMP NOT NULL)";
+
+    private final Connection connection;
+    private final boolean mysql;
+
+    public MigrationRunner(Connection connection) throws SQLException {
+        this.connection = connection;
+        this.mysql = connection.getMetaData().getDatabaseProductName().equalsIgnoreCase("MySQL");
+    }
+
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).getVersion();
+    }
+
+    // Highest version recorded, 0 for a database that has never been migrated
+    public int currentVersion() throws SQLException {
+        createHistoryTable();
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_migrations")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    public List<Migration> pending() throws SQLException {
+        int current = currentVersion();
+        List<Migration> pending = new ArrayList<>();
+        for (Migration migration : MIGRATIONS) {
+            if (migration.getVersion() > current) {
+                pending.add(migration);
+            }
+        }
+        return pending;
+    }
+
+    // Apply every pending migration; returns how many ran
+    public int migrate() throws SQLException {
+        List<Migration> pending = pending();
+        for (Migration migration : pending) {
+            if (migration.isMysqlOnly() && !mysql) {
+                LOGGER.info("Skipping MySQL-only migration " + migration);
+            } else {
+                LOGGER.info("Applying migration " + migration);
+                try (Statement stmt = connection.createStatement()) {
+                    for (String sql : migration.getStatements()) {
+                        try {
+                            stmt.execute(sql);
+                        } catch (SQLException e) {
+                            throw new SQLException("Migration " + migration + " failed on: " + sql, e);
+                        }
+                    }
+                }
+            }
+            record(migration);
+        }
+        return pending.size();
+    }
+
+    // Mark every migration up to version as applied without running it, for a
+    // database whose schema was created by hand
+    public void baseline(int version) throws SQLException {
+        int current = currentVersion();
+        for (Migration migration : MIGRATIONS) {
+            if (migration.getVersion() > current && migration.getVersion() <= version) {
+                record(migration);
+            }
+        }
+    }
+
+    private void createHistoryTable() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(CREATE_HISTORY_SQL);
+        }
+    }
+
+    private void record(Migration migration) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "INSERT INTO schema_migrations (version, description, applied_on) VALUES (?, ?, ?)")) {
+            stmt.setInt(1, migration.getVersion());
+            stmt.setString(2, migration.getDescription());
+            stmt.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            stmt.executeUpdate();
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        try (DatabaseManager dbManager = new DatabaseManager()) {
+            MigrationRunner runner = new MigrationRunner(dbManager.getConnection());
+            if (args.length == 1 && args[0].equals("--status")) {
+                System.out.println("Schema version " + runner.currentVersion() + " of " + latestVersion());
+                for (Migration migration : runner.pending()) {
+                    System.out.println("Pending: " + migration);
+                }
+            } else if (args.length == 2 && args[0].equals("--baseline")) {
+                runner.baseline(Integer.parseInt(args[1]));
+                System.out.println("Schema version is now " + runner.currentVersion());
+            } else if (args.length == 0) {
+                int applied = runner.migrate();
+                System.out.println("Applied " + applied + " migration(s); schema version " + runner.currentVersion());
+            } else {
+                System.err.println("Usage: MigrationRunner [--status | --baseline <version>]");
+                System.exit(2);
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package databasemanager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Local HTTP endpoint for ops, built on the JDK's HttpServer and bound to
+// the loopback interface only:
+//   GET /health   readiness: 200 when the database answers and the pool isn't
+//                 starved, 503 otherwise; plain-text details in the body
+//   GET /metrics  Prometheus text exposition format (version 0.0.4)
+//
+// Settings: samsmart.http.port (default 9464, 0 turns the endpoint off)
+public class MonitoringServer {
+
+    private static final Logger LOGGER = Logger.getLogger(MonitoringServer.class.getName());
+    private static final long HEALTH_BORROW_TIMEOUT_MILLIS = 2_000;
+    private static final int HEALTH_VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private final HttpServer server;
+
+    private MonitoringServer(HttpServer server) {
+        this.server = server;
+    }
+
+    // Start serving on 127.0.0.1:port; returns null if the port is 0
+    public static MonitoringServer start(int port) throws IOException {
+        if (port <= 0) {
+            return null;
+        }
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        MonitoringServer monitoring = new MonitoringServer(server);
+        server.createContext("/health", monitoring::handleHealth);
+        server.createContext("/metrics", monitoring::handleMetrics);
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "monitoring-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        return monitoring;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        ConnectionPool pool = ConnectionPool.getInstance();
+        String database = checkDatabase(pool);
+        boolean poolHealthy = pool.getWaitingThreads() < pool.getMaxSize();
+        boolean ready = database.equals("UP") && poolHealthy;
+
+        StringBuilder body = new StringBuilder();
+        body.append("status: ").append(ready ? "UP" : "DOWN").append('\n');
+        body.append("database: ").append(database).append('\n');
+        body.append("pool: ").append(poolHealthy ? "UP" : "STARVED").append(String.format(
+                " (%d active, %d idle, %d waiting, max %d)%n", pool.getActiveConnections(),
+                pool.getIdleConnections(), pool.getWaitingThreads(), pool.getMaxSize()));
+        respond(exchange, ready ? 200 : 503, "text/plain; charset=utf-8", body.toString());
+    }
+
+    // "UP", or "DOWN: <reason>"
+    private static String checkDatabase(ConnectionPool pool) {
+        try {
+            Connection connection = pool.borrow(HEALTH_BORROW_TIMEOUT_MILLIS);
+            try {
+                return connection.isValid(HEALTH_VALIDATION_TIMEOUT_SECONDS) ? "UP" : "DOWN: connection invalid";
+            } finally {
+                pool.release(connection);
+            }
+        } catch (Exception e) {
+            return "DOWN: " + e.getMessage();
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, "text/plain; version=0.0.4; charset=utf-8", formatMetrics());
+    }
+
+    static String formatMetrics() {
+        StringBuilder out = new StringBuilder();
+
+        header(out, "samsmart_db_operation_duration_seconds", "summary",
+                "Latency of DatabaseManager operations");
+        for (OperationMetrics metrics : MetricsRegistry.getInstance().getOperations()) {
+            LatencyHistogram latency = metrics.getLatency();
+            String operation = "operation=\"" + escape(metrics.getName()) + "\"";
+            for (double quantile : QUANTILES) {
+                sample(out, "samsmart_db_operation_duration_seconds",
+                        operation + ",quantile=\"" + quantile + "\"", latency.getValueAtQuantile(quantile) / 1e9);
+            }
+            sample(out, "samsmart_db_operation_duration_seconds_sum", operation,
+                    latency.getMeanNanos() * latency.getCount() / 1e9);
+            sample(out, "samsmart_db_operation_duration_seconds_count", operation, latency.getCount());
+        }
+        header(out, "samsmart_db_operation_errors_total", "counter", "Failed DatabaseManager operations");
+        for (OperationMetrics metrics : MetricsRegistry.getInstance().getOperations()) {
+            sample(out, "samsmart_db_operation_errors_total", "operation=\"" + escape(metrics.getName()) + "\"",
+                    metrics.getErrors());
+        }
+
+        ConnectionPool pool = ConnectionPool.getInstance();
+        gauge(out, "samsmart_pool_max_connections", "Connection pool size limit", pool.getMaxSize());
+        gauge(out, "samsmart_pool_open_connections", "Connections currently open", pool.getOpenConnections());
+        gauge(out, "samsmart_pool_active_connections", "Connections currently leased", pool.getActiveConnections());
+        gauge(out, "samsmart_pool_idle_connections", "Connections idle in the pool", pool.getIdleConnections());
+        gauge(out, "samsmart_pool_waiting_threads", "Threads waiting for a connection", pool.getWaitingThreads());
+        LatencyHistogram acquire = pool.getAcquireTimes();
+        header(out, "samsmart_pool_acquire_seconds", "summary", "Time to acquire a pooled connection");
+        for (double quantile : QUANTILES) {
+            sample(out, "samsmart_pool_acquire_seconds", "quantile=\"" + quantile + "\"",
+                    acquire.getValueAtQuantile(quantile) / 1e9);
+        }
+        sample(out, "samsmart_pool_acquire_seconds_sum", null, acquire.getMeanNanos() * acquire.getCount() / 1e9);
+        sample(out, "samsmart_pool_acquire_seconds_count", null, acquire.getCount());
+        counter(out, "samsmart_pool_acquire_timeouts_total", "Borrows that timed out", pool.getAcquireTimeouts());
+        counter(out, "samsmart_pool_leaks_total", "Leases held past the leak threshold", pool.getLeaksDetected());
+
+        header(out, "samsmart_id_cache_hit_ratio", "gauge",
+                "Share of ids served from the in-memory block without a database round trip");
+        for (IdAllocator allocator : new IdAllocator[] { IdAllocator.poNumbers(), IdAllocator.trackingNumbers() }) {
+            long issued = allocator.getIssued();
+            double hitRatio = issued == 0 ? 1.0 : 1.0 - (double) allocator.getRefills() / issued;
+            sample(out, "samsmart_id_cache_hit_ratio", "sequence=\"" + escape(allocator.getSequenceName()) + "\"",
+                    Math.max(0.0, hitRatio));
+        }
+
+        long lastScan = ExpiryChecker.getLastScanMillis();
+        gauge(out, "samsmart_expiry_scan_lag_seconds",
+                "Seconds since the last completed expiry scan (-1 if none has run)",
+                lastScan == 0 ? -1 : (System.currentTimeMillis() - lastScan) / 1000.0);
+
+        SlowQueryLog slowQueryLog = SlowQueryLog.getInstance();
+        gauge(out, "samsmart_slow_query_log_queue_depth", "Entries waiting to be written to the slow query log",
+                slowQueryLog.getQueueDepth());
+        counter(out, "samsmart_slow_query_log_dropped_total", "Slow query log entries dropped because the queue was full",
+                slowQueryLog.getDropped());
+
+        ConcurrencyMetrics concurrency = DatabaseManager.getConcurrencyMetrics();
+        counter(out, "samsmart_optimistic_conflicts_total", "Version conflicts on optimistic updates",
+                concurrency.getConflicts());
+        counter(out, "samsmart_optimistic_retries_exhausted_total", "Optimistic updates that gave up",
+                concurrency.getExhausted());
+        return out.toString();
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, double value) {
+        header(out, name, "gauge", help);
+        sample(out, name, null, value);
+    }
+
+    private static void counter(StringBuilder out, String name, String help, double value) {
+        header(out, name, "counter", help);
+        sample(out, name, null, value);
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(String.format(Locale.ROOT, "%.9g", value));
+        }
+        out.append('\n');
+    }
+
+    // Label values escape backslash, double quote and newline
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        try {
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Monitoring client went away", e);
+        } finally {
+            exchange.close();
+        }
+    }
+}
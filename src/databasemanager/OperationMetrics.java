@@ -0,0 +1,71 @@
+package databasemanager;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Call count, error count and latency histogram for one named operation
+public class OperationMetrics implements OperationMetricsMXBean {
+    private final String name;
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public void record(long nanos, boolean failed) {
+        latency.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.getMeanNanos() / 1000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.getValueAtQuantile(0.5) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.getValueAtQuantile(0.99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.getValueAtQuantile(0.999) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.getMaxNanos() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.reset();
+    }
+}
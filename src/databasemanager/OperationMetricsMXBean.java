@@ -0,0 +1,22 @@
+package databasemanager;
+
+// JMX view of one DatabaseManager operation (samsmart:type=DatabaseOperation,name=...)
+public interface OperationMetricsMXBean {
+    String getName();
+
+    long getCount();
+
+    long getErrors();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
@@ -0,0 +1,12 @@
+package databasemanager;
+
+import java.sql.SQLException;
+
+// Thrown when a versioned update keeps conflicting after all retries are used up
+public class OptimisticLockException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    public OptimisticLockException(String table, int key, int attempts) {
+        super("Concurrent update conflict on " + table + " " + key + " after " + attempts + " attempts");
+    }
+}
@@ -0,0 +1,511 @@
+package databasemanager;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import product.java.Product;
+
+// In-memory type-ahead search over product name, brand and manufacturer.
+// Every word of those fields goes into a prefix trie (what clerks type is
+// usually the start of a word) and its character trigrams go into an n-gram
+// index (for text in the middle of a word, or a typo). A query collects
+// candidates from whichever of the two is most selective, scores them
+// against the product's current text and keeps the top N, so nothing is
+// ever sent to MySQL as LIKE '%x%'.
+//
+// The index is built from the catalog and then kept current as an
+// InventoryListener. Postings are append-only: a deleted or renamed
+// product leaves stale entries behind that simply score zero, and
+// compact() rebuilds the index once any have built up
+// (InventorySummaryReconciler calls it every period). Writes that land
+// while a rebuild is scanning the catalog are replayed onto the new index.
+public class ProductSearchIndex implements InventoryListener {
+
+    private static final ProductSearchIndex SHARED = new ProductSearchIndex();
+
+    // Name matches count most, then brand, then manufacturer
+    private static final int[] FIELD_WEIGHTS = { 3, 2, 1 };
+    private static final int MAX_CANDIDATES = 1_000;
+    private static final double MIN_TRIGRAM_SIMILARITY = 0.3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Integer, Document> documents = new HashMap<>();
+    private TrieNode root = new TrieNode();
+    private Map<String, IntList> trigrams = new HashMap<>();
+    private volatile boolean loaded;
+    // Products whose old postings are still in the index
+    private int staleDocuments;
+    // Writes seen while a rebuild is scanning, to replay onto the new index;
+    // null when no rebuild is running. scanLock keeps rebuilds apart.
+    private List<Consumer<ProductSearchIndex>> duringScan;
+    private final Object scanLock = new Object();
+
+    // One search hit
+    public static final class Match {
+        private final int productId;
+        private final String productName;
+        private final String brand;
+        private final String manufacturer;
+        private final double score;
+
+        Match(Document document, double score) {
+            this.productId = document.productId;
+            this.productName = document.fields[0];
+            this.brand = document.fields[1];
+            this.manufacturer = document.fields[2];
+            this.score = score;
+        }
+
+        public int getProductId() {
+            return productId;
+        }
+
+        public String getProductName() {
+            return productName;
+        }
+
+        public String getBrand() {
+            return brand;
+        }
+
+        public String getManufacturer() {
+            return manufacturer;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    public static ProductSearchIndex shared() {
+        return SHARED;
+    }
+
+    // Build from the catalog and start following product writes
+    public void load(DatabaseManager dbManager) throws SQLException {
+        synchronized (scanLock) {
+            DatabaseManager.addInventoryListener(this);
+            rebuild(dbManager);
+        }
+    }
+
+    // Rebuild from the catalog if deletes or renames have left stale postings
+    // behind; returns whether it did
+    public boolean compact(DatabaseManager dbManager) throws SQLException {
+        synchronized (scanLock) {
+            if (!loaded || getStaleDocuments() == 0) {
+                return false;
+            }
+            rebuild(dbManager);
+            return true;
+        }
+    }
+
+    public int getStaleDocuments() {
+        lock.readLock().lock();
+        try {
+            return staleDocuments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Replace the whole index, buffering the writes that arrive during the scan
+    private void rebuild(DatabaseManager dbManager) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            duringScan = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ProductSearchIndex fresh = new ProductSearchIndex();
+        try {
+            for (Product product : dbManager.getAllProducts()) {
+                fresh.saved(new Document(product));
+            }
+        } catch (SQLException | RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                duringScan = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Consumer<ProductSearchIndex> event : duringScan) {
+                event.accept(fresh);
+            }
+            duringScan = null;
+            documents = fresh.documents;
+            root = fresh.root;
+            trigrams = fresh.trigrams;
+            staleDocuments = fresh.staleDocuments;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void productSaved(Product product) {
+        Document document = new Document(product);
+        lock.writeLock().lock();
+        try {
+            record(index -> index.saved(document));
+            saved(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void productDeleted(int productId) {
+        lock.writeLock().lock();
+        try {
+            record(index -> index.deleted(productId));
+            deleted(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Best `limit` products for what the clerk has typed so far
+    public List<Match> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        // Candidates come shortest word first, so once the top N are all
+        // whole-word name matches nothing later can beat them
+        double bestPossible = terms.size() * 10.0 * FIELD_WEIGHTS[0];
+        List<Set<String>> termTrigrams = new ArrayList<>();
+        for (String term : terms) {
+            termTrigrams.add(trigramsOf(term));
+        }
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Match> top = new PriorityQueue<>(limit + 1, ProductSearchIndex::worseFirst);
+            for (int productId : candidates(terms)) {
+                Document document = documents.get(productId);
+                if (document == null) {
+                    continue; // Deleted since it was indexed
+                }
+                double score = document.score(terms, termTrigrams);
+                if (score > 0) {
+                    top.add(new Match(document, score));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                    if (top.size() == limit && top.peek().score >= bestPossible) {
+                        break;
+                    }
+                }
+            }
+            List<Match> matches = new ArrayList<>(top);
+            matches.sort((a, b) -> worseFirst(b, a));
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Lower score first; on a tie the longer name counts as worse
+    private static int worseFirst(Match a, Match b) {
+        int byScore = Double.compare(a.score, b.score);
+        if (byScore != 0) {
+            return byScore;
+        }
+        int byLength = Integer.compare(b.productName.length(), a.productName.length());
+        return byLength != 0 ? byLength : Integer.compare(b.productId, a.productId);
+    }
+
+    // Candidates from the most selective term: its trie prefix matches, or its
+    // trigram postings when no word starts with it
+    private Set<Integer> candidates(List<String> terms) {
+        Set<Integer> best = null;
+        for (String term : terms) {
+            Set<Integer> found = new LinkedHashSet<>();
+            TrieNode node = root.find(term);
+            if (node != null) {
+                node.collect(found, MAX_CANDIDATES);
+            }
+            if (found.isEmpty() && term.length() >= 3) {
+                trigramCandidates(term, found);
+            }
+            if (best == null || found.size() < best.size()) {
+                best = found;
+            }
+        }
+        return best;
+    }
+
+    // Products sharing at least a third of the term's trigrams, rarest trigrams first
+    private void trigramCandidates(String term, Set<Integer> found) {
+        List<IntList> postings = new ArrayList<>();
+        Set<String> termTrigrams = trigramsOf(term);
+        for (String trigram : termTrigrams) {
+            IntList list = trigrams.get(trigram);
+            if (list != null) {
+                postings.add(list);
+            }
+        }
+        postings.sort((a, b) -> Integer.compare(a.size, b.size));
+        int needed = Math.max(1, (int) Math.ceil(termTrigrams.size() / 3.0));
+        Map<Integer, Integer> hits = new HashMap<>();
+        for (IntList list : postings) {
+            for (int i = 0; i < list.size; i++) {
+                int productId = list.values[i];
+                int count = hits.merge(productId, 1, Integer::sum);
+                if (count == needed) {
+                    found.add(productId);
+                    if (found.size() >= MAX_CANDIDATES) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    // Call holding the write lock (or on an index nobody else can see yet)
+    private void record(Consumer<ProductSearchIndex> event) {
+        if (duringScan != null) {
+            duringScan.add(event);
+        }
+    }
+
+    // The product's earlier postings, if any, go stale
+    private void saved(Document document) {
+        if (documents.put(document.productId, document) != null) {
+            staleDocuments++;
+        }
+        Set<String> words = new HashSet<>();
+        for (String field : document.normalized) {
+            words.addAll(tokenize(field));
+        }
+        Set<String> documentTrigrams = new HashSet<>();
+        for (String word : words) {
+            root.insert(word).postings.add(document.productId);
+            documentTrigrams.addAll(trigramsOf(word));
+        }
+        for (String trigram : documentTrigrams) {
+            trigrams.computeIfAbsent(trigram, key -> new IntList()).add(document.productId);
+        }
+    }
+
+    private void deleted(int productId) {
+        if (documents.remove(productId) != null) {
+            staleDocuments++;
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{Alnum}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Trigrams of a word padded with a leading space, so "mi" of "milk" counts
+    // as the word's start
+    static Set<String> trigramsOf(String word) {
+        Set<String> result = new HashSet<>();
+        String padded = " " + word + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private static final class Document {
+        final int productId;
+        final String[] fields;
+        final String[] normalized;
+        final List<List<String>> words = new ArrayList<>();
+
+        Document(Product product) {
+            this(product.getProductID(), product.getProductName(), product.getBrand(), product.getManufacturer());
+        }
+
+        Document(int productId, String productName, String brand, String manufacturer) {
+            this.productId = productId;
+            this.fields = new String[] { nullToEmpty(productName), nullToEmpty(brand), nullToEmpty(manufacturer) };
+            this.normalized = new String[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                normalized[i] = fields[i].toLowerCase(Locale.ROOT);
+                words.add(tokenize(normalized[i]));
+            }
+        }
+
+        // Every term has to match some field; each term scores its best field:
+        // whole word 10, word prefix 6, anywhere in the text 3, or up to 2 for a
+        // close trigram match, times the field weight. The trigram comparison is
+        // only tried when no field matches the term directly.
+        double score(List<String> terms, List<Set<String>> termTrigrams) {
+            double total = 0;
+            for (int t = 0; t < terms.size(); t++) {
+                String term = terms.get(t);
+                double best = 0;
+                for (int i = 0; i < fields.length; i++) {
+                    best = Math.max(best, FIELD_WEIGHTS[i] * termScore(term, i));
+                }
+                if (best == 0 && term.length() >= 3) {
+                    for (int i = 0; i < fields.length; i++) {
+                        best = Math.max(best, FIELD_WEIGHTS[i] * 2 * similarity(termTrigrams.get(t), i));
+                    }
+                }
+                if (best == 0) {
+                    return 0;
+                }
+                total += best;
+            }
+            return total;
+        }
+
+        private double termScore(String term, int field) {
+            double best = 0;
+            for (String word : words.get(field)) {
+                if (word.equals(term)) {
+                    return 10;
+                }
+                if (word.startsWith(term)) {
+                    best = 6;
+                }
+            }
+            if (best > 0) {
+                return best;
+            }
+            return normalized[field].contains(term) ? 3 : 0;
+        }
+
+        // Best Jaccard similarity between the term's trigrams and those of one
+        // word in the field, or 0 below MIN_TRIGRAM_SIMILARITY. A word of n
+        // characters has about n distinct padded trigrams.
+        private double similarity(Set<String> termTrigrams, int field) {
+            double best = 0;
+            for (String word : words.get(field)) {
+                String padded = " " + word + " ";
+                int shared = 0;
+                for (String trigram : termTrigrams) {
+                    if (padded.contains(trigram)) {
+                        shared++;
+                    }
+                }
+                double similarity = (double) shared / Math.max(1, termTrigrams.size() + word.length() - shared);
+                if (similarity >= MIN_TRIGRAM_SIMILARITY) {
+                    best = Math.max(best, similarity);
+                }
+            }
+            return best;
+        }
+
+        private static String nullToEmpty(String value) {
+            return value != null ? value : "";
+        }
+    }
+
+    // Trie over words; each node lists the products containing exactly that word
+    private static final class TrieNode {
+        char[] keys = new char[0];
+        TrieNode[] children = new TrieNode[0];
+        final IntList postings = new IntList();
+
+        TrieNode child(char key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        TrieNode insert(String word) {
+            TrieNode node = this;
+            for (int i = 0; i < word.length(); i++) {
+                char key = word.charAt(i);
+                TrieNode next = node.child(key);
+                if (next == null) {
+                    next = new TrieNode();
+                    node.keys = Arrays.copyOf(node.keys, node.keys.length + 1);
+                    node.children = Arrays.copyOf(node.children, node.children.length + 1);
+                    node.keys[node.keys.length - 1] = key;
+                    node.children[node.children.length - 1] = next;
+                }
+                node = next;
+            }
+            return node;
+        }
+
+        TrieNode find(String prefix) {
+            TrieNode node = this;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            return node;
+        }
+
+        // Products under this node, shortest words first, stopping at limit
+        void collect(Set<Integer> found, int limit) {
+            List<TrieNode> level = new ArrayList<>();
+            level.add(this);
+            while (!level.isEmpty() && found.size() < limit) {
+                List<TrieNode> next = new ArrayList<>();
+                for (TrieNode node : level) {
+                    for (int i = 0; i < node.postings.size && found.size() < limit; i++) {
+                        found.add(node.postings.values[i]);
+                    }
+                    next.addAll(Arrays.asList(node.children));
+                }
+                level = next;
+            }
+        }
+    }
+
+    // Growable int array for postings
+    private static final class IntList {
+        int[] values = new int[2];
+        int size;
+
+        void add(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return; // Same product twice in a row, e.g. a word in both name and brand
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package databasemanager;
+
+import java.time.LocalDate;
+
+public class PurchaseOrder {
+    private int poNumber;
+    private int productID;
+    private int quantity;
+    private LocalDate orderDate;
+    private LocalDate deliveryDate;
+    private String trackingNumber;
+    private int version; // Row version used for optimistic concurrency checks
+
+    public PurchaseOrder(int poNumber, LocalDate orderDate, LocalDate deliveryDate) {
+        this.poNumber = poNumber;
+        this.orderDate = orderDate;
+        this.deliveryDate = deliveryDate;
+    }
+
+    // Getter and Setter methods
+    public int getPoNumber() {
+        return poNumber;
+    }
+
+    public void setPoNumber(int poNumber) {
+        this.poNumber = poNumber;
+    }
+
+    public int getProductID() {
+        return productID;
+    }
+
+    public int getProductId() {
+        return productID;
+    }
+
+    public void setProductID(int productID) {
+        this.productID = productID;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public LocalDate getOrderDate() {
+        return orderDate;
+    }
+
+    public void setOrderDate(LocalDate orderDate) {
+        this.orderDate = orderDate;
+    }
+
+    public LocalDate getDeliveryDate() {
+        return deliveryDate;
+    }
+
+    public void setDeliveryDate(LocalDate deliveryDate) {
+        this.deliveryDate = deliveryDate;
+    }
+
+    public String getTrackingNumber() {
+        return trackingNumber;
+    }
+
+    public void setTrackingNumber(String trackingNumber) {
+        this.trackingNumber = trackingNumber;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return "PurchaseOrder{" +
+                "poNumber=" + poNumber +
+                ", productID=" + productID +
+                ", quantity=" + quantity +
+                ", orderDate=" + orderDate +
+                ", deliveryDate=" + deliveryDate +
+                ", trackingNumber='" + trackingNumber + '\'' +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,123 @@
+package databasemanager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+// Purchase order trends read from purchase_order_rollups. The rollups are kept
+// up to date by every purchase order write in DatabaseManager and ReorderEngine,
+// so a trend is one primary key range read however much history there is.
+//
+// Usage: java databasemanager.PurchaseOrderAnalytics --rebuild
+// recomputes the rollups from purchase_orders, e.g. right after migration V9
+// on a database that already has orders. Run it while nothing else is writing
+// purchase orders.
+public class PurchaseOrderAnalytics {
+
+    private static final Logger LOGGER = Logger.getLogger(PurchaseOrderAnalytics.class.getName());
+
+    // Orders read before the rebuild writes what it has gathered
+    private static final int REBUILD_FLUSH_ORDERS = 10000;
+
+    static final String ALL_ORDERS_SQL = "SELECT po_number, productID, quantity, order_date, deliverydate, "
+            + "tracking_number FROM purchase_orders";
+
+    private final Supplier<DatabaseManager> managerFactory;
+
+    public PurchaseOrderAnalytics() {
+        this(DatabaseManager::new);
+    }
+
+    public PurchaseOrderAnalytics(Supplier<DatabaseManager> managerFactory) {
+        this.managerFactory = managerFactory;
+    }
+
+    // One bucket per granularity step from the bucket holding from to the one
+    // holding to, oldest first; buckets without orders are zero
+    public List<RollupBucket> trend(RollupDimension dimension, int key, RollupGranularity granularity,
+            LocalDate from, LocalDate to) throws SQLException {
+        LocalDate first = granularity.bucketStart(from);
+        LocalDate last = granularity.bucketStart(to);
+        List<RollupBucket> stored;
+        try (DatabaseManager dbManager = managerFactory.get()) {
+            stored = dbManager.getPurchaseOrderRollups(dimension, key, granularity, first, last);
+        }
+        List<RollupBucket> trend = new ArrayList<>();
+        int next = 0;
+        for (LocalDate bucket = first; !bucket.isAfter(last); bucket = granularity.next(bucket)) {
+            if (next < stored.size() && stored.get(next).getBucketStart().equals(bucket)) {
+                trend.add(stored.get(next++));
+            } else {
+                trend.add(new RollupBucket(bucket, 0, 0, 0, 0));
+            }
+        }
+        return trend;
+    }
+
+    // The most recent count buckets, ending with the one holding today
+    public List<RollupBucket> lastBuckets(RollupDimension dimension, int key, RollupGranularity granularity,
+            int count) throws SQLException {
+        LocalDate current = granularity.bucketStart(LocalDate.now());
+        return trend(dimension, key, granularity, granularity.minus(current, count - 1), current);
+    }
+
+    // Throw the rollups away and recompute them from purchase_orders. Orders
+    // are streamed on one connection and the rollups written on another, in
+    // chunks, so memory stays bounded; returns the number of orders read.
+    public long rebuild() throws SQLException {
+        long start = System.nanoTime();
+        long orders = 0;
+        try (DatabaseManager reader = managerFactory.get(); DatabaseManager writer = managerFactory.get()) {
+            Connection writeConnection = writer.getConnection();
+            try (Statement stmt = writeConnection.createStatement()) {
+                stmt.executeUpdate("DELETE FROM purchase_order_rollups");
+            }
+
+            PurchaseOrderRollups rollups = new PurchaseOrderRollups();
+            try (PreparedStatement stmt = DataExporter.streaming(reader.getConnection(), ALL_ORDERS_SQL);
+                    ResultSet rs = stmt.executeQuery()) {
+                RowMapper<PurchaseOrder> mapper = RowMappers.purchaseOrder(rs);
+                while (rs.next()) {
+                    rollups.add(mapper.map(rs));
+                    if (++orders % REBUILD_FLUSH_ORDERS == 0) {
+                        flush(rollups, writeConnection);
+                    }
+                }
+            }
+            flush(rollups, writeConnection);
+        }
+        LOGGER.info("Rebuilt purchase order rollups from " + orders + " orders in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return orders;
+    }
+
+    private static void flush(PurchaseOrderRollups rollups, Connection connection) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            rollups.flush(connection);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length == 1 && args[0].equals("--rebuild")) {
+            long orders = new PurchaseOrderAnalytics().rebuild();
+            System.out.println("Rebuilt purchase order rollups from " + orders + " orders");
+        } else {
+            System.err.println("Usage: PurchaseOrderAnalytics --rebuild");
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package databasemanager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Changes to purchase_order_rollups, gathered while purchase orders are
+// written and applied with flush() in the same transaction, so the rollups
+// always match the orders. Each order counts once in every granularity for
+// its product, its product's store and the chain; an update is the old row
+// removed and the new one added. Deltas for the same rollup row are summed
+// before flushing, so a bulk reorder run costs one upsert per row touched.
+class PurchaseOrderRollups {
+
+    static final int STORE_LOOKUP_CHUNK = 500;
+
+    private static final String UPSERT_SQL = "INSERT INTO purchase_order_rollups (dimension, dimension_key, "
+            + "granularity, bucket_start, orders, units, delivered, lead_days) VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE orders = orders + VALUES(orders), units = units + VALUES(units), "
+            + "delivered = delivered + VALUES(delivered), lead_days = lead_days + VALUES(lead_days)";
+
+    // Per product until flush resolves the stores: productID -> row -> deltas
+    private final Map<Integer, Map<Key, long[]>> byProduct = new HashMap<>();
+
+    void add(PurchaseOrder purchaseOrder) {
+        apply(purchaseOrder, 1);
+    }
+
+    void remove(PurchaseOrder purchaseOrder) {
+        apply(purchaseOrder, -1);
+    }
+
+    boolean isEmpty() {
+        return byProduct.isEmpty();
+    }
+
+    private void apply(PurchaseOrder purchaseOrder, int sign) {
+        LocalDate orderDate = purchaseOrder.getOrderDate();
+        if (orderDate == null) {
+            return; // Can't be placed in a bucket
+        }
+        LocalDate deliveryDate = purchaseOrder.getDeliveryDate();
+        long delivered = deliveryDate != null ? 1 : 0;
+        long leadDays = deliveryDate != null ? ChronoUnit.DAYS.between(orderDate, deliveryDate) : 0;
+        Map<Key, long[]> rows = byProduct.computeIfAbsent(purchaseOrder.getProductID(), id -> new HashMap<>());
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            long[] deltas = rows.computeIfAbsent(new Key(RollupDimension.PRODUCT, purchaseOrder.getProductID(),
+                    granularity, granularity.bucketStart(orderDate)), key -> new long[4]);
+            deltas[0] += sign;
+            deltas[1] += sign * (long) purchaseOrder.getQuantity();
+            deltas[2] += sign * delivered;
+            deltas[3] += sign * leadDays;
+        }
+    }
+
+    // Write the gathered deltas and start over. Rows are upserted in key order
+    // so concurrent transactions lock them in the same order.
+    void flush(Connection connection) throws SQLException {
+        if (byProduct.isEmpty()) {
+            return;
+        }
+        Map<Integer, Integer> stores = storesOf(connection, byProduct.keySet());
+        Map<Key, long[]> rows = new HashMap<>();
+        for (Map.Entry<Integer, Map<Key, long[]>> product : byProduct.entrySet()) {
+            Integer storeId = stores.get(product.getKey());
+            for (Map.Entry<Key, long[]> row : product.getValue().entrySet()) {
+                Key key = row.getKey();
+                merge(rows, key, row.getValue());
+                merge(rows, new Key(RollupDimension.CHAIN, RollupDimension.CHAIN_KEY, key.granularity,
+                        key.bucketStart), row.getValue());
+                if (storeId != null) {
+                    merge(rows, new Key(RollupDimension.STORE, storeId, key.granularity, key.bucketStart),
+                            row.getValue());
+                }
+            }
+        }
+        byProduct.clear();
+
+        List<Key> keys = new ArrayList<>(rows.keySet());
+        keys.sort(Key.ORDER);
+        try (PreparedStatement stmt = connection.prepareStatement(UPSERT_SQL)) {
+            for (Key key : keys) {
+                long[] deltas = rows.get(key);
+                if (deltas[0] == 0 && deltas[1] == 0 && deltas[2] == 0 && deltas[3] == 0) {
+                    continue; // e.g. an update that only changed the tracking number
+                }
+                stmt.setString(1, key.dimension.getCode());
+                stmt.setInt(2, key.dimensionKey);
+                stmt.setString(3, key.granularity.getCode());
+                stmt.setDate(4, java.sql.Date.valueOf(key.bucketStart));
+                stmt.setLong(5, deltas[0]);
+                stmt.setLong(6, deltas[1]);
+                stmt.setLong(7, deltas[2]);
+                stmt.setLong(8, deltas[3]);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static void merge(Map<Key, long[]> rows, Key key, long[] deltas) {
+        long[] total = rows.computeIfAbsent(key, k -> new long[4]);
+        for (int i = 0; i < total.length; i++) {
+            total[i] += deltas[i];
+        }
+    }
+
+    // Store lookup for a chunk of productIDs
+    static String storeLookupSql(int ids) {
+        return "SELECT productID, MIN(store_id) FROM product WHERE productID IN ("
+                + String.join(", ", Collections.nCopies(ids, "?")) + ") GROUP BY productID";
+    }
+
+    // Store of each product. Products missing from the catalog are left out and
+    // only count towards their product and chain rows; a product stocked by
+    // more than one store is counted for the lowest store_id.
+    private static Map<Integer, Integer> storesOf(Connection connection, Set<Integer> productIds)
+            throws SQLException {
+        Map<Integer, Integer> stores = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(productIds));
+        for (int from = 0; from < ids.size(); from += STORE_LOOKUP_CHUNK) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + STORE_LOOKUP_CHUNK, ids.size()));
+            try (PreparedStatement stmt = connection.prepareStatement(storeLookupSql(chunk.size()))) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        stores.put(rs.getInt(1), rs.getInt(2));
+                    }
+                }
+            }
+        }
+        return stores;
+    }
+
+    private static final class Key {
+        static final Comparator<Key> ORDER = Comparator.comparing((Key key) -> key.dimension)
+                .thenComparingInt(key -> key.dimensionKey)
+                .thenComparing(key -> key.granularity)
+                .thenComparing(key -> key.bucketStart);
+
+        final RollupDimension dimension;
+        final int dimensionKey;
+        final RollupGranularity granularity;
+        final LocalDate bucketStart;
+
+        Key(RollupDimension dimension, int dimensionKey, RollupGranularity granularity, LocalDate bucketStart) {
+            this.dimension = dimension;
+            this.dimensionKey = dimensionKey;
+            this.granularity = granularity;
+            this.bucketStart = bucketStart;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return dimension == key.dimension && dimensionKey == key.dimensionKey
+                    && granularity == key.granularity && bucketStart.equals(key.bucketStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dimension, dimensionKey, granularity, bucketStart);
+        }
+    }
+}
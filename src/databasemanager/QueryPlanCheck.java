@@ -0,0 +1,232 @@
+package databasemanager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import benchmark.BenchmarkDatabase;
+
+// Query plan check for the DatabaseManager statements. Runs EXPLAIN on each
+// one and exits with status 1 if any of them reads a whole table it isn't
+// meant to, so a CI step can fail on a missing index:
+//
+//   java -Dsamsmart.db.url=jdbc:h2:mem:plans;MODE=MySQL;DB_CLOSE_DELAY=-1 \
+//        databasemanager.QueryPlanCheck
+//
+// On an embedded database it migrates and seeds first. Against MySQL it only
+// runs EXPLAIN, so it's safe on a copy of production, which is also where the
+// plans mean the most. On MySQL both access type ALL and a full index scan
+// count as reading the whole table.
+//
+// The check explains the package-visible SQL constants of DatabaseManager and
+// the engines themselves, so it can't drift from what runs; give a new
+// statement a constant and add it here. INSERTs are left out since they don't
+// read anything. It lives in this package for that access but is built with
+// the benchmarks module, next to the BenchmarkDatabase seeding it uses.
+public class QueryPlanCheck {
+
+    private static final int SEED_ROWS = 10_000;
+    private static final Pattern H2_TABLE_SCAN = Pattern.compile("/\\*\\s*(?:\\w+\\.)?(\\w+)\\.tableScan");
+
+    // One statement to explain. fullScanAllowed names the tables (or aliases)
+    // the statement reads in full on purpose, such as a complete listing.
+    private static final class Check {
+        final String name;
+        final String sql;
+        final Object[] parameters;
+        final Set<String> fullScanAllowed;
+
+        Check(String name, String sql, Set<String> fullScanAllowed, Object... parameters) {
+            this.name = name;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.fullScanAllowed = fullScanAllowed;
+        }
+    }
+
+    private static List<Check> checks() {
+        String email = BenchmarkDatabase.userEmail(1);
+        java.sql.Date today = java.sql.Date.valueOf(LocalDate.now());
+        java.sql.Date nextWeek = java.sql.Date.valueOf(LocalDate.now().plusDays(7));
+        Set<String> none = Set.of();
+        Set<String> product = Set.of("product");
+        Set<String> purchaseOrders = Set.of("purchase_orders");
+
+        List<Check> checks = new ArrayList<>();
+        checks.add(new Check("userExists", DatabaseManager.USER_EXISTS_SQL, none, email));
+        checks.add(new Check("authenticateUser", DatabaseManager.AUTHENTICATE_SQL, none, email,
+                BenchmarkDatabase.userPassword(1)));
+        checks.add(new Check("userIdExists", DatabaseManager.USER_ID_EXISTS_SQL, none, 1));
+        checks.add(new Check("getUserByEmail", DatabaseManager.USER_BY_EMAIL_SQL, none, email));
+        checks.add(new Check("updateUserRole", DatabaseManager.UPDATE_USER_ROLE_SQL, none, "EMPLOYEE", email));
+        checks.add(new Check("deleteUser", DatabaseManager.DELETE_USER_SQL, none, email));
+        checks.add(new Check("getAllUsers", DatabaseManager.ALL_USERS_SQL, Set.of("users")));
+
+        // Also the product half of the InventorySummary and ProductSearchIndex rebuilds
+        checks.add(new Check("getAllProducts", DatabaseManager.ALL_PRODUCTS_SQL, product));
+        // Reads the store's whole partition on MySQL; that is the listing
+        checks.add(new Check("getProductsByStore", DatabaseManager.PRODUCTS_BY_STORE_SQL, product, 1));
+        checks.add(new Check("getStoreInventoryTotals", DatabaseManager.STORE_TOTALS_SQL, product, today, nextWeek,
+                1));
+        for (ValuationDimension dimension : ValuationDimension.values()) {
+            checks.add(new Check("getInventoryValuation(" + dimension.getColumn() + ")",
+                    DatabaseManager.valuationSql(dimension), product));
+        }
+        checks.add(new Check("getProductById", DatabaseManager.PRODUCT_BY_ID_SQL, none, 1));
+        checks.add(new Check("getDescription", DatabaseManager.PRODUCT_DESCRIPTION_SQL, none, 1));
+        checks.add(new Check("productVersion", DatabaseManager.PRODUCT_VERSION_SQL, none, 1));
+        checks.add(new Check("adjustProductQuantity", DatabaseManager.PRODUCT_QUANTITY_SQL, none, 1));
+        checks.add(new Check("updateProductQuantity", DatabaseManager.UPDATE_QUANTITY_SQL, none, 10, 1, 0));
+        checks.add(new Check("updateProductQuantity(product)", DatabaseManager.UPDATE_STORE_QUANTITY_SQL, none, 10,
+                1, 1, 0));
+        checks.add(new Check("updateProductExpiration", DatabaseManager.UPDATE_EXPIRATION_SQL, none, today, 1, 0));
+        checks.add(new Check("deleteProduct", DatabaseManager.DELETE_PRODUCT_SQL, none, 1));
+        checks.add(new Check("deleteProduct(id)", DatabaseManager.UNREGISTER_PRODUCT_ID_SQL, none, 1));
+        checks.add(new Check("getExpiredProducts", DatabaseManager.EXPIRED_PRODUCTS_SQL, none));
+        checks.add(new Check("getMarkdownProducts", DatabaseManager.MARKDOWN_PRODUCTS_SQL, none, today, nextWeek));
+
+        checks.add(new Check("viewAllStores", DatabaseManager.VIEW_STORES_SQL, Set.of("stores")));
+        checks.add(new Check("getAllStores", DatabaseManager.ALL_STORES_SQL, Set.of("stores")));
+        checks.add(new Check("getStoreByID", DatabaseManager.STORE_BY_ID_SQL, none, 1));
+        checks.add(new Check("getStoreIds", DatabaseManager.STORE_IDS_SQL, Set.of("stores", "product")));
+        checks.add(new Check("storeVersion", DatabaseManager.STORE_VERSION_SQL, none, 1));
+        checks.add(new Check("updateStore", DatabaseManager.UPDATE_STORE_SQL, none, "Store 1", "1 Main St",
+                "City 1", "TX", 75001, "5550001001", "retail", 1, 0));
+        checks.add(new Check("deleteStore", DatabaseManager.DELETE_STORE_SQL, none, 1));
+
+        // Also the purchase order half of the InventorySummary rebuild
+        checks.add(new Check("getAllPurchaseOrders", DatabaseManager.ALL_PURCHASE_ORDERS_SQL, purchaseOrders));
+        checks.add(new Check("readPurchaseOrder", DatabaseManager.PURCHASE_ORDER_BY_NUMBER_SQL, none, 10_000));
+        checks.add(new Check("updatePurchaseOrder", DatabaseManager.UPDATE_PURCHASE_ORDER_SQL, none, 1, 5, today,
+                "T1", 10_000, 0));
+        checks.add(new Check("markPurchaseOrderDelivered", DatabaseManager.MARK_DELIVERED_SQL, none, today, 10_000,
+                0));
+        checks.add(new Check("deletePurchaseOrder", DatabaseManager.DELETE_PURCHASE_ORDER_SQL, none, 10_000, 0));
+        checks.add(new Check("getPurchaseOrderRollups", DatabaseManager.ROLLUPS_SQL, none, "product", 1, "D", today,
+                nextWeek));
+
+        checks.add(new Check("IdAllocator.reserve", IdAllocator.SELECT_SQL, none, "po_number"));
+        checks.add(new Check("IdAllocator.advance", IdAllocator.UPDATE_SQL, none, 200_000L, "po_number"));
+        checks.add(new Check("PurchaseOrderRollups.stores", PurchaseOrderRollups.storeLookupSql(
+                PurchaseOrderRollups.STORE_LOOKUP_CHUNK), none, lookupIds(PurchaseOrderRollups.STORE_LOOKUP_CHUNK)));
+        // The rebuild reads every order once, on purpose
+        checks.add(new Check("PurchaseOrderAnalytics.rebuild", PurchaseOrderAnalytics.ALL_ORDERS_SQL,
+                purchaseOrders));
+        for (ExportTable table : ExportTable.values()) {
+            checks.add(new Check("DataExporter(" + table.getTable() + ")",
+                    DataExporter.exportSql(table, table.getColumns()), Set.of(table.getTable())));
+        }
+        checks.add(new Check("InventoryReportWriter.categories", InventoryReportWriter.CATEGORY_SQL, product));
+        checks.add(new Check("InventoryReportWriter.expiring", InventoryReportWriter.EXPIRING_SQL, none, today,
+                nextWeek));
+        checks.add(new Check("InventoryReportWriter.openOrders", InventoryReportWriter.OPEN_ORDERS_SQL, none));
+
+        // The reorder scan compares every product's stock with its threshold,
+        // but each NOT EXISTS probe must be an index lookup
+        checks.add(new Check("ReorderEngine.lock", ReorderEngine.LOCK_SQL, none));
+        checks.add(new Check("ReorderEngine.scan", ReorderEngine.SCAN_SQL, Set.of("product", "p"), 5, 20, 5));
+        checks.add(new Check("MarkdownEngine.scan", MarkdownEngine.SCAN_SQL, none, today, nextWeek));
+        checks.add(new Check("MarkdownEngine.update", MarkdownEngine.UPDATE_SQL, none, 2.0, 1.5, today, 1, 1, 0));
+        // Each planner slice materializes its products' summed stock, which
+        // MySQL then reads in full; everything else is a key range or lookup
+        checks.add(new Check("ReorderPointPlanner.range", ReorderPointPlanner.RANGE_SQL, none));
+        checks.add(new Check("ReorderPointPlanner.slice", ReorderPointPlanner.SLICE_SQL, Set.of("<derived2>"), today,
+                1, 20_000));
+        checks.add(new Check("ReorderPointPlanner.history", ReorderPointPlanner.HISTORY_SQL, none, "product", 1,
+                20_000, "M", today));
+        return checks;
+    }
+
+    private static Object[] lookupIds(int count) {
+        Object[] ids = new Object[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i + 1;
+        }
+        return ids;
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean mysql = DatabaseManager.DB_URL.startsWith("jdbc:mysql:");
+        if (!mysql) {
+            new BenchmarkDatabase(SEED_ROWS, SEED_ROWS, SEED_ROWS, BenchmarkDatabase.DEFAULT_STORES).createAndSeed();
+        }
+
+        List<String> failures = new ArrayList<>();
+        try (DatabaseManager dbManager = new DatabaseManager()) {
+            Connection connection = dbManager.getConnection();
+            MigrationRunner migrations = new MigrationRunner(connection);
+            if (migrations.currentVersion() < MigrationRunner.latestVersion()) {
+                System.err.println("Schema is at version " + migrations.currentVersion() + " of "
+                        + MigrationRunner.latestVersion() + "; run MigrationRunner first.");
+                System.exit(2);
+            }
+            System.out.printf("%-40s %s%n", "Statement", "Full table scans");
+            for (Check check : checks()) {
+                String result;
+                try {
+                    List<String> scanned = fullScans(connection, check, mysql);
+                    List<String> unexpected = new ArrayList<>();
+                    for (String table : scanned) {
+                        if (!check.fullScanAllowed.contains(table.toLowerCase(Locale.ROOT))) {
+                            unexpected.add(table);
+                        }
+                    }
+                    result = scanned.isEmpty() ? "none" : String.join(", ", scanned);
+                    if (!unexpected.isEmpty()) {
+                        result += "  UNEXPECTED: " + String.join(", ", unexpected);
+                        failures.add(check.name);
+                    }
+                } catch (SQLException e) {
+                    result = "EXPLAIN FAILED: " + e.getMessage();
+                    failures.add(check.name);
+                }
+                System.out.printf("%-40s %s%n", check.name, result);
+            }
+        }
+        if (!failures.isEmpty()) {
+            System.err.println("Full table scans or unexplainable statements in: " + String.join(", ", failures));
+            System.exit(1);
+        }
+        System.out.println("Every statement uses an index where it should.");
+    }
+
+    // Tables the plan reads in full. MySQL returns one row per table with its
+    // access type; H2 returns the plan as text with a tableScan comment on
+    // each table read in full.
+    private static List<String> fullScans(Connection connection, Check check, boolean mysql) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement("EXPLAIN " + check.sql)) {
+            for (int i = 0; i < check.parameters.length; i++) {
+                stmt.setObject(i + 1, check.parameters[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                while (rs.next()) {
+                    if (mysql) {
+                        String type = rs.getString("type");
+                        if ("ALL".equals(type) || "index".equals(type)) {
+                            tables.add(rs.getString("table"));
+                        }
+                    } else {
+                        for (int column = 1; column <= meta.getColumnCount(); column++) {
+                            Matcher matcher = H2_TABLE_SCAN.matcher(String.valueOf(rs.getString(column)));
+                            while (matcher.find()) {
+                                tables.add(matcher.group(1));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return tables;
+    }
+}
@@ -0,0 +1,189 @@
+package databasemanager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import product.java.Item;
+
+// Finds products at or below their reorder point and raises purchase orders
+// for them in bulk. Each run is one scan query plus batched inserts (and the
+// matching purchase order rollup upserts) inside a single transaction, and
+// scheduled runs happen on a background thread so the menus never wait on
+// them.
+public class ReorderEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(ReorderEngine.class.getName());
+
+    // Order enough to bring stock back up to this level when a product has no
+    // reorder_points row of its own
+    public static final int DEFAULT_ORDER_UP_TO = 20;
+
+    private static final int BATCH_SIZE = 500;
+
+    // Low-stock products that don't already have an undelivered purchase order
+    static final String SCAN_SQL = "SELECT p.productID, p.quantity, "
+            + "COALESCE(r.reorder_point, ?) AS reorder_point, COALESCE(r.order_up_to, ?) AS order_up_to "
+            + "FROM product p LEFT JOIN reorder_points r ON r.productID = p.productID "
+            + "WHERE p.quantity <= COALESCE(r.reorder_point, ?) "
+            + "AND NOT EXISTS (SELECT 1 FROM purchase_orders po WHERE po.productID = p.productID AND po.deliverydate IS NULL)";
+
+    // Held until the run commits, so runs in different processes (every
+    // terminal starts the hourly engine) take turns
+    static final String LOCK_SQL = "SELECT name FROM job_locks WHERE name = 'reorder' FOR UPDATE";
+
+    private static final String INSERT_SQL = "INSERT INTO purchase_orders (po_number, productID, quantity, order_date, tracking_number) VALUES (?, ?, ?, ?, ?)";
+
+    private final Supplier<DatabaseManager> managerFactory;
+    private final Object runLock = new Object();
+    private ScheduledExecutorService scheduler;
+    private volatile ReorderReport lastReport;
+
+    public ReorderEngine() {
+        this(DatabaseManager::new);
+    }
+
+    public ReorderEngine(Supplier<DatabaseManager> managerFactory) {
+        this.managerFactory = managerFactory;
+    }
+
+    // How many units to order so stock is back up to orderUpTo; always at least one
+    public static int computeOrderQuantity(int quantity, int reorderPoint, int orderUpTo) {
+        if (!Item.isLowStock(quantity, reorderPoint)) {
+            return 0;
+        }
+        return Math.max(orderUpTo - Math.max(quantity, 0), 1);
+    }
+
+    // Scan stock and create the purchase orders in one transaction. Runs never
+    // overlap, in this process or any other: each one first locks the
+    // 'reorder' row in job_locks and holds it until it commits, so a run that
+    // had to wait scans after the earlier run's orders are visible and a
+    // product can't be ordered twice.
+    public ReorderReport runOnce() throws SQLException {
+        synchronized (runLock) {
+            return scanAndOrder();
+        }
+    }
+
+    private ReorderReport scanAndOrder() throws SQLException {
+        long start = System.nanoTime();
+        LocalDate orderDate = LocalDate.now();
+        int lowStock = 0;
+        int created = 0;
+        long units = 0;
+        List<Integer> createdPoNumbers = new ArrayList<>();
+        PurchaseOrderRollups rollups = new PurchaseOrderRollups();
+
+        IdAllocator poNumbers = IdAllocator.poNumbers();
+        TrackingNumberGenerator trackingNumbers = TrackingNumberGenerator.shared();
+
+        try (DatabaseManager dbManager = managerFactory.get()) {
+            Connection connection = dbManager.getConnection();
+            connection.setAutoCommit(false);
+            try (PreparedStatement lock = connection.prepareStatement(LOCK_SQL);
+                    PreparedStatement scan = connection.prepareStatement(SCAN_SQL);
+                    PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+                try (ResultSet rs = lock.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Missing 'reorder' row in job_locks; run MigrationRunner");
+                    }
+                }
+                scan.setInt(1, Item.DEFAULT_REORDER_POINT);
+                scan.setInt(2, DEFAULT_ORDER_UP_TO);
+                scan.setInt(3, Item.DEFAULT_REORDER_POINT);
+                java.sql.Date sqlOrderDate = java.sql.Date.valueOf(orderDate);
+
+                try (ResultSet rs = scan.executeQuery()) {
+                    while (rs.next()) {
+                        lowStock++;
+                        int quantity = computeOrderQuantity(rs.getInt(2), rs.getInt(3), rs.getInt(4));
+                        if (quantity == 0) {
+                            continue;
+                        }
+                        int poNumber = Math.toIntExact(poNumbers.next());
+                        insert.setInt(1, poNumber);
+                        insert.setInt(2, rs.getInt(1));
+                        insert.setInt(3, quantity);
+                        insert.setDate(4, sqlOrderDate);
+                        insert.setString(5, trackingNumbers.next());
+                        insert.addBatch();
+                        PurchaseOrder purchaseOrder = new PurchaseOrder(poNumber, orderDate, null);
+                        purchaseOrder.setProductID(rs.getInt(1));
+                        purchaseOrder.setQuantity(quantity);
+                        rollups.add(purchaseOrder);
+                        created++;
+                        createdPoNumbers.add(poNumber);
+                        units += quantity;
+                        if (created % BATCH_SIZE == 0) {
+                            insert.executeBatch();
+                        }
+                    }
+                }
+                if (created % BATCH_SIZE != 0) {
+                    insert.executeBatch();
+                }
+                rollups.flush(connection);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+
+        for (int poNumber : createdPoNumbers) {
+            DatabaseManager.notifyInventoryListeners(listener -> listener.purchaseOrderAdded(poNumber, true));
+        }
+
+        lastReport = new ReorderReport(lowStock, created, units, System.nanoTime() - start);
+        LOGGER.info("Automatic reorder finished: " + lastReport);
+        return lastReport;
+    }
+
+    // Run every periodMinutes on a background daemon thread
+    public synchronized void start(long periodMinutes) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reorder-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runQuietly, periodMinutes, periodMinutes, TimeUnit.MINUTES);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    // Report from the most recent run, or null if it hasn't run yet
+    public ReorderReport getLastReport() {
+        return lastReport;
+    }
+
+    private void runQuietly() {
+        try {
+            runOnce();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "SQL error in scheduled reorder run", e);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error in scheduled reorder run", e);
+        }
+    }
+}
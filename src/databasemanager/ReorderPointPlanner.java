@@ -0,0 +1,370 @@
+package databasemanager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import product.java.Item;
+
+// Sets each product's reorder_points row from its demand. Daily demand is an
+// exponentially weighted moving average of stock depletion: the stock counted
+// at the previous run, plus deliveries since, minus the stock now. Until a
+// product has one depletion sample its demand is the purchase order average
+// from the monthly rollups. The reorder point covers the demand over the
+// product's average lead time, plus safety stock for the demand's spread.
+//
+// The productID range is split in half until each slice holds at most
+// SLICE_IDS ids; slices run in parallel on a fork-join pool, each reading,
+// computing and upserting its products on its own connection in one
+// transaction. Pinned rows (thresholds set by hand) keep their thresholds but
+// still get their demand statistics updated.
+//
+// Usage: java databasemanager.ReorderPointPlanner runs it once.
+public class ReorderPointPlanner implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(ReorderPointPlanner.class.getName());
+
+    static final int SLICE_IDS = 20000;
+    private static final int BATCH_SIZE = 1000;
+
+    // Weight of one day's depletion in the moving average; a 28-day span
+    static final double DAILY_ALPHA = 2.0 / (28 + 1);
+    // Safety stock for a 95% chance of not running out during the lead time
+    static final double SERVICE_Z = 1.65;
+    // Lead time for products that have never had a delivery
+    static final double DEFAULT_LEAD_DAYS = 7.0;
+    // Stock ordered beyond the reorder point, as days of demand
+    static final int COVER_DAYS = 14;
+    // Purchase order history used before there is any depletion history
+    static final int HISTORY_MONTHS = 3;
+
+    static final String SLICE_SQL = "SELECT p.productID, p.quantity, r.pinned, r.reorder_point, "
+            + "r.order_up_to, r.demand_avg, r.demand_var, r.last_quantity, r.counted_on, "
+            + "(SELECT COALESCE(SUM(po.quantity), 0) FROM purchase_orders po WHERE po.productID = p.productID "
+            + "AND po.deliverydate >= r.counted_on AND po.deliverydate < ?) AS received "
+            + "FROM (SELECT productID, SUM(quantity) AS quantity FROM product WHERE productID BETWEEN ? AND ? "
+            + "GROUP BY productID) p LEFT JOIN reorder_points r ON r.productID = p.productID";
+
+    static final String HISTORY_SQL = "SELECT dimension_key, SUM(units), SUM(delivered), SUM(lead_days) "
+            + "FROM purchase_order_rollups WHERE dimension = ? AND dimension_key BETWEEN ? AND ? "
+            + "AND granularity = ? AND bucket_start >= ? GROUP BY dimension_key";
+
+    static final String RANGE_SQL = "SELECT MIN(productID), MAX(productID) FROM product";
+
+    private static final String UPSERT_SQL = "INSERT INTO reorder_points (productID, reorder_point, order_up_to, "
+            + "pinned, demand_avg, demand_var, last_quantity, counted_on) VALUES (?, ?, ?, FALSE, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE reorder_point = VALUES(reorder_point), order_up_to = VALUES(order_up_to), "
+            + "demand_avg = VALUES(demand_avg), demand_var = VALUES(demand_var), "
+            + "last_quantity = VALUES(last_quantity), counted_on = VALUES(counted_on)";
+
+    private final ForkJoinPool pool;
+    private final Supplier<DatabaseManager> managerFactory;
+    private final Object runLock = new Object();
+    private ScheduledExecutorService scheduler;
+    private volatile ReorderPointReport lastReport;
+
+    public ReorderPointPlanner() {
+        this(Integer.getInteger("samsmart.reorderPoints.parallelism", 4));
+    }
+
+    // Parallelism is also the number of connections used at once
+    public ReorderPointPlanner(int parallelism) {
+        this(parallelism, DatabaseManager::new);
+    }
+
+    public ReorderPointPlanner(int parallelism, Supplier<DatabaseManager> managerFactory) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.managerFactory = managerFactory;
+    }
+
+    // Recompute every product's reorder point. Runs never overlap.
+    public ReorderPointReport runOnce() throws SQLException {
+        synchronized (runLock) {
+            long start = System.nanoTime();
+            LocalDate today = LocalDate.now();
+            int minId;
+            int maxId;
+            try (DatabaseManager dbManager = managerFactory.get();
+                    PreparedStatement stmt = dbManager.getConnection()
+                            .prepareStatement(RANGE_SQL);
+                    ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                minId = rs.getInt(1);
+                maxId = rs.getInt(2);
+                if (rs.wasNull()) {
+                    maxId = minId - 1; // No products
+                }
+            }
+            ReorderPointReport report;
+            try {
+                report = pool.invoke(new SliceTask(minId, maxId, today));
+            } catch (SliceException e) {
+                throw e.getCause();
+            }
+            lastReport = report.withElapsed(System.nanoTime() - start);
+            LOGGER.info("Reorder points recomputed: " + lastReport);
+            return lastReport;
+        }
+    }
+
+    // Run every night at the given hour (0-23, local time) on a background daemon thread
+    public synchronized void startNightly(int hour) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reorder-point-planner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(hour, 0);
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        scheduler.scheduleAtFixedRate(this::runQuietly, Duration.between(now, next).toMinutes(),
+                TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    // Report from the most recent run, or null if it hasn't run yet
+    public ReorderPointReport getLastReport() {
+        return lastReport;
+    }
+
+    @Override
+    public void close() {
+        stop();
+        pool.shutdown();
+    }
+
+    private void runQuietly() {
+        try {
+            runOnce();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "SQL error in nightly reorder point run", e);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error in nightly reorder point run", e);
+        }
+    }
+
+    // Moving average and variance after a depletion sample covering days days.
+    // A sample over several days weighs as much as that many daily samples.
+    static double[] updateDemand(double average, double variance, double dailyDepletion, long days) {
+        double alpha = 1.0 - Math.pow(1.0 - DAILY_ALPHA, days);
+        double diff = dailyDepletion - average;
+        return new double[] { average + alpha * diff, (1.0 - alpha) * (variance + alpha * diff * diff) };
+    }
+
+    // Stock to cover demand over the lead time, plus safety stock
+    static int reorderPoint(double dailyDemand, double dailyStdDev, double leadDays) {
+        return (int) Math.ceil(dailyDemand * leadDays + SERVICE_Z * dailyStdDev * Math.sqrt(leadDays));
+    }
+
+    static int orderUpTo(int reorderPoint, double dailyDemand) {
+        return reorderPoint + Math.max((int) Math.ceil(dailyDemand * COVER_DAYS), 1);
+    }
+
+    private ReorderPointReport planSlice(int fromId, int toId, LocalDate today) throws SQLException {
+        LocalDate historyStart = today.withDayOfMonth(1).minusMonths(HISTORY_MONTHS);
+        long historyDays = Math.max(ChronoUnit.DAYS.between(historyStart, today), 1);
+        long products = 0;
+        long withDemand = 0;
+        long pinnedCount = 0;
+
+        try (DatabaseManager dbManager = managerFactory.get()) {
+            Connection connection = dbManager.getConnection();
+            connection.setAutoCommit(false);
+            try (PreparedStatement upsert = connection.prepareStatement(UPSERT_SQL)) {
+                // productID -> units ordered, orders delivered, lead days
+                Map<Integer, long[]> history = new HashMap<>();
+                try (PreparedStatement stmt = connection.prepareStatement(HISTORY_SQL)) {
+                    stmt.setString(1, RollupDimension.PRODUCT.getCode());
+                    stmt.setInt(2, fromId);
+                    stmt.setInt(3, toId);
+                    stmt.setString(4, RollupGranularity.MONTHLY.getCode());
+                    stmt.setDate(5, java.sql.Date.valueOf(historyStart));
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            history.put(rs.getInt(1), new long[] { rs.getLong(2), rs.getLong(3), rs.getLong(4) });
+                        }
+                    }
+                }
+
+                try (PreparedStatement stmt = connection.prepareStatement(SLICE_SQL)) {
+                    stmt.setDate(1, java.sql.Date.valueOf(today));
+                    stmt.setInt(2, fromId);
+                    stmt.setInt(3, toId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            int productId = rs.getInt(1);
+                            int quantity = rs.getInt(2);
+                            boolean pinned = rs.getBoolean(3) && !rs.wasNull();
+                            int reorderPoint = rs.getInt(4);
+                            int orderUpTo = rs.getInt(5);
+                            double average = rs.getDouble(6);
+                            boolean hasDemand = !rs.wasNull();
+                            double variance = rs.getDouble(7);
+                            int lastQuantity = rs.getInt(8);
+                            boolean hasCount = !rs.wasNull();
+                            java.sql.Date countedOnDate = rs.getDate(9);
+                            LocalDate countedOn = countedOnDate != null ? countedOnDate.toLocalDate() : null;
+                            long received = rs.getLong(10);
+
+                            // A second run on the same day keeps the earlier count,
+                            // so tomorrow's sample still spans whole days
+                            long days = countedOn != null ? ChronoUnit.DAYS.between(countedOn, today) : -1;
+                            if (days != 0 || !hasCount) {
+                                if (hasCount && days > 0) {
+                                    double daily = Math.max(lastQuantity + received - quantity, 0) / (double) days;
+                                    if (hasDemand) {
+                                        double[] updated = updateDemand(average, variance, daily, days);
+                                        average = updated[0];
+                                        variance = updated[1];
+                                    } else {
+                                        average = daily;
+                                        variance = 0.0;
+                                        hasDemand = true;
+                                    }
+                                }
+                                lastQuantity = quantity;
+                                countedOn = today;
+                            }
+
+                            long[] ordered = history.get(productId);
+                            double leadDays = ordered != null && ordered[1] > 0
+                                    ? Math.max((double) ordered[2] / ordered[1], 1.0)
+                                    : DEFAULT_LEAD_DAYS;
+                            double demand;
+                            double stdDev;
+                            if (hasDemand) {
+                                demand = average;
+                                stdDev = Math.sqrt(variance);
+                            } else if (ordered != null && ordered[0] > 0) {
+                                // Orders alone say nothing about the spread; assume Poisson
+                                demand = (double) ordered[0] / historyDays;
+                                stdDev = Math.sqrt(demand);
+                            } else {
+                                demand = -1;
+                                stdDev = 0;
+                            }
+
+                            if (pinned) {
+                                pinnedCount++;
+                            } else if (demand >= 0) {
+                                reorderPoint = reorderPoint(demand, stdDev, leadDays);
+                                orderUpTo = orderUpTo(reorderPoint, demand);
+                                withDemand++;
+                            } else {
+                                reorderPoint = Item.DEFAULT_REORDER_POINT;
+                                orderUpTo = ReorderEngine.DEFAULT_ORDER_UP_TO;
+                            }
+
+                            upsert.setInt(1, productId);
+                            upsert.setInt(2, reorderPoint);
+                            upsert.setInt(3, orderUpTo);
+                            if (hasDemand) {
+                                upsert.setDouble(4, average);
+                                upsert.setDouble(5, variance);
+                            } else {
+                                upsert.setNull(4, java.sql.Types.DOUBLE);
+                                upsert.setNull(5, java.sql.Types.DOUBLE);
+                            }
+                            upsert.setInt(6, lastQuantity);
+                            upsert.setDate(7, java.sql.Date.valueOf(countedOn));
+                            upsert.addBatch();
+                            if (++products % BATCH_SIZE == 0) {
+                                upsert.executeBatch();
+                            }
+                        }
+                    }
+                }
+                if (products % BATCH_SIZE != 0) {
+                    upsert.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        return new ReorderPointReport(products, withDemand, pinnedCount, 1, 0);
+    }
+
+    private class SliceTask extends RecursiveTask<ReorderPointReport> {
+        private static final long serialVersionUID = 1L;
+
+        private final int fromId;
+        private final int toId;
+        private final LocalDate today;
+
+        SliceTask(int fromId, int toId, LocalDate today) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.today = today;
+        }
+
+        @Override
+        protected ReorderPointReport compute() {
+            if (toId < fromId) {
+                return new ReorderPointReport(0, 0, 0, 0, 0);
+            }
+            if ((long) toId - fromId < SLICE_IDS) {
+                try {
+                    return planSlice(fromId, toId, today);
+                } catch (SQLException e) {
+                    throw new SliceException(e);
+                }
+            }
+            int mid = (int) (((long) fromId + toId) >>> 1);
+            SliceTask left = new SliceTask(fromId, mid, today);
+            SliceTask right = new SliceTask(mid + 1, toId, today);
+            left.fork();
+            ReorderPointReport rightReport = right.compute();
+            return left.join().combine(rightReport);
+        }
+    }
+
+    // Carries a SQLException out of the fork-join pool
+    private static class SliceException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SliceException(SQLException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        try (ReorderPointPlanner planner = new ReorderPointPlanner()) {
+            System.out.println(planner.runOnce());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package databasemanager;
+
+// Outcome of one ReorderPointPlanner run
+public class ReorderPointReport {
+    private final long products;
+    private final long withDemand;
+    private final long pinned;
+    private final int slices;
+    private final long elapsedNanos;
+
+    public ReorderPointReport(long products, long withDemand, long pinned, int slices, long elapsedNanos) {
+        this.products = products;
+        this.withDemand = withDemand;
+        this.pinned = pinned;
+        this.slices = slices;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Products given a reorder_points row
+    public long getProducts() {
+        return products;
+    }
+
+    // Products with enough history for a demand-based reorder point; the
+    // rest got the defaults
+    public long getWithDemand() {
+        return withDemand;
+    }
+
+    // Products whose hand-set thresholds were left alone
+    public long getPinned() {
+        return pinned;
+    }
+
+    public int getSlices() {
+        return slices;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getProductsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : products / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return "ReorderPointReport{" +
+                "products=" + products +
+                ", withDemand=" + withDemand +
+                ", pinned=" + pinned +
+                ", slices=" + slices +
+                ", elapsedMillis=" + (elapsedNanos / 1_000_000) +
+                ", productsPerSecond=" + Math.round(getProductsPerSecond()) +
+                '}';
+    }
+
+    ReorderPointReport combine(ReorderPointReport other) {
+        return new ReorderPointReport(products + other.products, withDemand + other.withDemand,
+                pinned + other.pinned, slices + other.slices, 0);
+    }
+
+    ReorderPointReport withElapsed(long elapsedNanos) {
+        return new ReorderPointReport(products, withDemand, pinned, slices, elapsedNanos);
+    }
+}
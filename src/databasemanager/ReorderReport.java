@@ -0,0 +1,48 @@
+package databasemanager;
+
+// Outcome of one reorder engine run
+public class ReorderReport {
+    private final int lowStockProducts;
+    private final int purchaseOrdersCreated;
+    private final long unitsOrdered;
+    private final long elapsedNanos;
+
+    public ReorderReport(int lowStockProducts, int purchaseOrdersCreated, long unitsOrdered, long elapsedNanos) {
+        this.lowStockProducts = lowStockProducts;
+        this.purchaseOrdersCreated = purchaseOrdersCreated;
+        this.unitsOrdered = unitsOrdered;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getLowStockProducts() {
+        return lowStockProducts;
+    }
+
+    public int getPurchaseOrdersCreated() {
+        return purchaseOrdersCreated;
+    }
+
+    public long getUnitsOrdered() {
+        return unitsOrdered;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // Throughput of the run, including the scan
+    public double getPurchaseOrdersPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : purchaseOrdersCreated / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return "ReorderReport{" +
+                "lowStockProducts=" + lowStockProducts +
+                ", purchaseOrdersCreated=" + purchaseOrdersCreated +
+                ", unitsOrdered=" + unitsOrdered +
+                ", elapsedMillis=" + (elapsedNanos / 1_000_000) +
+                ", posPerSecond=" + Math.round(getPurchaseOrdersPerSecond()) +
+                '}';
+    }
+}
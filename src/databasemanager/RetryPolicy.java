@@ -0,0 +1,56 @@
+package databasemanager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Bounded exponential backoff used when an optimistic update loses a version race
+public class RetryPolicy {
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public RetryPolicy(int maxAttempts, long baseBackoffMillis, long maxBackoffMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    // Five attempts, 5ms doubling up to 100ms
+    public static RetryPolicy defaultPolicy() {
+        return new RetryPolicy(5, 5, 100);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    // Check if another attempt is allowed after the given (1-based) attempt failed
+    public boolean shouldRetry(int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    // Backoff before the next attempt: capped exponential with full jitter so that
+    // clerks racing on the same row don't retry in lockstep
+    public long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return 0;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    // Sleep for the backoff, preserving the interrupt flag if interrupted
+    public void backoff(int attempt) {
+        long millis = backoffMillis(attempt);
+        if (millis == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package databasemanager;
+
+import java.time.LocalDate;
+
+// Purchase orders placed in one time bucket. Deliveries and lead time are
+// counted in the bucket the order was placed in.
+public class RollupBucket {
+    private final LocalDate bucketStart;
+    private final long orders;
+    private final long units;
+    private final long delivered;
+    private final long leadDays;
+
+    public RollupBucket(LocalDate bucketStart, long orders, long units, long delivered, long leadDays) {
+        this.bucketStart = bucketStart;
+        this.orders = orders;
+        this.units = units;
+        this.delivered = delivered;
+        this.leadDays = leadDays;
+    }
+
+    public LocalDate getBucketStart() {
+        return bucketStart;
+    }
+
+    public long getOrders() {
+        return orders;
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    // Orders from this bucket that have been delivered
+    public long getDelivered() {
+        return delivered;
+    }
+
+    // Days from order to delivery, summed over the delivered orders
+    public long getLeadDays() {
+        return leadDays;
+    }
+
+    // Mean days from order to delivery, or -1 if none were delivered yet
+    public double getAverageLeadDays() {
+        return delivered == 0 ? -1.0 : (double) leadDays / delivered;
+    }
+}
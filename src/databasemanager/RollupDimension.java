@@ -0,0 +1,28 @@
+package databasemanager;
+
+// What a purchase order rollup row is kept per. The key is the productID or
+// store_id; chain rows cover every store and always have key 0.
+public enum RollupDimension {
+    PRODUCT("product", "Product"),
+    STORE("store", "Store"),
+    CHAIN("chain", "Chain");
+
+    public static final int CHAIN_KEY = 0;
+
+    private final String code;
+    private final String label;
+
+    RollupDimension(String code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    // Stored in purchase_order_rollups.dimension
+    public String getCode() {
+        return code;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,65 @@
+package databasemanager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+// Bucket sizes for the purchase order rollups. Weeks start on Monday.
+public enum RollupGranularity {
+    DAILY("D", "Daily"),
+    WEEKLY("W", "Weekly"),
+    MONTHLY("M", "Monthly");
+
+    private final String code;
+    private final String label;
+
+    RollupGranularity(String code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    // Stored in purchase_order_rollups.granularity
+    public String getCode() {
+        return code;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    // First day of the bucket holding date
+    public LocalDate bucketStart(LocalDate date) {
+        switch (this) {
+            case WEEKLY:
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHLY:
+                return date.withDayOfMonth(1);
+            default:
+                return date;
+        }
+    }
+
+    // Start of the bucket after the one starting at bucketStart
+    public LocalDate next(LocalDate bucketStart) {
+        switch (this) {
+            case WEEKLY:
+                return bucketStart.plusWeeks(1);
+            case MONTHLY:
+                return bucketStart.plusMonths(1);
+            default:
+                return bucketStart.plusDays(1);
+        }
+    }
+
+    // Start of the bucket `count` buckets before the one starting at bucketStart
+    public LocalDate minus(LocalDate bucketStart, int count) {
+        switch (this) {
+            case WEEKLY:
+                return bucketStart.minusWeeks(count);
+            case MONTHLY:
+                return bucketStart.minusMonths(count);
+            default:
+                return bucketStart.minusDays(count);
+        }
+    }
+}
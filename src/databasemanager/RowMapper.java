@@ -0,0 +1,12 @@
+package databasemanager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Decodes the current row of a result set into an object. Mappers are built
+// per result set by RowMappers, which looks the column indexes up once so
+// each row is read by index.
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,142 @@
+package databasemanager;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import product.java.Product;
+
+// Row mappers for the repository's model classes. Each factory reads the
+// result set's metadata once and captures the column indexes, so the
+// per-row work is one getXxx(index) call per column: no name lookups, and
+// dates come back as LocalDate (or null) from a single getObject call.
+// Optional columns that the query didn't select are simply skipped.
+public final class RowMappers {
+
+    private RowMappers() {
+    }
+
+    public static RowMapper<Product> product(ResultSet rs) throws SQLException {
+        Columns columns = new Columns(rs);
+        int productId = columns.required("productID");
+        int productName = columns.required("productName");
+        int expirationDate = columns.required("expirationDate");
+        int markdownDate = columns.required("markdownDate");
+        int quantity = columns.required("quantity");
+        int manufacturer = columns.required("manufacturer");
+        int brand = columns.required("brand");
+        int price = columns.required("price");
+        int category = columns.required("category");
+        int description = columns.optional("description");
+        int storeId = columns.optional("store_id");
+        int total = columns.optional("total");
+        int dateAdded = columns.optional("date_added");
+        return row -> {
+            Product product = new Product(
+                    row.getString(productName),
+                    row.getObject(expirationDate, LocalDate.class),
+                    row.getObject(markdownDate, LocalDate.class),
+                    row.getInt(quantity),
+                    row.getString(manufacturer),
+                    row.getString(brand),
+                    row.getDouble(price),
+                    row.getString(category));
+            product.setProductID(row.getInt(productId));
+            if (description > 0) {
+                product.setDescription(row.getString(description));
+            }
+            if (storeId > 0) {
+                product.setStoreId(row.getInt(storeId));
+            }
+            if (total > 0) {
+                product.setTotal(row.getDouble(total));
+            }
+            if (dateAdded > 0) {
+                product.setDateAdded(row.getObject(dateAdded, LocalDate.class));
+            }
+            return product;
+        };
+    }
+
+    public static RowMapper<User> user(ResultSet rs) throws SQLException {
+        Columns columns = new Columns(rs);
+        int userId = columns.required("user_id");
+        int firstName = columns.required("first_name");
+        int lastName = columns.required("last_name");
+        int phoneNumber = columns.required("phone_number");
+        int email = columns.required("email");
+        int password = columns.required("password");
+        int role = columns.required("role");
+        return row -> new User(
+                row.getInt(userId),
+                row.getString(firstName),
+                row.getString(lastName),
+                row.getString(phoneNumber),
+                row.getString(email),
+                row.getString(password),
+                UserRole.valueOf(row.getString(role)));
+    }
+
+    public static RowMapper<PurchaseOrder> purchaseOrder(ResultSet rs) throws SQLException {
+        Columns columns = new Columns(rs);
+        int poNumber = columns.required("po_number");
+        int productId = columns.required("productID");
+        int quantity = columns.required("quantity");
+        int orderDate = columns.required("order_date");
+        int deliveryDate = columns.required("deliverydate");
+        int trackingNumber = columns.required("tracking_number");
+        int version = columns.optional("version");
+        return row -> {
+            PurchaseOrder purchaseOrder = new PurchaseOrder(row.getInt(poNumber),
+                    row.getObject(orderDate, LocalDate.class), row.getObject(deliveryDate, LocalDate.class));
+            purchaseOrder.setProductID(row.getInt(productId));
+            purchaseOrder.setQuantity(row.getInt(quantity));
+            purchaseOrder.setTrackingNumber(row.getString(trackingNumber));
+            if (version > 0) {
+                purchaseOrder.setVersion(row.getInt(version));
+            }
+            return purchaseOrder;
+        };
+    }
+
+    // Map every remaining row of the result set
+    public static <T> List<T> mapAll(ResultSet rs, RowMapper<T> mapper) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        while (rs.next()) {
+            rows.add(mapper.map(rs));
+        }
+        return rows;
+    }
+
+    // Column label -> index, matched case-insensitively like ResultSet.findColumn
+    private static final class Columns {
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        Columns(ResultSet rs) throws SQLException {
+            ResultSetMetaData metaData = rs.getMetaData();
+            for (int i = metaData.getColumnCount(); i >= 1; i--) {
+                // Iterate backwards so the first of two same-named columns wins
+                indexes.put(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        int required(String label) throws SQLException {
+            int index = optional(label);
+            if (index == 0) {
+                throw new SQLException("Result set has no column '" + label + "'");
+            }
+            return index;
+        }
+
+        int optional(String label) {
+            Integer index = indexes.get(label.toLowerCase(Locale.ROOT));
+            return index != null ? index : 0;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package databasemanager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Records statements slower than a threshold to a rolling file. The caller
+// only compares a number on the fast path; slow statements are queued as raw
+// references and formatted and written by a background thread, so logging
+// never blocks a query. If the queue is full the entry is dropped and counted.
+//
+// Settings: samsmart.slowQuery.thresholdMillis (default 200),
+// samsmart.slowQuery.file (default slow_query.log),
+// samsmart.slowQuery.maxFileBytes (default 5MB), samsmart.slowQuery.maxFiles (default 5)
+public class SlowQueryLog {
+
+    private static final Logger LOGGER = Logger.getLogger(SlowQueryLog.class.getName());
+    private static final Pattern ASSIGNMENT = Pattern.compile("(\\w+)\\s*(?:=|<|>|<=|>=|<>|!=|LIKE)\\s*$",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern INSERT = Pattern.compile("INSERT\\s+INTO\\s+\\w+\\s*\\(([^)]*)\\)\\s*VALUES",
+            Pattern.CASE_INSENSITIVE);
+    private static final String MASK = "****";
+    // Users log in with their phone number as the password, so it is a credential too
+    private static final Set<String> MASKED_COLUMNS = Set.of("password", "phone_number");
+
+    private static volatile SlowQueryLog instance;
+
+    private final long thresholdNanos;
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(1024);
+    private final LongAdder logged = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Map<String, boolean[]> maskedParameters = new ConcurrentHashMap<>();
+
+    public SlowQueryLog(long thresholdMillis, Path file, long maxFileBytes, int maxFiles) {
+        this.thresholdNanos = thresholdMillis * 1_000_000L;
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        Thread writer = new Thread(this::writeLoop, "slow-query-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static SlowQueryLog getInstance() {
+        if (instance == null) {
+            synchronized (SlowQueryLog.class) {
+                if (instance == null) {
+                    instance = new SlowQueryLog(Long.getLong("samsmart.slowQuery.thresholdMillis", 200),
+                            Paths.get(System.getProperty("samsmart.slowQuery.file", "slow_query.log")),
+                            Long.getLong("samsmart.slowQuery.maxFileBytes", 5L * 1024 * 1024),
+                            Integer.getInteger("samsmart.slowQuery.maxFiles", 5));
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Fast-path check; only slow statements go on to log()
+    public boolean isSlow(long executionNanos) {
+        return executionNanos >= thresholdNanos;
+    }
+
+    // Queue a slow statement for the writer thread
+    public void log(String operation, String sql, Object[] parameters, int rows, long connectionWaitNanos,
+            long executionNanos) {
+        Entry entry = new Entry(System.currentTimeMillis(), operation, sql, parameters, rows, connectionWaitNanos,
+                executionNanos);
+        if (queue.offer(entry)) {
+            logged.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    public long getLogged() {
+        return logged.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    // Bound parameters with anything bound to a password or phone_number column
+    // replaced by ****. Callers pass the values in placeholder order.
+    String formatParameters(String sql, Object[] parameters) {
+        if (parameters == null || parameters.length == 0) {
+            return "[]";
+        }
+        boolean[] masked = sql == null ? new boolean[0]
+                : maskedParameters.computeIfAbsent(sql, SlowQueryLog::findMaskedParameters);
+        StringBuilder text = new StringBuilder("[");
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(i < masked.length && masked[i] ? MASK : String.valueOf(parameters[i]));
+        }
+        return text.append(']').toString();
+    }
+
+    // Which ? placeholders bind a masked column, worked out once per SQL text
+    static boolean[] findMaskedParameters(String sql) {
+        List<Boolean> masked = new ArrayList<>();
+        Matcher insert = INSERT.matcher(sql);
+        int valuesStart = -1;
+        String[] insertColumns = null;
+        if (insert.find()) {
+            valuesStart = insert.end();
+            insertColumns = insert.group(1).split(",");
+        }
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) != '?') {
+                continue;
+            }
+            String column = null;
+            if (insertColumns != null && i > valuesStart) {
+                int index = masked.size();
+                column = index < insertColumns.length ? insertColumns[index].trim() : null;
+            } else {
+                Matcher assignment = ASSIGNMENT.matcher(sql.substring(0, i));
+                if (assignment.find()) {
+                    column = assignment.group(1);
+                }
+            }
+            masked.add(column != null && MASKED_COLUMNS.contains(column.toLowerCase(Locale.ROOT)));
+        }
+        boolean[] result = new boolean[masked.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = masked.get(i);
+        }
+        return result;
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                write(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Unable to write slow query log", e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<Entry> batch) throws IOException {
+        rollIfNeeded();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            for (Entry entry : batch) {
+                writer.write(Instant.ofEpochMilli(entry.timestamp).toString());
+                writer.write(" op=");
+                writer.write(entry.operation);
+                writer.write(" execMs=");
+                writer.write(Long.toString(entry.executionNanos / 1_000_000));
+                writer.write(" connWaitMs=");
+                writer.write(Long.toString(entry.connectionWaitNanos / 1_000_000));
+                writer.write(" rows=");
+                writer.write(Integer.toString(entry.rows));
+                writer.write(" params=");
+                writer.write(formatParameters(entry.sql, entry.parameters));
+                writer.write(" sql=");
+                writer.write(entry.sql == null ? "-" : entry.sql);
+                writer.newLine();
+            }
+        }
+    }
+
+    // Keep at most maxFiles files: slow_query.log, slow_query.log.1, ...
+    private void rollIfNeeded() throws IOException {
+        if (!Files.exists(file) || Files.size(file) < maxFileBytes) {
+            return;
+        }
+        if (maxFiles <= 1) {
+            Files.delete(file);
+            return;
+        }
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path older = Paths.get(file + "." + i);
+            if (i == maxFiles - 1) {
+                Files.deleteIfExists(older);
+            }
+            Path newer = i == 1 ? file : Paths.get(file + "." + (i - 1));
+            if (Files.exists(newer)) {
+                Files.move(newer, older, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final long timestamp;
+        final String operation;
+        final String sql;
+        final Object[] parameters;
+        final int rows;
+        final long connectionWaitNanos;
+        final long executionNanos;
+
+        Entry(long timestamp, String operation, String sql, Object[] parameters, int rows, long connectionWaitNanos,
+                long executionNanos) {
+            this.timestamp = timestamp;
+            this.operation = operation;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.rows = rows;
+            this.connectionWaitNanos = connectionWaitNanos;
+            this.executionNanos = executionNanos;
+        }
+    }
+}
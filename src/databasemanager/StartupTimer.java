@@ -0,0 +1,66 @@
+package databasemanager;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Wall-clock milestones and phase durations for application startup, measured
+// from JVM start. Phases may run concurrently, so their durations overlap and
+// don't add up to the total.
+public final class StartupTimer {
+
+    private static final long JVM_START_MILLIS = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private static final Map<String, long[]> PHASES = new ConcurrentSkipListMap<>();
+    private static final AtomicLong FIRST_MENU_MILLIS = new AtomicLong();
+    private static final AtomicLong FIRST_QUERY_MILLIS = new AtomicLong();
+
+    private StartupTimer() {
+    }
+
+    // Record a finished phase: when it ended (since JVM start) and how long it ran
+    public static void phase(String name, long startNanos, boolean succeeded) {
+        long durationMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        PHASES.put(name, new long[] { sinceStart(), durationMillis, succeeded ? 1 : 0 });
+    }
+
+    public static void markFirstMenu() {
+        FIRST_MENU_MILLIS.compareAndSet(0, sinceStart());
+    }
+
+    // Called from every DatabaseManager operation; after the first one this is a single read
+    public static void markFirstQuery() {
+        if (FIRST_QUERY_MILLIS.get() == 0) {
+            FIRST_QUERY_MILLIS.compareAndSet(0, sinceStart());
+        }
+    }
+
+    public static long getTimeToFirstMenuMillis() {
+        return FIRST_MENU_MILLIS.get();
+    }
+
+    public static long getTimeToFirstQueryMillis() {
+        return FIRST_QUERY_MILLIS.get();
+    }
+
+    public static String formatReport() {
+        StringBuilder report = new StringBuilder("Startup timing (ms since JVM start):\n");
+        report.append(String.format("  %-22s %s%n", "first menu", format(FIRST_MENU_MILLIS.get())));
+        for (Map.Entry<String, long[]> entry : PHASES.entrySet()) {
+            long[] phase = entry.getValue();
+            report.append(String.format("  %-22s done at %6d, took %6d%s%n", entry.getKey(), phase[0], phase[1],
+                    phase[2] == 1 ? "" : " (FAILED)"));
+        }
+        report.append(String.format("  %-22s %s%n", "first query", format(FIRST_QUERY_MILLIS.get())));
+        return report.toString();
+    }
+
+    private static String format(long millis) {
+        return millis == 0 ? "not yet" : String.valueOf(millis);
+    }
+
+    private static long sinceStart() {
+        return Math.max(1, System.currentTimeMillis() - JVM_START_MILLIS);
+    }
+}
@@ -0,0 +1,118 @@
+package databasemanager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Background warm-up run while the main menu is already on screen. Phases:
+//   pool        open the pooled connections
+//   statements  prepare the hot statements on each of them (after pool)
+//   id-blocks   reserve the first PO and tracking number blocks
+//   metrics     register the JMX beans and start the slow query log writer
+//   summary     load the dashboard InventorySummary (after pool)
+//   search      build the ProductSearchIndex from the catalog (after pool)
+// A failed phase is reported but doesn't stop the others; the app then just
+// pays that cost on first use.
+//
+// Settings: samsmart.pool.warmConnections (default 4)
+public class StartupWarmup {
+
+    private final ConnectionPool pool;
+    private final int warmConnections;
+
+    public StartupWarmup() {
+        this(ConnectionPool.getInstance(), Integer.getInteger("samsmart.pool.warmConnections", 4));
+    }
+
+    public StartupWarmup(ConnectionPool pool, int warmConnections) {
+        this.pool = pool;
+        this.warmConnections = Math.min(warmConnections, pool.getMaxSize());
+    }
+
+    // Start every phase on daemon threads; the future completes when all of
+    // them have finished, exceptionally if any of them failed
+    public CompletableFuture<Void> start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(3, runnable -> {
+            Thread thread = new Thread(runnable, "startup-warmup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        CompletableFuture<Void> poolPhase = run("pool", () -> pool.prefill(warmConnections), executor);
+        CompletableFuture<Void> statementsPhase = poolPhase
+                .thenCompose(ignored -> run("statements", this::prepareStatements, executor));
+        CompletableFuture<Void> idPhase = run("id-blocks", () -> {
+            IdAllocator.poNumbers().prefetch();
+            IdAllocator.trackingNumbers().prefetch();
+        }, executor);
+        CompletableFuture<Void> metricsPhase = run("metrics", () -> {
+            MetricsRegistry.getInstance();
+            SlowQueryLog.getInstance();
+        }, executor);
+
+        CompletableFuture<Void> summaryPhase = poolPhase.thenCompose(ignored -> run("summary", () -> {
+            try (DatabaseManager dbManager = new DatabaseManager()) {
+                InventorySummary.getInstance().load(dbManager);
+            }
+        }, executor));
+
+        CompletableFuture<Void> searchPhase = poolPhase.thenCompose(ignored -> run("search", () -> {
+            try (DatabaseManager dbManager = new DatabaseManager()) {
+                ProductSearchIndex.shared().load(dbManager);
+            }
+        }, executor));
+
+        return CompletableFuture.allOf(statementsPhase, idPhase, metricsPhase, summaryPhase, searchPhase)
+                .whenComplete((ignored, error) -> executor.shutdown());
+    }
+
+    // Hold warmConnections leases at once so each one is a different pooled
+    // connection, then prepare and close the statements: with the driver's
+    // statement cache on, closing puts them in the cache instead of freeing them
+    private void prepareStatements() throws SQLException {
+        List<Connection> leased = new ArrayList<>();
+        try {
+            for (int i = 0; i < warmConnections; i++) {
+                leased.add(pool.borrow());
+            }
+            for (Connection connection : leased) {
+                for (String sql : DatabaseManager.WARM_UP_SQL) {
+                    // Prepared on the server; nothing to execute
+                    connection.prepareStatement(sql).close();
+                }
+            }
+        } finally {
+            for (Connection connection : leased) {
+                pool.release(connection);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Phase {
+        void run() throws Exception;
+    }
+
+    private static CompletableFuture<Void> run(String name, Phase phase, ExecutorService executor) {
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            boolean succeeded = false;
+            try {
+                phase.run();
+                succeeded = true;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("Startup phase '" + name + "' failed: " + e.getMessage(), e);
+            } finally {
+                StartupTimer.phase(name, start, succeeded);
+            }
+        }, executor);
+    }
+}
@@ -0,0 +1,103 @@
+package databasemanager;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Lets another thread cancel the call running on a pooled connection without
+// interrupting it (an interrupted JDBC read can leave the connection broken).
+// The connection is wrapped so every statement created on it is remembered;
+// cancel() calls Statement.cancel() on the latest one and makes any statement
+// created afterwards fail straight away. The connection stays usable and goes
+// back to the pool as usual. Once finish() has been called cancel() does
+// nothing, so a late cancel can't reach a query from the connection's next
+// borrower.
+final class StatementCanceller implements InvocationHandler {
+
+    private static final Logger LOGGER = Logger.getLogger(StatementCanceller.class.getName());
+
+    // SQLSTATE for "operation canceled"
+    private static final String CANCELLED_STATE = "HY008";
+
+    private final Connection target;
+    private final Connection proxy;
+    private Statement current;
+    private boolean cancelled;
+    private boolean finished;
+
+    StatementCanceller(Connection target) {
+        this.target = target;
+        this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, this);
+    }
+
+    // The wrapped connection to run the call on
+    Connection connection() {
+        return proxy;
+    }
+
+    synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Cancel the statement that is running, if any, and refuse new ones
+    // Statement.cancel() is called outside the lock: it can block on the
+    // driver, and invoke() needs the lock to register the next statement.
+    void cancel() {
+        Statement statement;
+        synchronized (this) {
+            if (finished || cancelled) {
+                return;
+            }
+            cancelled = true;
+            statement = current;
+        }
+        if (statement == null) {
+            return;
+        }
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            // Already finished or closed; nothing left to cancel
+            LOGGER.log(Level.FINE, "Statement cancel failed", e);
+        }
+    }
+
+    // The call is over; the connection is about to go back to the pool
+    synchronized void finish() {
+        finished = true;
+        current = null;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        boolean createsStatement = name.equals("createStatement") || name.equals("prepareStatement")
+                || name.equals("prepareCall");
+        if (createsStatement && isCancelled()) {
+            throw new SQLException("Call cancelled", CANCELLED_STATE);
+        }
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+        if (createsStatement) {
+            synchronized (this) {
+                current = (Statement) result;
+                if (cancelled) {
+                    current.close();
+                    throw new SQLException("Call cancelled", CANCELLED_STATE);
+                }
+            }
+        }
+        return result;
+    }
+}
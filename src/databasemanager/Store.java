@@ -0,0 +1,85 @@
+package databasemanager;
+
+import java.time.LocalDate;
+
+public class Store {
+    private int storeId;
+    private String storeName;
+    private String address;
+    private String city;
+    private String state;
+    private int zip;
+    private String phone;
+    private String storeType;
+    private LocalDate openingDate;
+    private int version; // Row version used for optimistic concurrency checks
+
+    public Store(int storeId, String storeName, String address, String city, String state, int zip, String phone,
+            String storeType, LocalDate openingDate) {
+        this.storeId = storeId;
+        this.storeName = storeName;
+        this.address = address;
+        this.city = city;
+        this.state = state;
+        this.zip = zip;
+        this.phone = phone;
+        this.storeType = storeType;
+        this.openingDate = openingDate;
+    }
+
+    // Getter and Setter methods
+    public int getStoreId() {
+        return storeId;
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public int getZip() {
+        return zip;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    public String getStoreType() {
+        return storeType;
+    }
+
+    public LocalDate getOpeningDate() {
+        return openingDate;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    @Override
+    public String toString() {
+        return "Store{" +
+                "storeId=" + storeId +
+                ", storeName='" + storeName + '\'' +
+                ", city='" + city + '\'' +
+                ", state='" + state + '\'' +
+                ", storeType='" + storeType + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package databasemanager;
+
+// Stock, value and soon-to-expire units for one store, or for several stores combined
+public class StoreInventoryTotals {
+    public static final int ALL_STORES = -1;
+
+    private final int storeId;
+    private final long units;
+    private final double value;
+    private final long expiringUnits;
+
+    public StoreInventoryTotals(int storeId, long units, double value, long expiringUnits) {
+        this.storeId = storeId;
+        this.units = units;
+        this.value = value;
+        this.expiringUnits = expiringUnits;
+    }
+
+    public static StoreInventoryTotals empty() {
+        return new StoreInventoryTotals(ALL_STORES, 0, 0.0, 0);
+    }
+
+    // Sum of two partial results; the store id is kept only if both are the same store
+    public StoreInventoryTotals combine(StoreInventoryTotals other) {
+        return new StoreInventoryTotals(storeId == other.storeId ? storeId : ALL_STORES,
+                units + other.units, value + other.value, expiringUnits + other.expiringUnits);
+    }
+
+    public int getStoreId() {
+        return storeId;
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public long getExpiringUnits() {
+        return expiringUnits;
+    }
+
+    @Override
+    public String toString() {
+        return "StoreInventoryTotals{" +
+                "storeId=" + storeId +
+                ", units=" + units +
+                ", value=" + value +
+                ", expiringUnits=" + expiringUnits +
+                '}';
+    }
+}
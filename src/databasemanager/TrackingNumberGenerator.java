@@ -0,0 +1,77 @@
+package databasemanager;
+
+import java.sql.SQLException;
+
+// Builds 12-digit tracking numbers from an 11-digit sequence plus a Luhn check
+// digit, so they are unique without a database lookup and typos are caught.
+// The old random generator issued 10-digit numbers (1000000000 to
+// 9999999999), so the extra width keeps the two apart whatever is on file.
+public class TrackingNumberGenerator {
+
+    public static final int LENGTH = 12;
+
+    private static final long SEQUENCE_LIMIT = 100_000_000_000L;
+
+    private final IdAllocator allocator;
+
+    public TrackingNumberGenerator(IdAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    // Generator backed by the shared tracking_number sequence
+    public static TrackingNumberGenerator shared() {
+        return new TrackingNumberGenerator(IdAllocator.trackingNumbers());
+    }
+
+    public String next() throws SQLException {
+        long sequence = allocator.next();
+        if (sequence >= SEQUENCE_LIMIT) {
+            throw new SQLException("Tracking number sequence exhausted");
+        }
+        return format(sequence);
+    }
+
+    // Zero-padded 11-digit sequence followed by its check digit
+    static String format(long sequence) {
+        char[] digits = new char[LENGTH];
+        long value = sequence;
+        for (int i = LENGTH - 2; i >= 0; i--) {
+            digits[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        digits[LENGTH - 1] = (char) ('0' + checkDigit(digits));
+        return new String(digits);
+    }
+
+    // Check if a tracking number has the right length and check digit
+    public static boolean isValid(String trackingNumber) {
+        if (trackingNumber == null || trackingNumber.length() != LENGTH) {
+            return false;
+        }
+        char[] digits = trackingNumber.toCharArray();
+        for (char digit : digits) {
+            if (digit < '0' || digit > '9') {
+                return false;
+            }
+        }
+        return digits[LENGTH - 1] - '0' == checkDigit(digits);
+    }
+
+    // Luhn check digit over the sequence digits
+    private static int checkDigit(char[] digits) {
+        int sum = 0;
+        boolean doubleIt = true;
+        for (int i = LENGTH - 2; i >= 0; i--) {
+            int d = digits[i] - '0';
+            if (doubleIt) {
+                d *= 2;
+                if (d > 9) {
+                    d -= 9;
+                }
+            }
+            sum += d;
+            doubleIt = !doubleIt;
+        }
+        return (10 - (sum % 10)) % 10;
+    }
+}
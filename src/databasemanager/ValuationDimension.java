@@ -0,0 +1,51 @@
+package databasemanager;
+
+import product.java.Product;
+
+// What a valuation rolls stock value up by. Each dimension is a product
+// column, so it can be grouped in SQL or read off a Product in memory.
+public enum ValuationDimension {
+    CATEGORY("category", "Category"),
+    BRAND("brand", "Brand"),
+    MANUFACTURER("manufacturer", "Manufacturer"),
+    STORE("store_id", "Store");
+
+    // Key used for rows where the column is NULL
+    public static final String NONE = "(none)";
+
+    private final String column;
+    private final String label;
+
+    ValuationDimension(String column, String label) {
+        this.column = column;
+        this.label = label;
+    }
+
+    // Column name for GROUP BY; fixed per constant, never user input
+    public String getColumn() {
+        return column;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String keyOf(Product product) {
+        String key;
+        switch (this) {
+            case CATEGORY:
+                key = product.getCategory();
+                break;
+            case BRAND:
+                key = product.getBrand();
+                break;
+            case MANUFACTURER:
+                key = product.getManufacturer();
+                break;
+            default:
+                key = String.valueOf(product.getStoreId());
+                break;
+        }
+        return key != null ? key : NONE;
+    }
+}
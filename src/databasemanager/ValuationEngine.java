@@ -0,0 +1,160 @@
+package databasemanager;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import product.java.Product;
+
+// Stock valuation (quantity * price) rolled up by category, brand,
+// manufacturer or store. Each dimension is grouped by MySQL, so only one
+// row per group comes back. Groupings SQL can't express (a custom
+// classifier) or a failed GROUP BY fall back to a single in-memory pass over
+// the products, which can fill several rollups at once. valuateAll runs the
+// per-dimension queries concurrently through an AsyncDatabaseManager.
+public class ValuationEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(ValuationEngine.class.getName());
+
+    private final Supplier<DatabaseManager> managerFactory;
+
+    public ValuationEngine() {
+        this(DatabaseManager::new);
+    }
+
+    public ValuationEngine(Supplier<DatabaseManager> managerFactory) {
+        this.managerFactory = managerFactory;
+    }
+
+    // One dimension, grouped in SQL; falls back to the in-memory pass if the query fails
+    public ValuationReport valuate(ValuationDimension dimension) throws SQLException {
+        long start = System.nanoTime();
+        try (DatabaseManager dbManager = managerFactory.get()) {
+            List<ValuationLine> lines = dbManager.getInventoryValuation(dimension);
+            sortByValue(lines);
+            return new ValuationReport(dimension.getLabel(), lines, true, System.nanoTime() - start);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "GROUP BY valuation failed; aggregating in memory", e);
+            return valuateInMemory(dimension).get(dimension);
+        }
+    }
+
+    // Several dimensions at once, one GROUP BY each, run concurrently; if any
+    // of them fails they all come from a single in-memory pass instead
+    public static CompletableFuture<Map<ValuationDimension, ValuationReport>> valuateAll(AsyncDatabaseManager async,
+            ValuationDimension... dimensions) {
+        long start = System.nanoTime();
+        List<CompletableFuture<List<ValuationLine>>> calls = new ArrayList<>();
+        for (ValuationDimension dimension : dimensions) {
+            calls.add(async.submit(db -> db.getInventoryValuation(dimension)));
+        }
+        CompletableFuture<Map<ValuationDimension, ValuationReport>> reports = CompletableFuture
+                .allOf(calls.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    long elapsed = System.nanoTime() - start;
+                    Map<ValuationDimension, ValuationReport> result = new EnumMap<>(ValuationDimension.class);
+                    for (int i = 0; i < dimensions.length; i++) {
+                        List<ValuationLine> lines = calls.get(i).join();
+                        sortByValue(lines);
+                        result.put(dimensions[i], new ValuationReport(dimensions[i].getLabel(), lines, true, elapsed));
+                    }
+                    return result;
+                });
+        AsyncDatabaseManager.cancelOnFailure(reports, calls);
+        return reports.exceptionallyCompose(error -> {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (!(cause instanceof SQLException)) {
+                return CompletableFuture.failedFuture(cause); // Timed out or cancelled
+            }
+            LOGGER.log(Level.WARNING, "GROUP BY valuation failed; aggregating in memory", cause);
+            return async.getAllProducts().thenApply(products -> inMemory(products, start, dimensions));
+        });
+    }
+
+    // Several dimensions from one scan of the product table, without GROUP BY
+    public Map<ValuationDimension, ValuationReport> valuateInMemory(ValuationDimension... dimensions)
+            throws SQLException {
+        long start = System.nanoTime();
+        List<Product> products;
+        try (DatabaseManager dbManager = managerFactory.get()) {
+            products = dbManager.getAllProducts();
+        }
+        return inMemory(products, start, dimensions);
+    }
+
+    private static Map<ValuationDimension, ValuationReport> inMemory(List<Product> products, long start,
+            ValuationDimension... dimensions) {
+        Map<ValuationDimension, Map<String, Accumulator>> groups = new EnumMap<>(ValuationDimension.class);
+        for (ValuationDimension dimension : dimensions) {
+            groups.put(dimension, new HashMap<>());
+        }
+        for (Product product : products) {
+            long quantity = product.getQuantity();
+            double value = quantity * product.getPrice();
+            for (Map.Entry<ValuationDimension, Map<String, Accumulator>> group : groups.entrySet()) {
+                group.getValue().computeIfAbsent(group.getKey().keyOf(product), key -> new Accumulator())
+                        .add(quantity, value);
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        Map<ValuationDimension, ValuationReport> reports = new EnumMap<>(ValuationDimension.class);
+        for (Map.Entry<ValuationDimension, Map<String, Accumulator>> group : groups.entrySet()) {
+            reports.put(group.getKey(),
+                    new ValuationReport(group.getKey().getLabel(), toLines(group.getValue()), false, elapsed));
+        }
+        return reports;
+    }
+
+    // Any grouping SQL can't express, e.g. by expiry month; always in memory
+    public ValuationReport valuate(String name, Function<Product, String> classifier) throws SQLException {
+        long start = System.nanoTime();
+        List<Product> products;
+        try (DatabaseManager dbManager = managerFactory.get()) {
+            products = dbManager.getAllProducts();
+        }
+        Map<String, Accumulator> groups = new HashMap<>();
+        for (Product product : products) {
+            String key = classifier.apply(product);
+            long quantity = product.getQuantity();
+            groups.computeIfAbsent(key != null ? key : ValuationDimension.NONE, k -> new Accumulator())
+                    .add(quantity, quantity * product.getPrice());
+        }
+        return new ValuationReport(name, toLines(groups), false, System.nanoTime() - start);
+    }
+
+    private static List<ValuationLine> toLines(Map<String, Accumulator> groups) {
+        List<ValuationLine> lines = new ArrayList<>(groups.size());
+        for (Map.Entry<String, Accumulator> group : groups.entrySet()) {
+            Accumulator totals = group.getValue();
+            lines.add(new ValuationLine(group.getKey(), totals.products, totals.units, totals.value));
+        }
+        sortByValue(lines);
+        return lines;
+    }
+
+    private static void sortByValue(List<ValuationLine> lines) {
+        lines.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+    }
+
+    private static final class Accumulator {
+        long products;
+        long units;
+        double value;
+
+        void add(long quantity, double lineValue) {
+            products++;
+            units += quantity;
+            value += lineValue;
+        }
+    }
+}
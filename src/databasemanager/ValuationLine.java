@@ -0,0 +1,38 @@
+package databasemanager;
+
+// Stock value for one group (one category, brand, manufacturer or store)
+public class ValuationLine {
+    private final String key;
+    private final long products;
+    private final long units;
+    private final double value;
+
+    public ValuationLine(String key, long products, long units, double value) {
+        this.key = key;
+        this.products = products;
+        this.units = units;
+        this.value = value;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getProducts() {
+        return products;
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    // Sum of quantity * price over the group
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "ValuationLine [key=" + key + ", products=" + products + ", units=" + units + ", value=" + value + "]";
+    }
+}
@@ -0,0 +1,65 @@
+package databasemanager;
+
+import java.util.List;
+
+// A valuation rolled up by one dimension, largest value first
+public class ValuationReport {
+    private final String dimension;
+    private final List<ValuationLine> lines;
+    private final boolean pushedDown;
+    private final long elapsedNanos;
+
+    public ValuationReport(String dimension, List<ValuationLine> lines, boolean pushedDown, long elapsedNanos) {
+        this.dimension = dimension;
+        this.lines = lines;
+        this.pushedDown = pushedDown;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getDimension() {
+        return dimension;
+    }
+
+    public List<ValuationLine> getLines() {
+        return lines;
+    }
+
+    // True when MySQL did the grouping, false for the in-memory pass
+    public boolean isPushedDown() {
+        return pushedDown;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getTotalUnits() {
+        long units = 0;
+        for (ValuationLine line : lines) {
+            units += line.getUnits();
+        }
+        return units;
+    }
+
+    public double getTotalValue() {
+        double value = 0.0;
+        for (ValuationLine line : lines) {
+            value += line.getValue();
+        }
+        return value;
+    }
+
+    // Text table for the menus
+    public String format() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Inventory valuation by %s (%s, %d ms)%n", dimension,
+                pushedDown ? "SQL" : "in memory", elapsedNanos / 1_000_000));
+        report.append(String.format("%-30s %10s %12s %16s%n", dimension, "Products", "Units", "Value"));
+        for (ValuationLine line : lines) {
+            report.append(String.format("%-30s %10d %12d %16.2f%n", line.getKey(), line.getProducts(),
+                    line.getUnits(), line.getValue()));
+        }
+        report.append(String.format("%-30s %10s %12d %16.2f%n", "Total", "", getTotalUnits(), getTotalValue()));
+        return report.toString();
+    }
+}
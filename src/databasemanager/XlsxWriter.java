@@ -0,0 +1,260 @@
+package databasemanager;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Minimal streaming XLSX (Office Open XML) writer. Each sheet is one zip
+// entry written row by row as the caller produces them, and strings are
+// stored inline instead of in a shared string table, so memory stays at one
+// row plus the stream buffers however long the sheet is. The workbook
+// parts that list the sheets are written last, once every sheet is known.
+// Sheets look like the buyers' spreadsheets: a bold, frozen header row and
+// set column widths.
+class XlsxWriter implements Closeable {
+
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final LocalDate EXCEL_EPOCH = LocalDate.of(1899, 12, 30);
+
+    // Cell styles, indexes into cellXfs in styles.xml
+    private static final int STYLE_HEADER = 1;
+    private static final int STYLE_DATE = 2;
+    private static final int STYLE_MONEY = 3;
+
+    private final ZipOutputStream zip;
+    private final Writer out;
+    private final List<String> sheetNames = new ArrayList<>();
+    private String[] columnLetters;
+    private int rowNumber;
+    private int column;
+    private boolean inSheet;
+
+    XlsxWriter(OutputStream target) {
+        this.zip = new ZipOutputStream(target, StandardCharsets.UTF_8);
+        this.out = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    // Begin a sheet with its header row; widths are in characters
+    void startSheet(String name, String[] header, int[] widths) throws IOException {
+        if (inSheet) {
+            endSheet();
+        }
+        sheetNames.add(name);
+        startEntry("xl/worksheets/sheet" + sheetNames.size() + ".xml");
+        inSheet = true;
+        rowNumber = 0;
+        columnLetters = new String[header.length];
+        for (int i = 0; i < header.length; i++) {
+            columnLetters[i] = columnLetter(i);
+        }
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n<worksheet xmlns=\"" + MAIN_NS
+                + "\"><sheetViews><sheetView workbookViewId=\"0\"><pane ySplit=\"1\" topLeftCell=\"A2\" "
+                + "activePane=\"bottomLeft\" state=\"frozen\"/></sheetView></sheetViews><cols>");
+        for (int i = 0; i < widths.length; i++) {
+            out.write("<col min=\"" + (i + 1) + "\" max=\"" + (i + 1) + "\" width=\"" + widths[i]
+                    + "\" customWidth=\"1\"/>");
+        }
+        out.write("</cols><sheetData>");
+        startRow();
+        for (String title : header) {
+            string(title, STYLE_HEADER);
+        }
+        endRow();
+    }
+
+    void startRow() throws IOException {
+        rowNumber++;
+        column = 0;
+        out.write("<row r=\"");
+        out.write(Integer.toString(rowNumber));
+        out.write("\">");
+    }
+
+    void endRow() throws IOException {
+        out.write("</row>");
+    }
+
+    void cell(String value) throws IOException {
+        if (value == null) {
+            blank();
+        } else {
+            string(value, 0);
+        }
+    }
+
+    void cell(long value) throws IOException {
+        number(Long.toString(value), 0);
+    }
+
+    void cell(double value) throws IOException {
+        number(Double.toString(value), 0);
+    }
+
+    void money(double value) throws IOException {
+        number(Double.toString(value), STYLE_MONEY);
+    }
+
+    // Dates are serial day numbers with a date format, so they sort and filter as dates
+    void cell(LocalDate value) throws IOException {
+        if (value == null) {
+            blank();
+        } else {
+            number(Long.toString(ChronoUnit.DAYS.between(EXCEL_EPOCH, value)), STYLE_DATE);
+        }
+    }
+
+    void blank() {
+        column++;
+    }
+
+    void endSheet() throws IOException {
+        out.write("</sheetData></worksheet>");
+        out.flush();
+        zip.closeEntry();
+        inSheet = false;
+    }
+
+    private void number(String value, int style) throws IOException {
+        startCell(style);
+        out.write("><v>");
+        out.write(value);
+        out.write("</v></c>");
+    }
+
+    private void string(String value, int style) throws IOException {
+        startCell(style);
+        out.write(" t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+        escape(value);
+        out.write("</t></is></c>");
+    }
+
+    private void startCell(int style) throws IOException {
+        out.write("<c r=\"");
+        out.write(columnLetters[column++]);
+        out.write(Integer.toString(rowNumber));
+        out.write('"');
+        if (style != 0) {
+            out.write(" s=\"");
+            out.write(Integer.toString(style));
+            out.write('"');
+        }
+    }
+
+    // XML text escaping; characters XML 1.0 can't hold at all are dropped
+    private void escape(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                default:
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        if (c != 0xfffe && c != 0xffff) {
+                            out.write(c);
+                        }
+                    }
+            }
+        }
+    }
+
+    private static String columnLetter(int index) {
+        StringBuilder letters = new StringBuilder();
+        for (int n = index + 1; n > 0; n = (n - 1) / 26) {
+            letters.insert(0, (char) ('A' + (n - 1) % 26));
+        }
+        return letters.toString();
+    }
+
+    private void startEntry(String name) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+    }
+
+    private void part(String name, String xml) throws IOException {
+        startEntry(name);
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        out.write(xml);
+        out.flush();
+        zip.closeEntry();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (inSheet) {
+                endSheet();
+            }
+            StringBuilder sheets = new StringBuilder();
+            StringBuilder sheetRels = new StringBuilder();
+            StringBuilder sheetTypes = new StringBuilder();
+            for (int i = 1; i <= sheetNames.size(); i++) {
+                sheets.append("<sheet name=\"").append(sheetName(sheetNames.get(i - 1))).append("\" sheetId=\"")
+                        .append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+                sheetRels.append("<Relationship Id=\"rId").append(i).append("\" Type=\"").append(REL_NS)
+                        .append("/worksheet\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+                sheetTypes.append("<Override PartName=\"/xl/worksheets/sheet").append(i).append(".xml\" ")
+                        .append("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.")
+                        .append("worksheet+xml\"/>");
+            }
+            part("xl/workbook.xml", "<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\"><sheets>"
+                    + sheets + "</sheets></workbook>");
+            part("xl/_rels/workbook.xml.rels", "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/"
+                    + "2006/relationships\">" + sheetRels + "<Relationship Id=\"rId" + (sheetNames.size() + 1)
+                    + "\" Type=\"" + REL_NS + "/styles\" Target=\"styles.xml\"/></Relationships>");
+            part("xl/styles.xml", "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+                    + "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+                    + "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+                    + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+                    + "<fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                    + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                    + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/>"
+                    + "</cellStyleXfs><cellXfs count=\"4\">"
+                    + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+                    + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>"
+                    + "<xf numFmtId=\"14\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" "
+                    + "applyNumberFormat=\"1\"/>"
+                    + "<xf numFmtId=\"4\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" "
+                    + "applyNumberFormat=\"1\"/></cellXfs>"
+                    + "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+                    + "</styleSheet>");
+            part("_rels/.rels", "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/"
+                    + "relationships\"><Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" "
+                    + "Target=\"xl/workbook.xml\"/></Relationships>");
+            part("[Content_Types].xml", "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/"
+                    + "content-types\"><Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-"
+                    + "package.relationships+xml\"/><Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                    + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-"
+                    + "officedocument.spreadsheetml.sheet.main+xml\"/>" + sheetTypes
+                    + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-"
+                    + "officedocument.spreadsheetml.styles+xml\"/></Types>");
+        } finally {
+            out.close();
+        }
+    }
+
+    // Excel sheet names: at most 31 characters, none of : \ / ? * [ ]
+    private static String sheetName(String name) {
+        String cleaned = name.replaceAll("[:\\\\/?*\\[\\]]", " ");
+        if (cleaned.length() > 31) {
+            cleaned = cleaned.substring(0, 31);
+        }
+        return cleaned.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -1,6 +1,8 @@
 package product.java;
 
 public class Item {
+    public static final int DEFAULT_REORDER_POINT = 5;
+
     private String name;
     private int quantity;
 
@@ -26,7 +28,16 @@ public class Item {
     }
 
     public boolean isLowStock() {
-        return this.quantity <= 5; // Let's assume 5 is the low stock threshold for now
+        return isLowStock(DEFAULT_REORDER_POINT);
+    }
+
+    // Stock is low once it falls to the product's own reorder point
+    public boolean isLowStock(int reorderPoint) {
+        return isLowStock(this.quantity, reorderPoint);
+    }
+
+    public static boolean isLowStock(int quantity, int reorderPoint) {
+        return quantity <= reorderPoint;
     }
 
 }
@@ -15,8 +15,10 @@ public class Product {
     private String brand;
     private double price;
     private String category;
+    private int storeId; // Store (inventory partition) that holds this stock
     private double total; // Set by the database
     private LocalDate dateAdded; // Set by the database
+    private int version; // Row version used for optimistic concurrency checks
 
     public Product() {
         // Default constructor
@@ -49,19 +51,21 @@ public class Product {
         this.expirationDate = expirationDate;
     }
 
-    // Constructor that takes a ResultSet and extracts the product data
+    // Constructor that takes a ResultSet and extracts the product data. Looks
+    // columns up by name, so it suits a single row; loops over many rows should
+    // use databasemanager.RowMappers.product, which resolves the indexes once.
     public Product(ResultSet resultSet) throws SQLException {
         this.productID = resultSet.getInt("productID");
         this.productName = resultSet.getString("productName");
-        this.expirationDate = resultSet.getDate("expirationDate").toLocalDate();
-        this.markdownDate = resultSet.getDate("markdownDate").toLocalDate();
+        this.expirationDate = resultSet.getObject("expirationDate", LocalDate.class);
+        this.markdownDate = resultSet.getObject("markdownDate", LocalDate.class);
         this.quantity = resultSet.getInt("quantity");
         this.manufacturer = resultSet.getString("manufacturer");
         this.brand = resultSet.getString("brand");
         this.price = resultSet.getDouble("price");
         this.category = resultSet.getString("category");
         this.total = resultSet.getDouble("total");
-        this.dateAdded = resultSet.getDate("date_added").toLocalDate();
+        this.dateAdded = resultSet.getObject("date_added", LocalDate.class);
     }
 
     // Getters and setters for all fields
@@ -147,19 +151,44 @@ public class Product {
         this.expirationDate = expirationDate;
     }
 
+    public int getStoreId() {
+        return storeId;
+    }
+
+    public void setStoreId(int storeId) {
+        this.storeId = storeId;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public double getTotal() {
         return total;
     }
 
+    public void setTotal(double total) {
+        this.total = total;
+    }
+
     public LocalDate getDateAdded() {
         return dateAdded;
     }
 
+    public void setDateAdded(LocalDate dateAdded) {
+        this.dateAdded = dateAdded;
+    }
+
     @Override
     public String toString() {
         return "Product [productID=" + productID + ", productName=" + productName + ", expirationDate=" + expirationDate
                 + ", markdownDate=" + markdownDate + ", quantity=" + quantity + ", manufacturer=" + manufacturer
-                + ", brand=" + brand + ", price=" + price + ", category=" + category + ", total=" + total
+                + ", brand=" + brand + ", price=" + price + ", category=" + category + ", storeId=" + storeId
+                + ", total=" + total
                 + ", dateAdded=" + dateAdded + "]";
     }
 